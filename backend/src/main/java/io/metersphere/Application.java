@@ -1,7 +1,9 @@
 package io.metersphere;
 
+import io.metersphere.config.FileStorageProperties;
 import io.metersphere.config.JmeterProperties;
 import io.metersphere.config.KafkaProperties;
+import io.metersphere.config.ScheduleProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.ldap.LdapAutoConfiguration;
@@ -18,7 +20,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @ServletComponentScan
 @EnableConfigurationProperties({
         KafkaProperties.class,
-        JmeterProperties.class
+        JmeterProperties.class,
+        FileStorageProperties.class,
+        ScheduleProperties.class
 })
 @EnableScheduling
 //@PropertySource(value = {"file:c:\\opt\\metersphere\\conf\\metersphere.properties"}, encoding = "UTF-8", ignoreResourceNotFound = true)
@@ -7,6 +7,7 @@ import io.metersphere.commons.constants.APITestStatus;
 import io.metersphere.commons.constants.ApiRunMode;
 import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.config.JmeterProperties;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.assertions.AssertionResult;
 import org.apache.jmeter.samplers.SampleResult;
@@ -27,7 +28,21 @@ public class APIBackendListenerClient extends AbstractBackendListenerClient impl
 
     private final static String ID_SPLIT = "-";
 
-    private final List<SampleResult> queue = new ArrayList<>();
+    // 结果在接收时即归并，不再保留原始 SampleResult
+    private final TestResult testResult = new TestResult();
+
+    // 一个脚本里可能包含多个场景(ThreadGroup)，所以要区分开，key: 场景Id
+    private final Map<String, ScenarioResult> scenarios = new LinkedHashMap<>();
+
+    // 每个请求已保留的成功请求条数，key: 场景Id + 请求名称
+    private final Map<String, Integer> retainedRequests = new HashMap<>();
+
+    // 每个请求已保留的失败请求条数，key: 场景Id + 请求名称
+    private final Map<String, Integer> retainedFailures = new HashMap<>();
+
+    private int maxRetainedRequests = new JmeterProperties.Api().getMaxRetainedRequests();
+
+    private int maxRetainedFailures = new JmeterProperties.Api().getMaxRetainedFailures();
 
     private APITestService apiTestService;
 
@@ -52,57 +67,23 @@ public class APIBackendListenerClient extends AbstractBackendListenerClient impl
         if (apiReportService == null) {
             LogUtil.error("apiReportService is required");
         }
+
+        JmeterProperties jmeterProperties = CommonBeanFactory.getBean(JmeterProperties.class);
+        if (jmeterProperties != null) {
+            maxRetainedRequests = jmeterProperties.getApi().getMaxRetainedRequests();
+            maxRetainedFailures = jmeterProperties.getApi().getMaxRetainedFailures();
+        }
+        testResult.setTestId(testId);
         super.setupTest(context);
     }
 
     @Override
     public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
-        queue.addAll(sampleResults);
+        sampleResults.forEach(this::aggregate);
     }
 
     @Override
     public void teardownTest(BackendListenerContext context) throws Exception {
-        TestResult testResult = new TestResult();
-        testResult.setTestId(testId);
-        testResult.setTotal(queue.size());
-
-        // 一个脚本里可能包含多个场景(ThreadGroup)，所以要区分开，key: 场景Id
-        final Map<String, ScenarioResult> scenarios = new LinkedHashMap<>();
-
-        queue.forEach(result -> {
-            // 线程名称: <场景名> <场景Index>-<请求Index>, 例如：Scenario 2-1
-            String scenarioName = StringUtils.substringBeforeLast(result.getThreadName(), THREAD_SPLIT);
-            String index = StringUtils.substringAfterLast(result.getThreadName(), THREAD_SPLIT);
-            String scenarioId = StringUtils.substringBefore(index, ID_SPLIT);
-            ScenarioResult scenarioResult;
-            if (!scenarios.containsKey(scenarioId)) {
-                scenarioResult = new ScenarioResult();
-                scenarioResult.setId(scenarioId);
-                scenarioResult.setName(scenarioName);
-                scenarios.put(scenarioId, scenarioResult);
-            } else {
-                scenarioResult = scenarios.get(scenarioId);
-            }
-
-            if (result.isSuccessful()) {
-                scenarioResult.addSuccess();
-                testResult.addSuccess();
-            } else {
-                scenarioResult.addError(result.getErrorCount());
-                testResult.addError(result.getErrorCount());
-            }
-
-            RequestResult requestResult = getRequestResult(result);
-            scenarioResult.getRequestResults().add(requestResult);
-            scenarioResult.addResponseTime(result.getTime());
-
-            testResult.addPassAssertions(requestResult.getPassAssertions());
-            testResult.addTotalAssertions(requestResult.getTotalAssertions());
-
-            scenarioResult.addPassAssertions(requestResult.getPassAssertions());
-            scenarioResult.addTotalAssertions(requestResult.getTotalAssertions());
-        });
-
         testResult.getScenarios().addAll(scenarios.values());
         testResult.getScenarios().sort(Comparator.comparing(ScenarioResult::getId));
         ApiTestReport report = null;
@@ -114,10 +95,92 @@ public class APIBackendListenerClient extends AbstractBackendListenerClient impl
         }
         apiReportService.complete(testResult, report);
 
-        queue.clear();
+        scenarios.clear();
+        retainedRequests.clear();
+        retainedFailures.clear();
         super.teardownTest(context);
     }
 
+    private void aggregate(SampleResult result) {
+        // 线程名称: <场景名> <场景Index>-<请求Index>, 例如：Scenario 2-1
+        String scenarioName = StringUtils.substringBeforeLast(result.getThreadName(), THREAD_SPLIT);
+        String index = StringUtils.substringAfterLast(result.getThreadName(), THREAD_SPLIT);
+        String scenarioId = StringUtils.substringBefore(index, ID_SPLIT);
+        ScenarioResult scenarioResult = scenarios.computeIfAbsent(scenarioId, id -> {
+            ScenarioResult scenario = new ScenarioResult();
+            scenario.setId(id);
+            scenario.setName(scenarioName);
+            return scenario;
+        });
+
+        testResult.setTotal(testResult.getTotal() + 1);
+        if (result.isSuccessful()) {
+            scenarioResult.addSuccess();
+            testResult.addSuccess();
+        } else {
+            scenarioResult.addError(result.getErrorCount());
+            testResult.addError(result.getErrorCount());
+        }
+
+        scenarioResult.addResponseTime(result.getTime());
+
+        boolean retained = hasFailure(result)
+                ? retainRequest(retainedFailures, maxRetainedFailures, scenarioId, result)
+                : retainRequest(retainedRequests, maxRetainedRequests, scenarioId, result);
+        if (!retained) {
+            // 超出保留条数的请求只统计，不保留明细
+            int passAssertions = 0;
+            for (AssertionResult assertionResult : result.getAssertionResults()) {
+                if (!assertionResult.isFailure()) {
+                    passAssertions++;
+                }
+            }
+            scenarioResult.addOmittedRequests();
+            testResult.addPassAssertions(passAssertions);
+            testResult.addTotalAssertions(result.getAssertionResults().length);
+            scenarioResult.addPassAssertions(passAssertions);
+            scenarioResult.addTotalAssertions(result.getAssertionResults().length);
+            return;
+        }
+
+        RequestResult requestResult = getRequestResult(result);
+        scenarioResult.getRequestResults().add(requestResult);
+
+        testResult.addPassAssertions(requestResult.getPassAssertions());
+        testResult.addTotalAssertions(requestResult.getTotalAssertions());
+
+        scenarioResult.addPassAssertions(requestResult.getPassAssertions());
+        scenarioResult.addTotalAssertions(requestResult.getTotalAssertions());
+    }
+
+    /**
+     * 请求或其子请求是否失败
+     */
+    private boolean hasFailure(SampleResult result) {
+        if (!result.isSuccessful()) {
+            return true;
+        }
+        for (SampleResult subResult : result.getSubResults()) {
+            if (hasFailure(subResult)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 成功和失败的请求分别计数，每个请求最多保留 max 条
+     */
+    private boolean retainRequest(Map<String, Integer> retainedCounts, int max, String scenarioId, SampleResult result) {
+        String key = scenarioId + ID_SPLIT + result.getSampleLabel();
+        int retained = retainedCounts.getOrDefault(key, 0);
+        if (retained >= max) {
+            return false;
+        }
+        retainedCounts.put(key, retained + 1);
+        return true;
+    }
+
     private RequestResult getRequestResult(SampleResult result) {
         RequestResult requestResult = new RequestResult();
         requestResult.setName(result.getSampleLabel());
@@ -0,0 +1,97 @@
+package io.metersphere.api.jmeter;
+
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.config.JmeterProperties;
+import io.metersphere.i18n.Translator;
+import io.metersphere.service.FileService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jorphan.collections.HashTree;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存解析后的接口测试脚本，每次执行返回深拷贝
+ * <p>
+ * 按 file_metadata.content_hash（内容的 SHA-256）缓存，内容相同的文件共用一份，
+ * 命中时不需要读取文件内容；删除的文件不再被访问，按最久未使用淘汰
+ */
+@Service
+public class JMeterScriptCache {
+
+    @Resource
+    private FileService fileService;
+    @Resource
+    private JMeterService jMeterService;
+    @Resource
+    private JmeterProperties jmeterProperties;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Map<String, HashTree> cache;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        int maxSize = jmeterProperties.getApi().getScriptCacheSize();
+        cache = new LinkedHashMap<String, HashTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HashTree> eldest) {
+                return size() > maxSize;
+            }
+        };
+        hitCounter = meterRegistry.counter("ms.api.script.cache", "result", "hit");
+        missCounter = meterRegistry.counter("ms.api.script.cache", "result", "miss");
+        Gauge.builder("ms.api.script.cache.size", this, c -> c.size()).register(meterRegistry);
+    }
+
+    public HashTree getTestPlan(String fileId) {
+        String key = fileService.getContentHash(fileId);
+        if (key == null) {
+            MSException.throwException(Translator.get("file_cannot_be_null"));
+        }
+
+        HashTree testPlan;
+        synchronized (this) {
+            testPlan = cache.get(key);
+        }
+        if (testPlan != null) {
+            hitCounter.increment();
+        } else {
+            missCounter.increment();
+            try (InputStream in = fileService.openFile(fileId)) {
+                if (in == null) {
+                    MSException.throwException(Translator.get("file_cannot_be_null"));
+                }
+                testPlan = jMeterService.loadHashTree(in);
+            } catch (IOException e) {
+                MSException.throwException(e);
+            }
+            synchronized (this) {
+                cache.put(key, testPlan);
+            }
+        }
+        return cloneTree(testPlan);
+    }
+
+    private synchronized int size() {
+        return cache.size();
+    }
+
+    private HashTree cloneTree(HashTree testPlan) {
+        TreeCloner cloner = new TreeCloner(false);
+        testPlan.traverse(cloner);
+        return cloner.getClonedTree();
+    }
+}
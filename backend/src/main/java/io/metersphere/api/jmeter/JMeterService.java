@@ -1,5 +1,7 @@
 package io.metersphere.api.jmeter;
 
+import io.metersphere.api.service.APIReportService;
+import io.metersphere.commons.constants.APITestStatus;
 import io.metersphere.commons.constants.ApiRunMode;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.LogUtil;
@@ -13,34 +15,83 @@ import org.apache.jmeter.visualizers.backend.BackendListener;
 import org.apache.jorphan.collections.HashTree;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class JMeterService {
 
     @Resource
     private JmeterProperties jmeterProperties;
+    @Resource
+    private APIReportService apiReportService;
+
+    private ThreadPoolExecutor executor;
 
-    public void run(String testId, String debugReportId, InputStream is) {
+    /**
+     * JMeter 的属性是全局静态的，只在启动时加载一次，执行时不再重复加载
+     */
+    @PostConstruct
+    public void init() {
         String JMETER_HOME = getJmeterHome();
 
         String JMETER_PROPERTIES = JMETER_HOME + "/bin/jmeter.properties";
         JMeterUtils.loadJMeterProperties(JMETER_PROPERTIES);
         JMeterUtils.setJMeterHome(JMETER_HOME);
+
+        JmeterProperties.Api api = jmeterProperties.getApi();
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(api.getMaxConcurrency(), api.getMaxConcurrency(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(api.getQueueCapacity()),
+                r -> new Thread(r, "api-test-runner-" + threadIndex.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public HashTree loadHashTree(InputStream is) {
         try {
             Object scriptWrapper = SaveService.loadElement(is);
-            HashTree testPlan = getHashTree(scriptWrapper);
-            addBackendListener(testId, debugReportId, testPlan);
-
-            LocalRunner runner = new LocalRunner(testPlan);
-            runner.run();
+            return getHashTree(scriptWrapper);
         } catch (Exception e) {
             LogUtil.error(e.getMessage(), e);
             MSException.throwException(Translator.get("api_load_script_error"));
         }
+        return null;
+    }
+
+    /**
+     * 提交接口测试到执行队列，在队列中等待时报告状态为 Queued，队列已满时为 Rejected
+     *
+     * @return 是否已被接受执行
+     */
+    public boolean run(String testId, String reportId, boolean debug, HashTree testPlan) {
+        addBackendListener(testId, debug ? reportId : null, testPlan);
+
+        ApiTestTask task = new ApiTestTask(reportId, testPlan);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LogUtil.error("API test queue is full, reject test: " + testId);
+            apiReportService.updateStatus(reportId, APITestStatus.Rejected, Translator.get("api_test_queue_full"));
+            return false;
+        }
+        // 调试报告保持 Debug 状态
+        if (!debug) {
+            task.markQueued();
+        }
+        return true;
     }
 
     private String getJmeterHome() {
@@ -76,4 +127,46 @@ public class JMeterService {
         backendListener.setClassname(APIBackendListenerClient.class.getCanonicalName());
         testPlan.add(testPlan.getArray()[0], backendListener);
     }
+
+    /**
+     * 提交后仍在队列中的任务标记为 Queued，开始执行时改回 Running；
+     * 两者在任务上加锁，开始执行一定在标记 Queued 之后，不会出现执行中仍为 Queued
+     */
+    private class ApiTestTask implements Runnable {
+        private final String reportId;
+        private final HashTree testPlan;
+        private boolean started;
+        private boolean queued;
+
+        ApiTestTask(String reportId, HashTree testPlan) {
+            this.reportId = reportId;
+            this.testPlan = testPlan;
+        }
+
+        synchronized void markQueued() {
+            if (!started && executor.getQueue().contains(this)) {
+                queued = true;
+                apiReportService.updateStatus(reportId, APITestStatus.Queued, null);
+            }
+        }
+
+        private synchronized void markStarted() {
+            started = true;
+            if (queued) {
+                apiReportService.updateStatus(reportId, APITestStatus.Running, null);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                markStarted();
+                // 每次执行使用独立的引擎，变量保存在 JMeter 线程自己的上下文中
+                LocalRunner runner = new LocalRunner(testPlan);
+                runner.run();
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+            }
+        }
+    }
 }
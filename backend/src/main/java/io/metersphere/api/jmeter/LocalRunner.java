@@ -1,8 +1,7 @@
 package io.metersphere.api.jmeter;
 
-import org.apache.jmeter.engine.JMeterEngine;
-import org.apache.jmeter.engine.JMeterEngineException;
 import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jorphan.collections.HashTree;
 
 public class LocalRunner {
@@ -12,13 +11,19 @@ public class LocalRunner {
         this.jmxTree = jmxTree;
     }
 
+    /**
+     * 在当前线程中同步执行，并发由 JMeterService 的线程池控制
+     */
     public void run() {
-        JMeterEngine engine = new StandardJMeterEngine();
+        StandardJMeterEngine engine = new StandardJMeterEngine();
         engine.configure(jmxTree);
         try {
-            engine.runTest();
-        } catch (JMeterEngineException e) {
+            engine.run();
+        } catch (RuntimeException e) {
             engine.stopTest(true);
+            throw e;
+        } finally {
+            JMeterContextService.removeContext();
         }
     }
 }
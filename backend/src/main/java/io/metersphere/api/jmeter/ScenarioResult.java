@@ -22,6 +22,9 @@ public class ScenarioResult {
 
     private int passAssertions = 0;
 
+    // 超出保留条数、只计入统计的成功请求数
+    private int omittedRequests = 0;
+
     private final List<RequestResult> requestResults = new ArrayList<>();
 
     public void addResponseTime(long time) {
@@ -43,4 +46,8 @@ public class ScenarioResult {
     public void addPassAssertions(int count) {
         this.passAssertions += count;
     }
+
+    public void addOmittedRequests() {
+        this.omittedRequests++;
+    }
 }
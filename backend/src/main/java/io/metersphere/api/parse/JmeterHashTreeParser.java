@@ -0,0 +1,112 @@
+package io.metersphere.api.parse;
+
+import io.metersphere.commons.utils.ScriptEngineUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.config.Argument;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.http.sampler.HTTPSamplerProxy;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.collections.HashTree;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 处理 mock 数据，直接作用于已加载的 HashTree，不再重复解析 xml
+ */
+public class JmeterHashTreeParser {
+
+    public static void parse(HashTree hashTree) {
+        for (Object key : hashTree.list()) {
+            if (key instanceof TestElement && ((TestElement) key).isEnabled()) {
+                if (key instanceof Arguments) {
+                    processArguments((Arguments) key);
+                } else if (key instanceof HTTPSamplerProxy) {
+                    processHttpSamplerProxy((HTTPSamplerProxy) key);
+                }
+            }
+            parse(hashTree.getTree(key));
+        }
+    }
+
+    private static void processHttpSamplerProxy(HTTPSamplerProxy sampler) {
+        processArguments(sampler.getArguments());
+        String path = sampler.getPath();
+        if (StringUtils.isNotBlank(path)) {
+            sampler.setPath(calculatePath(path));
+        }
+    }
+
+    private static void processArguments(Arguments arguments) {
+        if (arguments == null) {
+            return;
+        }
+        for (int i = 0; i < arguments.getArgumentCount(); i++) {
+            Argument argument = arguments.getArgument(i);
+            if (StringUtils.isNotBlank(argument.getValue())) {
+                argument.setValue(ScriptEngineUtils.calculate(argument.getValue()));
+            }
+        }
+    }
+
+    private static String calculatePath(String path) {
+        Map<String, String> parser = parserUrl(path);
+        String url = parser.get("URL");
+        String params = parser.keySet().stream().filter(k -> !"URL".equals(k)).reduce("?", (u, k) -> {
+            String v = parser.get(k);
+            if (!StringUtils.equals("?", u)) {
+                u += "&";
+            }
+            u += k + "=" + ScriptEngineUtils.calculate(v);
+            return u;
+        });
+        return url + params;
+    }
+
+    private static Map<String, String> parserUrl(String url) {
+//		传递的URL参数
+        Map<String, String> strUrlParas = new HashMap<>();
+
+        String strUrl;
+        String strUrlParams;
+
+
+//		解析访问地址
+        if (url.contains("?")) {
+            String[] strUrlPatten = url.split("\\?");
+            strUrl = strUrlPatten[0];
+            strUrlParams = strUrlPatten[1];
+
+        } else {
+            strUrl = url;
+            strUrlParams = url;
+        }
+
+        strUrlParas.put("URL", strUrl);
+//		解析参数
+        String[] params = null;
+
+        if (strUrlParams.contains("&")) {
+            params = strUrlParams.split("&");
+        } else {
+            params = new String[]{strUrlParams};
+        }
+
+//		保存参数到参数容器
+        for (String p : params) {
+            if (p.contains("=")) {
+                String[] param = p.split("=");
+                if (param.length == 1) {
+                    strUrlParas.put(param[0], "");
+                } else {
+
+                    String key = param[0];
+                    String value = param[1];
+
+                    strUrlParas.put(key, value);
+                }
+            }
+        }
+        return strUrlParas;
+    }
+}
@@ -109,6 +109,15 @@ public class APIReportService {
         return report.getId();
     }
 
+    public void updateStatus(String reportId, APITestStatus status, String description) {
+        ApiTestReport report = new ApiTestReport();
+        report.setId(reportId);
+        report.setStatus(status.name());
+        report.setDescription(description);
+        report.setUpdateTime(System.currentTimeMillis());
+        apiTestReportMapper.updateByPrimaryKeySelective(report);
+    }
+
     public String createDebugReport(ApiTest test) {
         ApiTestReport report = buildReport(test, ReportTriggerMode.MANUAL.name(), APITestStatus.Debug.name());
         apiTestReportMapper.insert(report);
@@ -5,10 +5,11 @@ import io.github.ningyu.jmeter.plugin.dubbo.sample.ProviderService;
 import io.metersphere.api.dto.*;
 import io.metersphere.api.dto.parse.ApiImport;
 import io.metersphere.api.dto.scenario.request.dubbo.RegistryCenter;
+import io.metersphere.api.jmeter.JMeterScriptCache;
 import io.metersphere.api.jmeter.JMeterService;
 import io.metersphere.api.parse.ApiImportParser;
 import io.metersphere.api.parse.ApiImportParserFactory;
-import io.metersphere.api.parse.JmeterDocumentParser;
+import io.metersphere.api.parse.JmeterHashTreeParser;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.ApiTestFileMapper;
 import io.metersphere.base.mapper.ApiTestMapper;
@@ -29,6 +30,7 @@ import io.metersphere.service.ScheduleService;
 import io.metersphere.track.service.TestCaseService;
 import org.apache.dubbo.common.URL;
 import org.apache.dubbo.common.constants.CommonConstants;
+import org.apache.jorphan.collections.HashTree;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
@@ -36,7 +38,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -57,6 +58,8 @@ public class APITestService {
     @Resource
     private JMeterService jMeterService;
     @Resource
+    private JMeterScriptCache jMeterScriptCache;
+    @Resource
     private APIReportService apiReportService;
     @Resource
     private ScheduleService scheduleService;
@@ -148,10 +151,9 @@ public class APITestService {
         if (file == null) {
             MSException.throwException(Translator.get("file_cannot_be_null"));
         }
-        byte[] bytes = fileService.loadFileAsBytes(file.getFileId());
-        // 解析 xml 处理 mock 数据
-        bytes = JmeterDocumentParser.parse(bytes);
-        InputStream is = new ByteArrayInputStream(bytes);
+        HashTree testPlan = jMeterScriptCache.getTestPlan(file.getFileId());
+        // 处理 mock 数据
+        JmeterHashTreeParser.parse(testPlan);
 
         APITestResult apiTest = get(request.getId());
         if (SessionUtils.getUser() == null) {
@@ -160,7 +162,9 @@ public class APITestService {
         String reportId = apiReportService.create(apiTest, request.getTriggerMode());
         changeStatus(request.getId(), APITestStatus.Running);
 
-        jMeterService.run(request.getId(), null, is);
+        if (!jMeterService.run(request.getId(), reportId, false, testPlan)) {
+            changeStatus(request.getId(), APITestStatus.Error);
+        }
         return reportId;
     }
 
@@ -342,17 +346,17 @@ public class APITestService {
         }
         String reportId = apiReportService.createDebugReport(apiTest);
 
-        InputStream is = null;
-        try {
-            byte[] bytes = file.getBytes();
-            // 解析 xml 处理 mock 数据
-            bytes = JmeterDocumentParser.parse(bytes);
-            is = new ByteArrayInputStream(bytes);
+        HashTree testPlan = null;
+        try (InputStream is = file.getInputStream()) {
+            testPlan = jMeterService.loadHashTree(is);
         } catch (IOException e) {
             LogUtil.error(e);
+            MSException.throwException(Translator.get("api_load_script_error"));
         }
+        // 处理 mock 数据
+        JmeterHashTreeParser.parse(testPlan);
 
-        jMeterService.run(request.getId(), reportId, is);
+        jMeterService.run(request.getId(), reportId, true, testPlan);
         return reportId;
     }
 
@@ -0,0 +1,20 @@
+package io.metersphere.base.domain;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class FileBlob implements Serializable {
+    private String hash;
+
+    private Long size;
+
+    private Integer refCount;
+
+    private String storage;
+
+    private Long createTime;
+
+    private static final long serialVersionUID = 1L;
+}
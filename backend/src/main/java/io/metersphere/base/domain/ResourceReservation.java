@@ -0,0 +1,20 @@
+package io.metersphere.base.domain;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class ResourceReservation implements Serializable {
+    private String reportId;
+
+    private String node;
+
+    private String testResourcePoolId;
+
+    private Integer threadNum;
+
+    private Long createTime;
+
+    private static final long serialVersionUID = 1L;
+}
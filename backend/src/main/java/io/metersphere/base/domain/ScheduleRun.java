@@ -0,0 +1,32 @@
+package io.metersphere.base.domain;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class ScheduleRun implements Serializable {
+    private String id;
+
+    private String jobName;
+
+    private String jobGroup;
+
+    private String jobClass;
+
+    private String resourceId;
+
+    private String userId;
+
+    private String expression;
+
+    private String status;
+
+    private Long fireTime;
+
+    private Long availableTime;
+
+    private Long startTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,34 @@
+package io.metersphere.base.domain;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class TestCaseImportTask implements Serializable {
+    private String id;
+
+    private String projectId;
+
+    private String userId;
+
+    private String status;
+
+    private Integer readCount;
+
+    private Integer importCount;
+
+    private Integer errorCount;
+
+    private Long startTime;
+
+    private Long endTime;
+
+    private Long updateTime;
+
+    private String message;
+
+    private String response;
+
+    private static final long serialVersionUID = 1L;
+}
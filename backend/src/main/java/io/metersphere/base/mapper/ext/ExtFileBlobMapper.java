@@ -0,0 +1,26 @@
+package io.metersphere.base.mapper.ext;
+
+import io.metersphere.base.domain.FileBlob;
+import org.apache.ibatis.annotations.Param;
+
+public interface ExtFileBlobMapper {
+    int insertIgnore(FileBlob fileBlob);
+
+    int incrementRef(@Param("hash") String hash);
+
+    int decrementRef(@Param("hash") String hash);
+
+    FileBlob selectBlob(@Param("hash") String hash);
+
+    int deleteBlob(@Param("hash") String hash);
+
+    int insertContentPart(@Param("hash") String hash, @Param("part") int part, @Param("content") byte[] content);
+
+    byte[] selectContentPart(@Param("hash") String hash, @Param("part") int part);
+
+    int deleteContent(@Param("hash") String hash);
+
+    String selectContentHash(@Param("fileId") String fileId);
+
+    int updateContentHash(@Param("fileId") String fileId, @Param("hash") String hash);
+}
@@ -1,6 +1,7 @@
 package io.metersphere.base.mapper.ext;
 
 import io.metersphere.base.domain.Issues;
+import io.metersphere.track.dto.TestCaseIssuesDTO;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
@@ -8,4 +9,6 @@ import java.util.List;
 public interface ExtIssuesMapper {
 
     List<Issues> getIssues(@Param("caseId") String caseId, @Param("platform") String platform);
+
+    List<TestCaseIssuesDTO> getIssuesByCaseIds(@Param("caseIds") List<String> caseIds);
 }
@@ -0,0 +1,15 @@
+package io.metersphere.base.mapper.ext;
+
+import io.metersphere.base.domain.LoadTestReportLog;
+import io.metersphere.dto.LogPartDTO;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
+
+public interface ExtLoadTestReportLogMapper {
+    List<LogPartDTO> selectPartLength(@Param("reportId") String reportId, @Param("resourceId") String resourceId);
+
+    void selectContent(@Param("reportId") String reportId, @Param("resourceId") String resourceId,
+                       @Param("fromPart") long fromPart, ResultHandler<LoadTestReportLog> handler);
+}
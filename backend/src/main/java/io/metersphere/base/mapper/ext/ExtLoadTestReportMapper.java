@@ -2,6 +2,7 @@ package io.metersphere.base.mapper.ext;
 
 import io.metersphere.dto.DashboardTestDTO;
 import io.metersphere.dto.ReportDTO;
+import io.metersphere.dto.ReportStatusDTO;
 import io.metersphere.performance.controller.request.ReportRequest;
 import org.apache.ibatis.annotations.Param;
 
@@ -16,4 +17,6 @@ public interface ExtLoadTestReportMapper {
     List<DashboardTestDTO> selectDashboardTests(@Param("workspaceId") String workspaceId, @Param("startTimestamp") long startTimestamp);
 
     List<String> selectResourceId(@Param("reportId") String reportId);
+
+    ReportStatusDTO selectReportStatus(@Param("reportId") String reportId, @Param("reportKeys") List<String> reportKeys);
 }
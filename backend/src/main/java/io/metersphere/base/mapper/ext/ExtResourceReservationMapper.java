@@ -0,0 +1,21 @@
+package io.metersphere.base.mapper.ext;
+
+import io.metersphere.base.domain.ResourceReservation;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ExtResourceReservationMapper {
+    int insertBatch(@Param("reservations") List<ResourceReservation> reservations);
+
+    int deleteByReportId(@Param("reportId") String reportId);
+
+    List<ResourceReservation> selectAll();
+
+    String lockPool(@Param("poolId") String poolId);
+
+    int sumPoolThreadsForUpdate(@Param("poolId") String poolId);
+
+    List<ResourceReservation> sumNodeThreadsForUpdate(@Param("nodes") Collection<String> nodes);
+}
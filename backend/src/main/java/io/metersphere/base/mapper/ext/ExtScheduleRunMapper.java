@@ -0,0 +1,22 @@
+package io.metersphere.base.mapper.ext;
+
+import io.metersphere.base.domain.ScheduleRun;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+public interface ExtScheduleRunMapper {
+    int insertIgnore(ScheduleRun run);
+
+    int countPending(@Param("jobGroup") String jobGroup);
+
+    Long selectOldestPendingFireTime(@Param("jobGroup") String jobGroup, @Param("now") long now);
+
+    List<ScheduleRun> selectAvailable(@Param("jobGroup") String jobGroup, @Param("now") long now, @Param("limit") int limit);
+
+    int claim(@Param("id") String id, @Param("startTime") long startTime);
+
+    int deleteById(@Param("id") String id);
+
+    int deleteStaleRunning(@Param("startTime") long startTime);
+}
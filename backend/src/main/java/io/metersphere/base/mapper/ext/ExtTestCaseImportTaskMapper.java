@@ -0,0 +1,16 @@
+package io.metersphere.base.mapper.ext;
+
+import io.metersphere.base.domain.TestCaseImportTask;
+import org.apache.ibatis.annotations.Param;
+
+public interface ExtTestCaseImportTaskMapper {
+    int insert(TestCaseImportTask task);
+
+    int updateProgress(TestCaseImportTask task);
+
+    TestCaseImportTask selectById(@Param("id") String id);
+
+    int markStaleRunning(@Param("updateTime") long updateTime, @Param("endTime") long endTime, @Param("message") String message);
+
+    int deleteExpired(@Param("endTime") long endTime);
+}
@@ -3,10 +3,12 @@ package io.metersphere.base.mapper.ext;
 import io.metersphere.base.domain.TestCase;
 import io.metersphere.track.request.testcase.QueryTestCaseRequest;
 import io.metersphere.track.dto.TestCaseDTO;
+import io.metersphere.track.dto.TestCaseIdentityDTO;
 import io.metersphere.track.request.testcase.TestCaseBatchRequest;
 import org.apache.ibatis.annotations.Param;
 
 import java.util.List;
+import java.util.Map;
 
 public interface ExtTestCaseMapper {
 
@@ -20,4 +22,16 @@ public interface ExtTestCaseMapper {
 
     TestCase getMaxNumByProjectId(@Param("projectId") String projectId);
 
+    List<TestCaseIdentityDTO> getTestCaseIdentities(@Param("projectId") String projectId);
+
+    /**
+     * 把模块下用例路径的第 level 级替换为 name
+     */
+    int renameNodePath(@Param("nodeIds") List<String> nodeIds, @Param("level") int level, @Param("name") String name);
+
+    /**
+     * 按模块 ID -> 模块路径批量更新用例路径
+     */
+    int updateNodePath(@Param("nodePaths") Map<String, String> nodePaths);
+
 }
@@ -1,6 +1,7 @@
 package io.metersphere.base.mapper.ext;
 
 import io.metersphere.track.dto.TestCaseReportStatusResultDTO;
+import io.metersphere.track.dto.TestPlanCaseCountDTO;
 import io.metersphere.track.dto.TestPlanCaseDTO;
 import io.metersphere.track.request.testplancase.QueryTestPlanCaseRequest;
 import org.apache.ibatis.annotations.Param;
@@ -26,4 +27,6 @@ public interface ExtTestPlanTestCaseMapper {
     List<TestPlanCaseDTO> getPendingTestCases(@Param("request") QueryTestPlanCaseRequest request);
 
     List<String> getStatusByPlanId(String planId);
+
+    List<TestPlanCaseCountDTO> countByPlanIds(@Param("planIds") List<String> planIds);
 }
@@ -0,0 +1,17 @@
+package io.metersphere.commons.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 通知所有节点清除本地缓存，集群部署时替换为跨节点的实现
+ */
+public interface CacheEvictionChannel {
+
+    /**
+     * @param cacheName 缓存名称，只通知订阅了该缓存的监听
+     * @param key       为 null 时清除整个缓存
+     */
+    void publish(String cacheName, String key);
+
+    void subscribe(String cacheName, Consumer<String> listener);
+}
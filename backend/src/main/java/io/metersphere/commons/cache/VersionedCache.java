@@ -0,0 +1,138 @@
+package io.metersphere.commons.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 按 key 缓存从数据库加载的结果，修改数据后调用 {@link #evict(String)}
+ * <p>
+ * 在事务中清除时，事务内再读取不使用缓存（读到的是未提交的数据），事务结束后再清除一次并通过
+ * {@link CacheEvictionChannel} 通知所有节点；没有收到通知时按 ttl 过期
+ * <p>
+ * loader 返回 null 时不缓存，不存在的 key 不会占用缓存。条目数超过 maxSize 时先清除过期的条目，仍超出时任意淘汰一部分
+ * <p>
+ * 默认的 {@link LocalCacheEvictionChannel} 只通知本节点，集群部署且没有提供跨节点的实现时，其他节点上的修改最多在 ttl 后生效
+ */
+public class VersionedCache<V> {
+
+    private final String name;
+
+    private final long ttl;
+
+    private final int maxSize;
+
+    private final CacheEvictionChannel evictionChannel;
+
+    private final Map<String, Entry<V>> cache = new ConcurrentHashMap<>();
+
+    // 每次清除加一，加载期间发生过清除的结果不放入缓存
+    private final AtomicLong version = new AtomicLong();
+
+    // 绑定在修改过数据的事务上，记录清除过的 key，null 表示全部
+    private final Object dirtyKey = new Object();
+
+    public VersionedCache(String name, long ttl, int maxSize, CacheEvictionChannel evictionChannel) {
+        this.name = name;
+        this.ttl = ttl;
+        this.maxSize = maxSize;
+        this.evictionChannel = evictionChannel;
+        evictionChannel.subscribe(name, this::evictLocal);
+    }
+
+    public V get(String key, Function<String, V> loader) {
+        long now = System.currentTimeMillis();
+        boolean dirty = isDirty(key);
+        Entry<V> entry = cache.get(key);
+        if (!dirty && entry != null && entry.expireTime > now) {
+            return entry.value;
+        }
+        long loadVersion = version.get();
+        V value = loader.apply(key);
+        if (value != null && !dirty && version.get() == loadVersion) {
+            cache.put(key, new Entry<>(value, now + ttl));
+            if (cache.size() > maxSize) {
+                shrink(now);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param key 为 null 时清除全部
+     */
+    @SuppressWarnings("unchecked")
+    public void evict(String key) {
+        evictLocal(key);
+        // 事务结束后再清除和通知，避免其他请求在提交前重新加载旧数据
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            Set<String> dirtyKeys = (Set<String>) TransactionSynchronizationManager.getResource(dirtyKey);
+            if (dirtyKeys == null) {
+                dirtyKeys = new HashSet<>();
+                TransactionSynchronizationManager.bindResource(dirtyKey, dirtyKeys);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        Set<String> keys = (Set<String>) TransactionSynchronizationManager.unbindResourceIfPossible(dirtyKey);
+                        if (keys != null) {
+                            keys.forEach(VersionedCache.this::evictAndPublish);
+                        }
+                    }
+                });
+            }
+            dirtyKeys.add(key);
+        } else {
+            evictionChannel.publish(name, key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean isDirty(String key) {
+        Set<String> dirtyKeys = (Set<String>) TransactionSynchronizationManager.getResource(dirtyKey);
+        return dirtyKeys != null && (dirtyKeys.contains(null) || dirtyKeys.contains(key));
+    }
+
+    private void evictAndPublish(String key) {
+        evictLocal(key);
+        evictionChannel.publish(name, key);
+    }
+
+    private void evictLocal(String key) {
+        version.incrementAndGet();
+        if (key == null) {
+            cache.clear();
+        } else {
+            cache.remove(key);
+        }
+    }
+
+    /**
+     * 清除过期的条目，仍超出时淘汰到 maxSize 的 90%，避免之后每次放入都遍历
+     */
+    private void shrink(long now) {
+        cache.values().removeIf(entry -> entry.expireTime <= now);
+        int target = maxSize - maxSize / 10;
+        Iterator<String> iterator = cache.keySet().iterator();
+        while (cache.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expireTime;
+
+        Entry(V value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+    }
+}
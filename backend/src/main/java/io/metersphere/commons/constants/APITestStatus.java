@@ -1,5 +1,5 @@
 package io.metersphere.commons.constants;
 
 public enum APITestStatus {
-    Saved, Starting, Running, Reporting, Completed, Debug, Error, Success
+    Saved, Starting, Queued, Running, Reporting, Completed, Debug, Error, Success, Rejected
 }
@@ -0,0 +1,28 @@
+package io.metersphere.commons.constants;
+
+public enum CompressCodec {
+    NONE((byte) 0), GZIP((byte) 1), LZ4((byte) 2);
+
+    // 写在数据头中的编号，不能修改
+    private final byte id;
+
+    CompressCodec(byte id) {
+        this.id = id;
+    }
+
+    public byte id() {
+        return this.id;
+    }
+
+    /**
+     * 编号无法识别时返回 null
+     */
+    public static CompressCodec valueOf(byte id) {
+        for (CompressCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
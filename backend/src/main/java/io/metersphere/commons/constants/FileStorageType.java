@@ -0,0 +1,5 @@
+package io.metersphere.commons.constants;
+
+public enum FileStorageType {
+    DB, LOCAL
+}
@@ -0,0 +1,5 @@
+package io.metersphere.commons.constants;
+
+public enum ImportTaskStatus {
+    Running, Completed, Error
+}
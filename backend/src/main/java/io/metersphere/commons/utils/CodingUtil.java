@@ -17,6 +17,17 @@ public class CodingUtil {
 
     private static final String UTF_8 = "UTF-8";
 
+    private static final String AES_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    // Cipher 不是线程安全的，创建的代价较高，每个线程复用一个，每次使用前重新 init
+    private static final ThreadLocal<Cipher> AES_CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(AES_TRANSFORMATION);
+        } catch (Exception e) {
+            throw new RuntimeException("AES cipher init error:", e);
+        }
+    });
+
     private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
 
     /**
@@ -113,7 +124,7 @@ public class CodingUtil {
             byte[] raw = secretKey.getBytes(UTF_8);
             SecretKeySpec secretKeySpec = new SecretKeySpec(raw, "AES");
             // "算法/模式/补码方式" ECB
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = AES_CIPHER.get();
             IvParameterSpec iv1 = new IvParameterSpec(iv.getBytes());
             cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, iv1);
             byte[] encrypted = cipher.doFinal(src.getBytes(UTF_8));
@@ -139,7 +150,7 @@ public class CodingUtil {
         try {
             byte[] raw = secretKey.getBytes(UTF_8);
             SecretKeySpec secretKeySpec = new SecretKeySpec(raw, "AES");
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            Cipher cipher = AES_CIPHER.get();
             IvParameterSpec iv1 = new IvParameterSpec(iv.getBytes());
             cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, iv1);
             byte[] encrypted1 = Base64.decodeBase64(src);
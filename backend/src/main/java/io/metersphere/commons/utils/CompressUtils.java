@@ -1,123 +1,170 @@
 package io.metersphere.commons.utils;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import io.metersphere.commons.constants.CompressCodec;
+import io.metersphere.commons.exception.MSException;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
 import java.util.zip.*;
 
 public class CompressUtils {
+    // 数据头：3 字节标识 + 1 字节压缩方式 + 4 字节原始长度（未知时为 -1）
+    private static final byte[] MAGIC = {'M', 'S', 'C'};
+    private static final int HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static final CompressCodec DEFAULT_CODEC = CompressCodec.LZ4;
 
-    /***
-     * Zip压缩
+    /**
+     * 按默认方式压缩，结果带数据头
      *
      * @param data 待压缩数据
      * @return 压缩后数据
      */
-    public static Object zip(Object data) {
+    public static Object encode(Object data) {
         if (!(data instanceof byte[])) {
             return data;
         }
+        return encode((byte[]) data, DEFAULT_CODEC);
+    }
 
-        byte[] temp = (byte[]) data;
-        byte[] b = (byte[]) data;
-        try {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            ZipOutputStream zip = new ZipOutputStream(bos);
-            ZipEntry entry = new ZipEntry("zip");
-            entry.setSize(temp.length);
-            zip.putNextEntry(entry);
-            zip.write(temp);
-            zip.closeEntry();
-            zip.close();
-            b = bos.toByteArray();
-            bos.close();
-        } catch (Exception ex) {
-            LogUtil.error(ex);
+    public static byte[] encode(byte[] bytes, CompressCodec codec) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(HEADER_SIZE + bytes.length / 2 + 64);
+        try (OutputStream out = compressStream(bos, codec, bytes.length)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        return b;
+        return bos.toByteArray();
     }
 
-    /***
-     * Zip解压
+    /**
+     * 解压，根据数据头选择解压方式，兼容 zip/gzip 的旧数据，无法识别时原样返回；数据头中的压缩方式未知时抛出 MSException
      *
      * @param data 待解压数据
      * @return 解压后数据
      */
-    public static Object unzip(Object data) {
+    public static Object decode(Object data) {
         if (!(data instanceof byte[])) {
             return data;
         }
-        byte[] temp = (byte[]) data;
-        byte[] b = (byte[]) data;
+        byte[] bytes = (byte[]) data;
+        if (bytes.length == 0) {
+            return bytes;
+        }
         try {
-            ByteArrayInputStream bis = new ByteArrayInputStream(temp);
-            ZipInputStream zip = new ZipInputStream(bis);
-            while (zip.getNextEntry() != null) {
-                byte[] buf = new byte[1024];
-                int num;
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                while ((num = zip.read(buf, 0, buf.length)) != -1) {
-                    baos.write(buf, 0, num);
+            if (hasHeader(bytes)) {
+                int length = readInt(bytes, 4);
+                CompressCodec codec = codecOf(bytes[3]);
+                InputStream in = codecInputStream(new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE), codec);
+                if (length >= 0) {
+                    // 原始长度已知，只分配一次
+                    byte[] result = new byte[length];
+                    IOUtils.readFully(in, result);
+                    return result;
                 }
-                b = baos.toByteArray();
-                baos.flush();
-                baos.close();
+                return toByteArray(in, bytes.length * 2);
             }
-            zip.close();
-            bis.close();
-        } catch (Exception ex) {
-            LogUtil.error(ex);
+            return toByteArray(decompressStream(new ByteArrayInputStream(bytes)), bytes.length * 4);
+        } catch (IOException e) {
+            LogUtil.error(e);
+            return data;
         }
-        return b;
     }
 
     /**
-     * GZip压缩
+     * 写入数据头后返回压缩流，关闭时同时关闭 out
      *
-     * @param data 待压缩数据
-     * @return 压缩后数
+     * @param length 原始数据长度，未知时为 -1
      */
-    public static Object compress(Object data) {
-        if (!(data instanceof byte[])) {
-            return data;
+    public static OutputStream compressStream(OutputStream out, CompressCodec codec, int length) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[3] = codec.id();
+        writeInt(header, 4, length);
+        out.write(header);
+        switch (codec) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case LZ4:
+                return new LZ4BlockOutputStream(out, BUFFER_SIZE);
+            default:
+                return out;
         }
-        byte[] bytes = (byte[]) data;
-        try (ByteArrayOutputStream obj = new ByteArrayOutputStream(); GZIPOutputStream gzip = new GZIPOutputStream(obj)) {
-            gzip.write(bytes);
-            gzip.flush();
-            gzip.finish();
-            return obj.toByteArray();
-        } catch (Exception e) {
-            LogUtil.error(e);
-            return data;
+    }
+
+    public static OutputStream compressStream(OutputStream out) throws IOException {
+        return compressStream(out, DEFAULT_CODEC, -1);
+    }
+
+    /**
+     * 根据数据头返回解压流，兼容 zip/gzip 的旧数据，无法识别时返回原始内容
+     */
+    public static InputStream decompressStream(InputStream in) throws IOException {
+        BufferedInputStream bis = new BufferedInputStream(in, BUFFER_SIZE);
+        bis.mark(HEADER_SIZE);
+        byte[] header = new byte[HEADER_SIZE];
+        int n = IOUtils.read(bis, header);
+        if (n == HEADER_SIZE && hasHeader(header)) {
+            return codecInputStream(bis, codecOf(header[3]));
+        }
+        bis.reset();
+        if (n >= 4 && header[0] == 'P' && header[1] == 'K' && header[2] == 3 && header[3] == 4) {
+            ZipInputStream zip = new ZipInputStream(bis);
+            zip.getNextEntry();
+            return zip;
+        }
+        if (n >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b) {
+            return new GZIPInputStream(bis, BUFFER_SIZE);
         }
+        return bis;
     }
 
     /**
-     * GZip解压
-     *
-     * @param data 待解压数据
-     * @return 解压后数据
+     * 数据头中的压缩方式无法识别时抛出 MSException
      */
-    public static Object decompress(Object data) {
-        if (!(data instanceof byte[])) {
-            return data;
+    private static CompressCodec codecOf(byte id) {
+        CompressCodec codec = CompressCodec.valueOf(id);
+        if (codec == null) {
+            MSException.throwException("数据头中的压缩方式无法识别：" + id + "，数据可能已损坏或由更高版本写入");
         }
-        byte[] bytes = (byte[]) data;
-        if (bytes.length == 0) {
-            return bytes;
+        return codec;
+    }
+
+    private static InputStream codecInputStream(InputStream in, CompressCodec codec) throws IOException {
+        switch (codec) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case LZ4:
+                return new LZ4BlockInputStream(in);
+            default:
+                return in;
         }
-        try (GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(bytes)); ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = gis.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
-            }
-            baos.flush();
-            return baos.toByteArray();
-        } catch (Exception e) {
-            LogUtil.error(e);
-            return data;
+    }
+
+    private static boolean hasHeader(byte[] bytes) {
+        return bytes.length >= HEADER_SIZE && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1] && bytes[2] == MAGIC[2];
+    }
+
+    private static byte[] toByteArray(InputStream in, int sizeHint) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(sizeHint);
+            IOUtils.copy(input, bos, BUFFER_SIZE);
+            return bos.toByteArray();
         }
     }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+    }
 }
@@ -0,0 +1,21 @@
+package io.metersphere.config;
+
+import io.metersphere.commons.cache.CacheEvictionChannel;
+import io.metersphere.commons.cache.LocalCacheEvictionChannel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 默认只通知本节点。集群部署时提供其他实现，例如通过消息队列广播；
+     * 没有提供时各节点只清除自己的缓存，其他节点上的修改最多在各缓存的 ttl 后生效
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheEvictionChannel cacheEvictionChannel() {
+        return new LocalCacheEvictionChannel();
+    }
+}
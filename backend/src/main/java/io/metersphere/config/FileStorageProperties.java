@@ -0,0 +1,28 @@
+package io.metersphere.config;
+
+import io.metersphere.commons.constants.FileStorageType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = FileStorageProperties.FILE_STORAGE_PREFIX)
+@Getter
+@Setter
+public class FileStorageProperties {
+    public static final String FILE_STORAGE_PREFIX = "file.storage";
+
+    /**
+     * 新上传文件的存储方式，已保存的文件按保存时的方式读取
+     */
+    private FileStorageType type = FileStorageType.DB;
+
+    /**
+     * 数据库存储时每个分块的字节数
+     */
+    private int chunkSize = 1024 * 1024;
+
+    /**
+     * 本地存储的目录
+     */
+    private String localDir = "/opt/metersphere/data/file";
+}
@@ -16,4 +16,65 @@ public class JmeterProperties {
 
     private String home;
 
+    private JmeterProperties.Api api = new JmeterProperties.Api();
+
+    private JmeterProperties.Node node = new JmeterProperties.Node();
+
+    @Getter
+    @Setter
+    public static class Api {
+        /**
+         * 每个请求在报告中最多保留的成功请求条数，超出部分只计入统计不保留明细
+         */
+        private int maxRetainedRequests = 100;
+
+        /**
+         * 每个请求在报告中最多保留的失败请求条数（包括子请求失败的请求），超出部分只计入统计不保留明细
+         */
+        private int maxRetainedFailures = 100;
+
+        /**
+         * 同时执行的接口测试数量
+         */
+        private int maxConcurrency = 10;
+
+        /**
+         * 等待执行的接口测试数量上限，超出后拒绝执行
+         */
+        private int queueCapacity = 100;
+
+        /**
+         * 缓存已解析脚本的数量，0 表示不缓存
+         */
+        private int scriptCacheSize = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Node {
+        /**
+         * 同时向节点发送启动/停止请求的线程数
+         */
+        private int dispatchConcurrency = 20;
+
+        /**
+         * 连接节点的超时时间，毫秒
+         */
+        private int connectTimeout = 4000;
+
+        /**
+         * 从连接池获取连接的超时时间，毫秒
+         */
+        private int connectionRequestTimeout = 10 * 1000;
+
+        /**
+         * 单个节点启动测试的超时时间，毫秒
+         */
+        private int startTimeout = 60 * 1000;
+
+        /**
+         * 单个节点停止测试的超时时间，毫秒
+         */
+        private int stopTimeout = 10 * 1000;
+    }
 }
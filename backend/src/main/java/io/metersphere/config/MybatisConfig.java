@@ -41,8 +41,8 @@ public class MybatisConfig {
     public MybatisInterceptor dbInterceptor() {
         MybatisInterceptor interceptor = new MybatisInterceptor();
         List<MybatisInterceptorConfig> configList = new ArrayList<>();
-        configList.add(new MybatisInterceptorConfig(FileContent.class, "file", CompressUtils.class, "zip", "unzip"));
-        configList.add(new MybatisInterceptorConfig(ApiTestReportDetail.class, "content", CompressUtils.class, "compress", "decompress"));
+        configList.add(new MybatisInterceptorConfig(FileContent.class, "file", CompressUtils.class, "encode", "decode"));
+        configList.add(new MybatisInterceptorConfig(ApiTestReportDetail.class, "content", CompressUtils.class, "encode", "decode"));
         configList.add(new MybatisInterceptorConfig(TestResource.class, "configuration"));
         interceptor.setInterceptorConfigList(configList);
         return interceptor;
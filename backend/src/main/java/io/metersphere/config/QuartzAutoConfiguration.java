@@ -29,9 +29,12 @@ public class QuartzAutoConfiguration {
 
     private QuartzProperties properties;
 
-    public QuartzAutoConfiguration(ObjectProvider<DataSource> dataSourceProvider, QuartzProperties properties) {
+    private ScheduleProperties scheduleProperties;
+
+    public QuartzAutoConfiguration(ObjectProvider<DataSource> dataSourceProvider, QuartzProperties properties, ScheduleProperties scheduleProperties) {
         this.dataSource = dataSourceProvider.getIfAvailable();
         this.properties = properties;
+        this.scheduleProperties = scheduleProperties;
     }
 
     @Bean
@@ -80,7 +83,7 @@ public class QuartzAutoConfiguration {
         props.put("org.quartz.jobStore.isClustered", "true");
         props.put("org.quartz.jobStore.clusterCheckinInterval", "20000");
         props.put("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
-        props.put("org.quartz.threadPool.threadCount", "10");
+        props.put("org.quartz.threadPool.threadCount", String.valueOf(scheduleProperties.getThreadCount()));
         props.put("org.quartz.threadPool.threadPriority", "5");
         props.put("org.quartz.threadPool.threadsInheritContextClassLoaderOfInitializingThread", "true");
         schedulerFactoryBean.setQuartzProperties(props);
@@ -0,0 +1,45 @@
+package io.metersphere.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = ScheduleProperties.SCHEDULE_PREFIX)
+@Getter
+@Setter
+public class ScheduleProperties {
+    public static final String SCHEDULE_PREFIX = "schedule";
+
+    /**
+     * Quartz 线程数，定时任务只负责写入 schedule_run，不执行测试
+     */
+    private int threadCount = 10;
+
+    /**
+     * 每个分组在本节点同时执行的定时任务数量
+     */
+    private int defaultConcurrency = 5;
+
+    /**
+     * 按分组（如 API_TEST、PERFORMANCE_TEST）设置同时执行的数量，未设置的分组使用 defaultConcurrency
+     */
+    private Map<String, Integer> concurrency = new HashMap<>();
+
+    /**
+     * 每个分组等待执行的任务数量上限，超出后跳过本次执行
+     */
+    private int queueCapacity = 200;
+
+    /**
+     * 触发后延迟执行的最大毫秒数，同一个任务每次延迟相同的时间，0 表示不延迟
+     */
+    private long maxJitter = 0;
+
+    /**
+     * 执行中的记录超过该毫秒数仍未结束时视为所在节点已退出，删除后不再执行
+     */
+    private long runningTimeout = 3600000;
+}
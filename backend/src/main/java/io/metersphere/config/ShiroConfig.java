@@ -78,7 +78,10 @@ public class ShiroConfig implements EnvironmentAware {
     @Bean(name = "shiroDBRealm")
     @DependsOn("lifecycleBeanPostProcessor")
     public ShiroDBRealm getShiroDBRealm() {
-        return new ShiroDBRealm();
+        ShiroDBRealm shiroDBRealm = new ShiroDBRealm();
+        // 角色由 UserAuthorizationCache 缓存并在修改时清除，不使用 shiro 的缓存
+        shiroDBRealm.setAuthorizationCachingEnabled(false);
+        return shiroDBRealm;
     }
 
     @Bean(name = "lifecycleBeanPostProcessor")
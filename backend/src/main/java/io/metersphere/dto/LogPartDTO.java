@@ -0,0 +1,12 @@
+package io.metersphere.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LogPartDTO {
+    private Long part;
+    // content 的字节数
+    private Long length;
+}
@@ -0,0 +1,13 @@
+package io.metersphere.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ReportStatusDTO {
+    private String status;
+    private Long updateTime;
+    // 指定结果中最近一次写入的时间
+    private Long resultUpdateTime;
+}
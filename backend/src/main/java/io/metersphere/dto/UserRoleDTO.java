@@ -12,6 +12,8 @@ import java.util.List;
 public class UserRoleDTO {
 
     private String userId;
+    // 用户状态，和角色一起缓存供权限检查使用
+    private String status;
     private List<Role> roles;
     private List<UserRole> userRoles;
     private static final long serialVersionUID = 1L;
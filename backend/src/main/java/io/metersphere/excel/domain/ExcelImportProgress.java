@@ -0,0 +1,27 @@
+package io.metersphere.excel.domain;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 异步导入的进度，导入结束后 response 为导入结果
+ */
+@Getter
+@Setter
+public class ExcelImportProgress {
+    private String taskId;
+    private String status;
+    /**
+     * 已解析的行数
+     */
+    private Integer readCount;
+    /**
+     * 已写入的用例数，导入有错误时会回滚
+     */
+    private Integer importCount;
+    private Integer errorCount;
+    private Long startTime;
+    private Long endTime;
+    private String message;
+    private ExcelResponse response;
+}
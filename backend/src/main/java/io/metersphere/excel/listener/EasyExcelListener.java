@@ -7,7 +7,6 @@ import com.alibaba.excel.exception.ExcelAnalysisException;
 import com.alibaba.excel.util.StringUtils;
 import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.excel.domain.ExcelErrData;
-import io.metersphere.excel.domain.TestCaseExcelData;
 import io.metersphere.excel.utils.EasyExcelI18nTranslator;
 import io.metersphere.excel.utils.ExcelValidateHelper;
 import io.metersphere.i18n.Translator;
@@ -25,7 +24,12 @@ public abstract class EasyExcelListener<T> extends AnalysisEventListener<T> {
 
     protected EasyExcelI18nTranslator easyExcelI18nTranslator;
 
-    protected List<TestCaseExcelData> excelDataList = new ArrayList<>();
+    /**
+     * 已解析的行数和错误行数，异步导入时用于查询进度
+     */
+    protected volatile int readCount;
+
+    protected volatile int errorCount;
 
     /**
      * 每隔2000条存储数据库，然后清理list ，方便内存回收
@@ -69,10 +73,13 @@ public abstract class EasyExcelListener<T> extends AnalysisEventListener<T> {
                     Translator.get("number") + " " + rowIndex + " " + Translator.get("row") + Translator.get("error")
                             + "：" + errMsg);
             errList.add(excelErrData);
+            errorCount++;
         } else {
             list.add(t);
         }
 
+        readCount++;
+
         if (list.size() > BATCH_COUNT) {
             saveData();
             list.clear();
@@ -153,6 +160,14 @@ public abstract class EasyExcelListener<T> extends AnalysisEventListener<T> {
         return errList;
     }
 
+    public int getReadCount() {
+        return readCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
     public void close() {
         this.easyExcelI18nTranslator.resetExcelProperty();
     }
@@ -5,9 +5,11 @@ import com.alibaba.fastjson.JSONObject;
 import io.metersphere.base.domain.TestCaseWithBLOBs;
 import io.metersphere.commons.constants.TestCaseConstants;
 import io.metersphere.commons.utils.BeanUtils;
+import io.metersphere.commons.utils.CodingUtil;
 import io.metersphere.excel.domain.TestCaseExcelData;
 import io.metersphere.i18n.Translator;
-import io.metersphere.track.service.TestCaseService;
+import io.metersphere.track.dto.TestCaseIdentityDTO;
+import io.metersphere.track.service.TestCaseImportWriter;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
@@ -17,7 +19,7 @@ import java.util.stream.Collectors;
 
 public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
 
-    private TestCaseService testCaseService;
+    private TestCaseImportWriter testCaseImportWriter;
 
     private String projectId;
 
@@ -25,11 +27,30 @@ public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
 
     Set<String> userIds;
 
-    public TestCaseDataListener(TestCaseService testCaseService, String projectId, Set<String> testCaseNames, Set<String> userIds) {
-        this.testCaseService = testCaseService;
+    /**
+     * 项目中已有用例的字段摘要，前置条件为空的用例按不含前置条件的摘要查找
+     */
+    private Set<String> existKeys = new HashSet<>();
+
+    private Set<String> existKeysIgnorePrerequisite = new HashSet<>();
+
+    /**
+     * 已读取的用例，@Data 重写了 equals 和 hashCode 方法
+     */
+    private Set<TestCaseExcelData> excelDataSet = new HashSet<>();
+
+    public TestCaseDataListener(TestCaseImportWriter testCaseImportWriter, String projectId, List<TestCaseIdentityDTO> testCases, Set<String> userIds) {
+        this.testCaseImportWriter = testCaseImportWriter;
         this.projectId = projectId;
-        this.testCaseNames = testCaseNames;
         this.userIds = userIds;
+        this.testCaseNames = new HashSet<>();
+        testCases.forEach(testCase -> {
+            testCaseNames.add(testCase.getName());
+            existKeys.add(getKey(testCase.getName(), testCase.getNodePath(), testCase.getType(), testCase.getMaintainer(),
+                    testCase.getPriority(), testCase.getMethod(), testCase.getPrerequisite(), testCase.getStepsHash(), testCase.getRemarkHash()));
+            existKeysIgnorePrerequisite.add(getKey(testCase.getName(), testCase.getNodePath(), testCase.getType(), testCase.getMaintainer(),
+                    testCase.getPriority(), testCase.getMethod(), null, testCase.getStepsHash(), testCase.getRemarkHash()));
+        });
     }
 
     @Override
@@ -60,33 +81,28 @@ public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
         }
 
         if (testCaseNames.contains(data.getName())) {
-            TestCaseWithBLOBs testCase = new TestCaseWithBLOBs();
-            BeanUtils.copyBean(testCase, data);
-            testCase.setProjectId(projectId);
             String steps = getSteps(data);
-            testCase.setSteps(steps);
+            String stepsHash = CodingUtil.md5(steps);
+            String remarkHash = data.getRemark() == null ? null : CodingUtil.md5(data.getRemark());
 
-            boolean dbExist = testCaseService.exist(testCase);
-            boolean excelExist = false;
-
-            if (dbExist) {
-                // db exist
-                stringBuilder.append(Translator.get("test_case_already_exists_excel") + "：" + data.getName() + "; ");
+            boolean dbExist;
+            if (StringUtils.isNotBlank(data.getPrerequisite())) {
+                dbExist = existKeys.contains(getKey(data.getName(), data.getNodePath(), data.getType(), data.getMaintainer(),
+                        data.getPriority(), data.getMethod(), data.getPrerequisite(), stepsHash, remarkHash));
             } else {
-                // @Data 重写了 equals 和 hashCode 方法
-                excelExist = excelDataList.contains(data);
+                dbExist = existKeysIgnorePrerequisite.contains(getKey(data.getName(), data.getNodePath(), data.getType(), data.getMaintainer(),
+                        data.getPriority(), data.getMethod(), null, stepsHash, remarkHash));
             }
 
-            if (excelExist) {
-                // excel exist
+            if (dbExist || excelDataSet.contains(data)) {
+                // db exist or excel exist
                 stringBuilder.append(Translator.get("test_case_already_exists_excel") + "：" + data.getName() + "; ");
-            } else {
-                excelDataList.add(data);
             }
+            excelDataSet.add(data);
 
         } else {
             testCaseNames.add(data.getName());
-            excelDataList.add(data);
+            excelDataSet.add(data);
         }
         return stringBuilder.toString();
     }
@@ -94,7 +110,7 @@ public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
     @Override
     public void saveData() {
 
-        //无错误数据才插入数据
+        //无错误数据才插入数据，出现错误前已写入的数据在导入结束时回滚
         if (!errList.isEmpty()) {
             return;
         }
@@ -105,7 +121,7 @@ public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
                 .map(item -> this.convert2TestCase(item))
                 .collect(Collectors.toList());
 
-        testCaseService.saveImportData(result, projectId);
+        testCaseImportWriter.write(result);
 
     }
 
@@ -135,6 +151,19 @@ public class TestCaseDataListener extends EasyExcelListener<TestCaseExcelData> {
         return testCase;
     }
 
+    /**
+     * 用例字段的摘要，和数据库默认排序规则一样比较时忽略大小写和末尾空格，steps 和 remark 传入 MD5
+     */
+    private String getKey(String name, String nodePath, String type, String maintainer, String priority,
+                          String method, String prerequisite, String stepsHash, String remarkHash) {
+        StringBuilder key = new StringBuilder();
+        for (String field : new String[]{name, nodePath, type, maintainer, priority, method, prerequisite}) {
+            key.append(field == null ? "\u0001" : StringUtils.lowerCase(StringUtils.stripEnd(field, " "))).append('\u0000');
+        }
+        key.append(stepsHash).append('\u0000').append(remarkHash);
+        return CodingUtil.md5(key.toString());
+    }
+
     public String getSteps(TestCaseExcelData data) {
         JSONArray jsonArray = new JSONArray();
 
@@ -0,0 +1,241 @@
+package io.metersphere.health;
+
+import com.alibaba.fastjson.JSON;
+import io.metersphere.base.domain.TestResource;
+import io.metersphere.base.mapper.TestResourceMapper;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.config.KafkaProperties;
+import io.metersphere.dto.NodeDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 定时并行检查 kafka broker 和所有节点，缓存每个目标的状态和耗时
+ * <p>
+ * 运行测试、保存资源池时使用缓存的结果，缓存过期或上次检查失败时才同步检查一次
+ * <p>
+ * 定时任务只提交检查，不等待结果，不占用共享的调度线程；上次检查还没结束的目标本次跳过，超时的检查被取消
+ */
+@Component
+public class HealthMonitor {
+    public static final String TYPE_KAFKA = "kafka";
+    public static final String TYPE_NODE = "node";
+    private static final String NODE_STATUS_URL = "http://%s:%s/status";
+
+    @Value("${health.monitor.timeout:2000}")
+    private int timeout;
+
+    // 超过这个时间的结果不再使用，默认是检查间隔的 3 倍
+    @Value("${health.monitor.max-age:30000}")
+    private long maxAge;
+
+    @Value("${health.monitor.concurrency:10}")
+    private int concurrency;
+
+    @Resource
+    private KafkaProperties kafkaProperties;
+    @Resource
+    private TestResourceMapper testResourceMapper;
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, ProbeStatus> statusMap = new ConcurrentHashMap<>();
+
+    // 正在执行的检查，只在调度线程中访问
+    private final Map<String, RunningProbe> runningProbes = new HashMap<>();
+
+    private ExecutorService executor;
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "health-monitor-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory();
+        httpRequestFactory.setConnectionRequestTimeout(timeout);
+        httpRequestFactory.setConnectTimeout(timeout);
+        httpRequestFactory.setReadTimeout(timeout);
+        restTemplate = new RestTemplate(httpRequestFactory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${health.monitor.interval:10000}")
+    public void check() {
+        Map<String, Callable<ProbeStatus>> probes = new LinkedHashMap<>();
+        getKafkaServers().forEach(server -> probes.put(key(TYPE_KAFKA, server), () -> probeKafka(server)));
+        List<TestResource> resources = testResourceMapper.selectByExampleWithBLOBs(null);
+        resources.forEach(resource -> {
+            NodeDTO node = JSON.parseObject(resource.getConfiguration(), NodeDTO.class);
+            if (node != null) {
+                String target = node.getIp() + ":" + node.getPort();
+                probes.put(key(TYPE_NODE, target), () -> probeNode(node));
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, RunningProbe>> iterator = runningProbes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            RunningProbe running = iterator.next().getValue();
+            if (running.future.isDone()) {
+                iterator.remove();
+            } else if (now - running.startTime > timeout * 2L) {
+                // 每个检查都有自己的超时，这里只是兜底
+                running.future.cancel(true);
+                iterator.remove();
+            }
+        }
+        probes.forEach((key, probe) -> {
+            if (!runningProbes.containsKey(key)) {
+                runningProbes.put(key, new RunningProbe(executor.submit(probe), now));
+            }
+        });
+        // 已删除的节点和 broker 不再保留
+        statusMap.keySet().retainAll(probes.keySet());
+    }
+
+    /**
+     * 所有 broker 都可以连接时返回 true
+     */
+    public boolean isKafkaAvailable() {
+        List<String> servers = getKafkaServers();
+        if (servers.isEmpty()) {
+            return false;
+        }
+        return servers.stream().allMatch(server -> isUp(TYPE_KAFKA, server, () -> probeKafka(server)));
+    }
+
+    public boolean isNodeAvailable(NodeDTO node) {
+        return isUp(TYPE_NODE, node.getIp() + ":" + node.getPort(), () -> probeNode(node));
+    }
+
+    public Collection<ProbeStatus> getStatus() {
+        return statusMap.values();
+    }
+
+    public List<ProbeStatus> getStatus(String type) {
+        List<ProbeStatus> result = new ArrayList<>();
+        statusMap.values().forEach(status -> {
+            if (StringUtils.equals(type, status.getType())) {
+                result.add(status);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 最近一次检查的结果，没有检查过时返回 null
+     */
+    public ProbeStatus getStatus(String type, String target) {
+        return statusMap.get(key(type, target));
+    }
+
+    private boolean isUp(String type, String target, Callable<ProbeStatus> probe) {
+        ProbeStatus status = statusMap.get(key(type, target));
+        if (status != null && status.isUp() && System.currentTimeMillis() - status.getCheckTime() <= maxAge) {
+            return true;
+        }
+        // 没有结果、结果过期或上次失败时立即检查一次
+        try {
+            return probe.call().isUp();
+        } catch (Exception e) {
+            LogUtil.error(e);
+            return false;
+        }
+    }
+
+    private List<String> getKafkaServers() {
+        List<String> servers = new ArrayList<>();
+        for (String server : StringUtils.split(StringUtils.defaultString(kafkaProperties.getBootstrapServers()), ",")) {
+            if (StringUtils.isNotBlank(server)) {
+                servers.add(server.trim());
+            }
+        }
+        return servers;
+    }
+
+    private ProbeStatus probeKafka(String server) {
+        long start = System.nanoTime();
+        String error = null;
+        try (Socket socket = new Socket()) {
+            int index = server.lastIndexOf(':');
+            socket.connect(new InetSocketAddress(server.substring(0, index), Integer.parseInt(server.substring(index + 1))), timeout);
+        } catch (Exception e) {
+            error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        }
+        return record(TYPE_KAFKA, server, error, System.nanoTime() - start);
+    }
+
+    private ProbeStatus probeNode(NodeDTO node) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            ResponseEntity<String> entity = restTemplate.getForEntity(String.format(NODE_STATUS_URL, node.getIp(), node.getPort()), String.class);
+            if (!HttpStatus.OK.equals(entity.getStatusCode())) {
+                error = entity.getStatusCode().toString();
+            }
+        } catch (Exception e) {
+            error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        }
+        return record(TYPE_NODE, node.getIp() + ":" + node.getPort(), error, System.nanoTime() - start);
+    }
+
+    private ProbeStatus record(String type, String target, String error, long latencyNanos) {
+        long now = System.currentTimeMillis();
+        boolean up = error == null;
+        Timer.builder("ms.health.probe")
+                .tag("type", type)
+                .tag("target", target)
+                .tag("result", up ? "up" : "down")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+        String key = key(type, target);
+        ProbeStatus previous = statusMap.get(key);
+        long lastUpTime = up ? now : (previous == null ? 0 : previous.getLastUpTime());
+        ProbeStatus status = new ProbeStatus(type, target, up, now, lastUpTime, TimeUnit.NANOSECONDS.toMillis(latencyNanos), error);
+        statusMap.put(key, status);
+        if (!up && (previous == null || previous.isUp())) {
+            LogUtil.warn(type + " " + target + " is unavailable: " + error);
+        }
+        return status;
+    }
+
+    private String key(String type, String target) {
+        return type + "|" + target;
+    }
+
+    private static class RunningProbe {
+        private final Future<ProbeStatus> future;
+        private final long startTime;
+
+        RunningProbe(Future<ProbeStatus> future, long startTime) {
+            this.future = future;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package io.metersphere.health;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collection;
+
+/**
+ * /actuator/probes，所有 kafka broker 和节点最近一次检查的结果，耗时分布见 ms.health.probe 指标
+ */
+@Component
+@Endpoint(id = "probes")
+public class ProbeEndpoint {
+    @Resource
+    private HealthMonitor healthMonitor;
+
+    @ReadOperation
+    public Collection<ProbeStatus> probes() {
+        return healthMonitor.getStatus();
+    }
+}
@@ -0,0 +1,42 @@
+package io.metersphere.health;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 在 /actuator/health 中显示缓存的检查结果，不会触发检查
+ * <p>
+ * kafka 或节点不可用时只影响压测，状态为 DEGRADED，不把整个服务标记为 DOWN
+ */
+@Configuration
+public class ProbeHealthIndicators {
+    public static final Status DEGRADED = new Status("DEGRADED");
+
+    @Resource
+    private HealthMonitor healthMonitor;
+
+    @Bean
+    public HealthIndicator kafkaHealthIndicator() {
+        return () -> toHealth(healthMonitor.getStatus(HealthMonitor.TYPE_KAFKA));
+    }
+
+    @Bean
+    public HealthIndicator nodeHealthIndicator() {
+        return () -> toHealth(healthMonitor.getStatus(HealthMonitor.TYPE_NODE));
+    }
+
+    private Health toHealth(List<ProbeStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return Health.unknown().build();
+        }
+        Health.Builder builder = statuses.stream().allMatch(ProbeStatus::isUp) ? Health.up() : Health.status(DEGRADED);
+        statuses.forEach(status -> builder.withDetail(status.getTarget(), status));
+        return builder.build();
+    }
+}
@@ -0,0 +1,27 @@
+package io.metersphere.health;
+
+import lombok.Getter;
+
+/**
+ * 单个 kafka broker 或节点最近一次检查的结果
+ */
+@Getter
+public class ProbeStatus {
+    private final String type;
+    private final String target;
+    private final boolean up;
+    private final long checkTime;
+    private final long lastUpTime;
+    private final long latency;
+    private final String error;
+
+    ProbeStatus(String type, String target, boolean up, long checkTime, long lastUpTime, long latency, String error) {
+        this.type = type;
+        this.target = target;
+        this.up = up;
+        this.checkTime = checkTime;
+        this.lastUpTime = lastUpTime;
+        this.latency = latency;
+        this.error = error;
+    }
+}
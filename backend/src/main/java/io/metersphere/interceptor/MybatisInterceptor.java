@@ -1,181 +1,181 @@
 package io.metersphere.interceptor;
 
-import io.metersphere.commons.utils.BeanUtils;
+import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.MybatisInterceptorConfig;
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.Executor;
-import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
-import org.apache.ibatis.session.ResultHandler;
-import org.apache.ibatis.session.RowBounds;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.sql.Statement;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 按配置对实体的字段做加密/压缩等处理
+ * <p>
+ * 每个实体类第一次出现时生成处理计划（字段的 getter/setter 和处理方法的 MethodHandle），之后直接在原对象上处理。
+ * 更新时参数对象在执行后恢复原值；查询结果在 ResultSetHandler 中处理，只处理从数据库读取的行，会话缓存中的对象不会被重复处理
+ */
 @Intercepts({
         @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
-        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
-        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class}),
 })
 public class MybatisInterceptor implements Interceptor {
 
+    private static final MethodType CODEC_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType LIST_CODEC_TYPE = MethodType.methodType(Object.class, List.class, String.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final CodecPlan EMPTY_PLAN = new CodecPlan(Collections.emptyList());
+
     private List<MybatisInterceptorConfig> interceptorConfigList;
 
-    private ConcurrentHashMap<String, Class> classMap = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<String, Map<String, Map<String, MybatisInterceptorConfig>>> interceptorConfigMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, CodecPlan> planMap = new ConcurrentHashMap<>();
 
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-        String methodName = invocation.getMethod().getName();
-        Object parameter = invocation.getArgs()[1];
-        if (parameter != null && methodName.equals("update")) {
-            invocation.getArgs()[1] = process(parameter);
-        }
-        Object returnValue = invocation.proceed();
-        Object result = returnValue;
-        if (returnValue instanceof ArrayList<?>) {
-            List<Object> list = new ArrayList<>();
-            boolean isDecrypted = false;
-            for (Object val : (ArrayList<?>) returnValue) {
-                Object a = undo(val);
-                if (a != val) {
-                    isDecrypted = true;
-                    list.add(a);
-                } else {
-                    break;
-                }
+        if (invocation.getTarget() instanceof ResultSetHandler) {
+            List<?> rows = (List<?>) invocation.proceed();
+            for (Object row : rows) {
+                undo(row);
             }
-            if (isDecrypted) {
-                result = list;
+            return rows;
+        }
+        Object parameter = invocation.getArgs()[1];
+        List<Restore> restores = new ArrayList<>();
+        try {
+            process(parameter, restores, Collections.newSetFromMap(new IdentityHashMap<>()));
+            return invocation.proceed();
+        } finally {
+            // 恢复调用方传入的对象
+            for (int i = restores.size() - 1; i >= 0; i--) {
+                restores.get(i).restore();
             }
-        } else {
-            result = undo(returnValue);
         }
-        return result;
     }
 
-    private Map<String, Map<String, MybatisInterceptorConfig>> getConfig(Object p) {
-        Map<String, Map<String, MybatisInterceptorConfig>> result = new HashMap<>();
-        if (p == null) {
-            return null;
-        }
-        String pClassName = p.getClass().getName();
-        if (interceptorConfigMap.get(pClassName) != null) {
-            return interceptorConfigMap.get(pClassName);
+    private CodecPlan getPlan(Object obj) {
+        if (obj == null) {
+            return EMPTY_PLAN;
         }
-        Map<String, List<MybatisInterceptorConfig>> m = new HashMap<>();
+        return planMap.computeIfAbsent(obj.getClass(), this::buildPlan);
+    }
+
+    private CodecPlan buildPlan(Class<?> clazz) {
+        // 同一个字段有多个配置时以最后一个为准
+        Map<String, MybatisInterceptorConfig> configs = new LinkedHashMap<>();
         for (MybatisInterceptorConfig interceptorConfig : interceptorConfigList) {
             String className = interceptorConfig.getModelName();
-            String attrName = interceptorConfig.getAttrName();
-            if (StringUtils.isNotBlank(className)) {
-                Class c = classMap.get(className);
-                if (c == null) {
-                    try {
-                        c = Class.forName(className);
-                        classMap.put(className, c);
-                    } catch (ClassNotFoundException e) {
-                        continue;
-                    }
-                }
-                if (c.isInstance(p)) {
-                    if (result.get(attrName) == null) {
-                        result.put(attrName, new HashMap<>());
-                    }
-                    if (StringUtils.isNotBlank(interceptorConfig.getInterceptorMethod())) {
-                        result.get(attrName).put(Methods.encrypt.name(), interceptorConfig);
-                    }
-                    if (StringUtils.isNotBlank(interceptorConfig.getInterceptorMethod())) {
-                        result.get(attrName).put(Methods.decrypt.name(), interceptorConfig);
-                    }
+            if (StringUtils.isBlank(className)) {
+                continue;
+            }
+            try {
+                if (Class.forName(className).isAssignableFrom(clazz)) {
+                    configs.put(interceptorConfig.getAttrName(), interceptorConfig);
                 }
+            } catch (ClassNotFoundException e) {
+                // 配置的类不存在时忽略
             }
         }
-        interceptorConfigMap.put(pClassName, result);
-        return result;
+        if (configs.isEmpty()) {
+            return EMPTY_PLAN;
+        }
+        List<FieldCodec> fields = new ArrayList<>();
+        configs.values().forEach(interceptorConfig -> {
+            FieldCodec fieldCodec = buildFieldCodec(clazz, interceptorConfig);
+            if (fieldCodec != null) {
+                fields.add(fieldCodec);
+            }
+        });
+        return new CodecPlan(fields);
     }
 
-    private Object process(Object obj) throws Throwable {
-        if (obj instanceof Map) {
-            Map paramMap = (Map) obj;
-            for (Object key : paramMap.keySet()) {
-                if (paramMap.get(key) != null) {
-                    paramMap.put(key, process(paramMap.get(key)));
+    private FieldCodec buildFieldCodec(Class<?> clazz, MybatisInterceptorConfig interceptorConfig) {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        String attrName = interceptorConfig.getAttrName();
+        if (StringUtils.isBlank(attrName)) {
+            return null;
+        }
+        FieldCodec fieldCodec = new FieldCodec();
+        try {
+            String property = StringUtils.capitalize(attrName);
+            Method getter = clazz.getMethod("get" + property);
+            Method setter = clazz.getMethod("set" + property, getter.getReturnType());
+            fieldCodec.getter = lookup.unreflect(getter).asType(GETTER_TYPE);
+            fieldCodec.setter = lookup.unreflect(setter).asType(SETTER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            LogUtil.error("failed to resolve field " + attrName + " of " + clazz.getName(), e);
+            return null;
+        }
+        try {
+            if (StringUtils.isNotBlank(interceptorConfig.getInterceptorClass()) && StringUtils.isNotBlank(interceptorConfig.getInterceptorMethod())) {
+                fieldCodec.encoder = lookup.findStatic(Class.forName(interceptorConfig.getInterceptorClass()), interceptorConfig.getInterceptorMethod(), CODEC_TYPE);
+            }
+            if (StringUtils.isNotBlank(interceptorConfig.getUndoClass()) && StringUtils.isNotBlank(interceptorConfig.getUndoMethod())) {
+                Class<?> undoClass = Class.forName(interceptorConfig.getUndoClass());
+                fieldCodec.decoder = lookup.findStatic(undoClass, interceptorConfig.getUndoMethod(), CODEC_TYPE);
+                fieldCodec.attrNameForList = interceptorConfig.getAttrNameForList();
+                try {
+                    fieldCodec.listDecoder = lookup.findStatic(undoClass, interceptorConfig.getUndoMethod(), LIST_CODEC_TYPE);
+                } catch (NoSuchMethodException e) {
+                    // 没有处理 list 的方法
                 }
             }
-            return paramMap;
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Invalid mybatis interceptor config: " + interceptorConfig.getModelName() + "." + attrName, e);
         }
-        Map<String, Map<String, MybatisInterceptorConfig>> localInterceptorConfigMap = getConfig(obj);
-        if (MapUtils.isEmpty(localInterceptorConfigMap)) {
-            return obj;
+        return fieldCodec;
+    }
+
+    private void process(Object obj, List<Restore> restores, Set<Object> processed) throws Throwable {
+        // 同一个对象可能在参数 Map 中出现多次（如 record 和 param1），只处理一次
+        if (obj == null || !processed.add(obj)) {
+            return;
         }
-        Object newObject = obj.getClass().newInstance();
-        BeanUtils.copyBean(newObject, obj);
-        for (String attrName : localInterceptorConfigMap.keySet()) {
-            if (MapUtils.isEmpty(localInterceptorConfigMap.get(attrName))) {
-                continue;
+        if (obj instanceof Map) {
+            for (Object value : ((Map<?, ?>) obj).values()) {
+                process(value, restores, processed);
             }
-            MybatisInterceptorConfig interceptorConfig = localInterceptorConfigMap.get(attrName).get(Methods.encrypt.name());
-            if (interceptorConfig == null || StringUtils.isBlank(interceptorConfig.getInterceptorClass())
-                    || StringUtils.isBlank(interceptorConfig.getInterceptorMethod())) {
+            return;
+        }
+        for (FieldCodec fieldCodec : getPlan(obj).fields) {
+            if (fieldCodec.encoder == null) {
                 continue;
             }
-            Object fieldValue = BeanUtils.getFieldValueByName(interceptorConfig.getAttrName(), newObject);
+            Object fieldValue = fieldCodec.getter.invokeExact(obj);
             if (fieldValue != null) {
-                Class<?> processClazz = Class.forName(interceptorConfig.getInterceptorClass());
-                Method method = processClazz.getMethod(interceptorConfig.getInterceptorMethod(), Object.class);
-                Object processedValue = method.invoke(null, fieldValue);
-                if (processedValue instanceof byte[]) {
-                    BeanUtils.setFieldValueByName(newObject, interceptorConfig.getAttrName(), processedValue, byte[].class);
-                } else {
-                    BeanUtils.setFieldValueByName(newObject, interceptorConfig.getAttrName(), processedValue, fieldValue.getClass());
-                }
+                Object processedValue = (Object) fieldCodec.encoder.invokeExact(fieldValue);
+                fieldCodec.setter.invokeExact(obj, processedValue);
+                restores.add(new Restore(fieldCodec, obj, fieldValue));
             }
         }
-
-        return newObject;
     }
 
-    private Object undo(Object obj) throws Throwable {
-        Map<String, Map<String, MybatisInterceptorConfig>> localDecryptConfigMap = getConfig(obj);
-        Object result;
-        if (MapUtils.isEmpty(localDecryptConfigMap)) {
-            return obj;
-        }
-        result = obj.getClass().newInstance();
-        BeanUtils.copyBean(result, obj);
-        for (String attrName : localDecryptConfigMap.keySet()) {
-            if (MapUtils.isEmpty(localDecryptConfigMap.get(attrName))) {
+    private void undo(Object obj) throws Throwable {
+        for (FieldCodec fieldCodec : getPlan(obj).fields) {
+            if (fieldCodec.decoder == null) {
                 continue;
             }
-            MybatisInterceptorConfig interceptorConfig = localDecryptConfigMap.get(attrName).get(Methods.decrypt.name());
-            if (interceptorConfig == null || StringUtils.isBlank(interceptorConfig.getUndoClass())
-                    || StringUtils.isBlank(interceptorConfig.getUndoMethod())) {
+            Object fieldValue = fieldCodec.getter.invokeExact(obj);
+            if (fieldValue == null) {
                 continue;
             }
-            Object fieldValue = BeanUtils.getFieldValueByName(interceptorConfig.getAttrName(), result);
-            if (fieldValue != null) {
-                Class<?> processClazz = Class.forName(interceptorConfig.getUndoClass());
-                Object undoValue;
-                if (fieldValue instanceof List) {
-                    Method method = processClazz.getMethod(interceptorConfig.getUndoMethod(), List.class, String.class);
-                    //fieldValue获取的是list的引用，所以list类型的属性不需要再调用setFieldValueByName了
-                    method.invoke(null, fieldValue, interceptorConfig.getAttrNameForList());
-                } else {
-                    Method method = processClazz.getMethod(interceptorConfig.getUndoMethod(), Object.class);
-                    undoValue = method.invoke(null, fieldValue);
-                    if (undoValue instanceof byte[]) {
-                        BeanUtils.setFieldValueByName(result, interceptorConfig.getAttrName(), undoValue, byte[].class);
-                    } else {
-                        BeanUtils.setFieldValueByName(result, interceptorConfig.getAttrName(), undoValue, fieldValue.getClass());
-                    }
+            if (fieldValue instanceof List) {
+                //fieldValue获取的是list的引用，所以list类型的属性不需要再调用setter了
+                if (fieldCodec.listDecoder != null) {
+                    Object ignore = (Object) fieldCodec.listDecoder.invokeExact((List) fieldValue, fieldCodec.attrNameForList);
                 }
+            } else {
+                Object undoValue = (Object) fieldCodec.decoder.invokeExact(fieldValue);
+                fieldCodec.setter.invokeExact(obj, undoValue);
             }
         }
-        return result;
     }
 
     @Override
@@ -195,10 +195,39 @@ public class MybatisInterceptor implements Interceptor {
 
     public void setInterceptorConfigList(List<MybatisInterceptorConfig> interceptorConfigList) {
         this.interceptorConfigList = interceptorConfigList;
+        planMap.clear();
     }
 
-    private enum Methods {
-        encrypt, decrypt
+    private static class CodecPlan {
+        private final List<FieldCodec> fields;
+
+        CodecPlan(List<FieldCodec> fields) {
+            this.fields = fields;
+        }
     }
 
-}
\ No newline at end of file
+    private static class FieldCodec {
+        private MethodHandle getter;
+        private MethodHandle setter;
+        private MethodHandle encoder;
+        private MethodHandle decoder;
+        private MethodHandle listDecoder;
+        private String attrNameForList;
+    }
+
+    private static class Restore {
+        private final FieldCodec fieldCodec;
+        private final Object bean;
+        private final Object value;
+
+        Restore(FieldCodec fieldCodec, Object bean, Object value) {
+            this.fieldCodec = fieldCodec;
+            this.bean = bean;
+            this.value = value;
+        }
+
+        void restore() throws Throwable {
+            fieldCodec.setter.invokeExact(bean, value);
+        }
+    }
+}
@@ -5,7 +5,6 @@ import io.metersphere.api.service.APITestService;
 import io.metersphere.commons.constants.ReportTriggerMode;
 import io.metersphere.commons.constants.ScheduleGroup;
 import io.metersphere.commons.utils.CommonBeanFactory;
-import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.TriggerKey;
 
@@ -19,7 +18,7 @@ public class ApiTestJob extends MsScheduleJob {
     }
 
     @Override
-    void businessExecute(JobExecutionContext context) {
+    void businessExecute() {
         SaveAPITestRequest request = new SaveAPITestRequest();
         request.setId(resourceId);
         request.setUserId(userId);
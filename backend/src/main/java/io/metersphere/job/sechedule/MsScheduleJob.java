@@ -1,8 +1,13 @@
 package io.metersphere.job.sechedule;
 
+import io.metersphere.base.domain.ScheduleRun;
+import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
 import org.quartz.*;
 
+/**
+ * Quartz 触发时只记录本次执行，由 {@link ScheduleAdmission} 在分组的线程池中执行；同一个任务还没结束时再次触发的会被跳过
+ */
 public abstract class MsScheduleJob implements Job {
 
     protected String resourceId;
@@ -16,14 +21,19 @@ public abstract class MsScheduleJob implements Job {
 
         JobKey jobKey = context.getTrigger().getJobKey();
         JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
-        this.resourceId = jobDataMap.getString("resourceId");
-        this.userId = jobDataMap.getString("userId");
-        this.expression = jobDataMap.getString("expression");
+        CommonBeanFactory.getBean(ScheduleAdmission.class).enqueue(jobKey, getClass(),
+                jobDataMap.getString("resourceId"), jobDataMap.getString("userId"), jobDataMap.getString("expression"),
+                context.getScheduledFireTime().getTime());
+    }
 
-        LogUtil.info(jobKey.getGroup() + " Running: " + resourceId);
+    void run(ScheduleRun run) {
+        this.resourceId = run.getResourceId();
+        this.userId = run.getUserId();
+        this.expression = run.getExpression();
+        LogUtil.info(run.getJobGroup() + " Running: " + resourceId);
         LogUtil.info("CronExpression: " + expression);
-        businessExecute(context);
+        businessExecute();
     }
 
-    abstract void businessExecute(JobExecutionContext context);
+    abstract void businessExecute();
 }
@@ -5,7 +5,6 @@ import io.metersphere.commons.constants.ScheduleGroup;
 import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.performance.service.PerformanceTestService;
 import io.metersphere.track.request.testplan.RunTestPlanRequest;
-import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 import org.quartz.TriggerKey;
 
@@ -18,7 +17,7 @@ public class PerformanceTestJob extends MsScheduleJob {
     }
 
     @Override
-    void businessExecute(JobExecutionContext context) {
+    void businessExecute() {
         RunTestPlanRequest request = new RunTestPlanRequest();
         request.setId(resourceId);
         request.setUserId(userId);
@@ -0,0 +1,196 @@
+package io.metersphere.job.sechedule;
+
+import io.metersphere.base.domain.ScheduleRun;
+import io.metersphere.base.mapper.ext.ExtScheduleRunMapper;
+import io.metersphere.commons.constants.ScheduleGroup;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.config.ScheduleProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quartz.JobKey;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定时任务的准入控制：Quartz 线程只把本次执行写入 schedule_run 后返回，各节点定时领取到期的记录，在每个分组单独的线程池中执行
+ * <p>
+ * 等待中的执行保存在数据库中，重启或切换节点后不会丢失；同一个任务还在等待或执行时，再次触发的会被跳过。
+ * 很多任务配置在整点触发，可以按任务设置固定的延迟分散执行
+ */
+@Component
+public class ScheduleAdmission {
+    private static final String PENDING = "Pending";
+
+    @Resource
+    private ScheduleProperties scheduleProperties;
+    @Resource
+    private MeterRegistry meterRegistry;
+    @Resource
+    private ExtScheduleRunMapper extScheduleRunMapper;
+
+    private final Map<String, GroupExecutor> executors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (ScheduleGroup group : ScheduleGroup.values()) {
+            getExecutor(group.name());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 已领取的执行完再退出，未领取的留在数据库中
+        executors.values().forEach(executor -> executor.pool.shutdown());
+    }
+
+    /**
+     * 记录本次触发，立即返回
+     */
+    public void enqueue(JobKey jobKey, Class<? extends MsScheduleJob> jobClass, String resourceId, String userId,
+                        String expression, long fireTime) {
+        String group = jobKey.getGroup();
+        if (extScheduleRunMapper.countPending(group) >= scheduleProperties.getQueueCapacity()) {
+            LogUtil.error("Schedule queue of " + group + " is full, skip job " + jobKey);
+            meterRegistry.counter("ms.schedule.skipped", "group", group, "reason", "full").increment();
+            return;
+        }
+        ScheduleRun run = new ScheduleRun();
+        run.setId(UUID.randomUUID().toString());
+        run.setJobName(jobKey.getName());
+        run.setJobGroup(group);
+        run.setJobClass(jobClass.getName());
+        run.setResourceId(resourceId);
+        run.setUserId(userId);
+        run.setExpression(expression);
+        run.setStatus(PENDING);
+        run.setFireTime(fireTime);
+        run.setAvailableTime(fireTime + getJitter(jobKey));
+        if (extScheduleRunMapper.insertIgnore(run) == 0) {
+            LogUtil.warn("Schedule job " + jobKey + " is still waiting or running, skip this execution");
+            meterRegistry.counter("ms.schedule.skipped", "group", group, "reason", "pending").increment();
+        }
+    }
+
+    /**
+     * 领取到期的记录，每个分组最多领取空闲线程数条；多个节点同时领取时，claim 保证每条只被一个节点执行
+     */
+    @Scheduled(fixedDelayString = "${schedule.poll-interval:1000}")
+    public void drain() {
+        executors.forEach((group, executor) -> {
+            try {
+                drain(group, executor);
+            } catch (Exception e) {
+                LogUtil.error("Failed to drain schedule queue of " + group, e);
+            }
+        });
+    }
+
+    /**
+     * 执行中的记录所在节点可能已经退出，超时后删除，不再重复执行
+     */
+    @Scheduled(fixedDelayString = "${schedule.stale-check-interval:600000}")
+    public void cleanStale() {
+        int count = extScheduleRunMapper.deleteStaleRunning(System.currentTimeMillis() - scheduleProperties.getRunningTimeout());
+        if (count > 0) {
+            LogUtil.warn("Removed " + count + " stale running schedule records");
+        }
+    }
+
+    /**
+     * 同一个任务的延迟固定，不同任务在 [0, maxJitter] 之间分布
+     */
+    long getJitter(JobKey jobKey) {
+        long maxJitter = scheduleProperties.getMaxJitter();
+        if (maxJitter <= 0) {
+            return 0;
+        }
+        return Math.floorMod((long) jobKey.toString().hashCode() * 0x9E3779B9L, maxJitter + 1);
+    }
+
+    private void drain(String group, GroupExecutor executor) {
+        long now = System.currentTimeMillis();
+        int free = executor.permits.availablePermits();
+        if (free > 0) {
+            List<ScheduleRun> runs = extScheduleRunMapper.selectAvailable(group, now, free);
+            for (ScheduleRun run : runs) {
+                if (!executor.permits.tryAcquire()) {
+                    break;
+                }
+                if (extScheduleRunMapper.claim(run.getId(), now) == 0) {
+                    // 已被其他节点领取
+                    executor.permits.release();
+                    continue;
+                }
+                meterRegistry.timer("ms.schedule.wait", "group", group).record(Math.max(0, now - run.getFireTime()), TimeUnit.MILLISECONDS);
+                try {
+                    executor.pool.execute(() -> execute(run, executor));
+                } catch (RejectedExecutionException e) {
+                    // 正在关闭，留给其他节点或重启后执行
+                    executor.permits.release();
+                    return;
+                }
+            }
+        }
+        executor.pending.set(extScheduleRunMapper.countPending(group));
+        Long oldest = extScheduleRunMapper.selectOldestPendingFireTime(group, now);
+        executor.oldestWait.set(oldest == null ? 0 : Math.max(0, now - oldest));
+    }
+
+    private void execute(ScheduleRun run, GroupExecutor executor) {
+        try {
+            MsScheduleJob job = (MsScheduleJob) Class.forName(run.getJobClass()).newInstance();
+            job.run(run);
+        } catch (Exception e) {
+            LogUtil.error("Schedule job " + run.getJobGroup() + "." + run.getJobName() + " failed", e);
+        } finally {
+            try {
+                extScheduleRunMapper.deleteById(run.getId());
+            } finally {
+                executor.permits.release();
+            }
+        }
+    }
+
+    private GroupExecutor getExecutor(String group) {
+        return executors.computeIfAbsent(group, g -> {
+            int concurrency = scheduleProperties.getConcurrency().getOrDefault(g, scheduleProperties.getDefaultConcurrency());
+            GroupExecutor executor = new GroupExecutor(g, concurrency);
+            Gauge.builder("ms.schedule.queue", executor.pending, AtomicLong::get)
+                    .tag("group", g).tag("state", "pending").register(meterRegistry);
+            Gauge.builder("ms.schedule.queue", executor, e -> e.concurrency - e.permits.availablePermits())
+                    .tag("group", g).tag("state", "running").register(meterRegistry);
+            Gauge.builder("ms.schedule.wait.oldest", executor.oldestWait, AtomicLong::get)
+                    .tag("group", g).baseUnit("milliseconds").register(meterRegistry);
+            return executor;
+        });
+    }
+
+    private static class GroupExecutor {
+        private final int concurrency;
+        // 空闲线程数，领取前先占用，执行结束后释放
+        private final Semaphore permits;
+        private final ThreadPoolExecutor pool;
+        // 整个集群中等待执行的数量
+        private final AtomicLong pending = new AtomicLong();
+        // 已到执行时间的记录中等待最久的毫秒数
+        private final AtomicLong oldestWait = new AtomicLong();
+
+        GroupExecutor(String group, int concurrency) {
+            this.concurrency = concurrency;
+            this.permits = new Semaphore(concurrency);
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    r -> new Thread(r, "schedule-" + group.toLowerCase() + "-" + threadIndex.incrementAndGet()));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.metersphere.performance.base;
+
+import lombok.Data;
+
+/**
+ * 启动测试时单个节点分配的并发数，以及分配时节点的状态
+ */
+@Data
+public class NodePlacement {
+
+    private String resourceId;
+    private String node;
+    private Integer threadNum;
+    private Integer maxConcurrency;
+    // 分配前节点上其他测试已占用的并发数
+    private Integer usedConcurrency;
+    // 最近一次健康检查的耗时，没有检查结果时为 -1
+    private Long latency;
+
+}
@@ -0,0 +1,15 @@
+package io.metersphere.performance.base;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class Placement {
+
+    private String strategy;
+    private Integer threadNum;
+    private Long createTime;
+    private List<NodePlacement> nodes;
+
+}
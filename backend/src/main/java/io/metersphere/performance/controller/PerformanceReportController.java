@@ -18,6 +18,7 @@ import org.apache.shiro.authz.annotation.RequiresRoles;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 
@@ -93,6 +94,11 @@ public class PerformanceReportController {
         return reportService.getResponseTimeChartData(reportId);
     }
 
+    @GetMapping("/content/placement/{reportId}")
+    public Placement getPlacement(@PathVariable String reportId) {
+        return reportService.getPlacement(reportId);
+    }
+
     @GetMapping("/{reportId}")
     public LoadTestReportWithBLOBs getLoadTestReport(@PathVariable String reportId) {
         return reportService.getLoadTestReport(reportId);
@@ -110,7 +116,7 @@ public class PerformanceReportController {
     }
 
     @GetMapping("log/download/{reportId}/{resourceId}")
-    public void downloadLog(@PathVariable String reportId, @PathVariable String resourceId, HttpServletResponse response) throws Exception {
-        reportService.downloadLog(response, reportId, resourceId);
+    public void downloadLog(@PathVariable String reportId, @PathVariable String resourceId, HttpServletRequest request, HttpServletResponse response) throws Exception {
+        reportService.downloadLog(request, response, reportId, resourceId);
     }
 }
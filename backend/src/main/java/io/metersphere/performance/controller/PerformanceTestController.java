@@ -18,6 +18,7 @@ import io.metersphere.service.FileService;
 import io.metersphere.track.request.testplan.*;
 import org.apache.shiro.authz.annotation.Logical;
 import org.apache.shiro.authz.annotation.RequiresRoles;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -115,12 +117,16 @@ public class PerformanceTestController {
     }
 
     @PostMapping("/file/download")
-    public ResponseEntity<byte[]> downloadJmx(@RequestBody FileOperationRequest fileOperationRequest) {
-        byte[] bytes = fileService.loadFileAsBytes(fileOperationRequest.getId());
+    public ResponseEntity<InputStreamResource> downloadJmx(@RequestBody FileOperationRequest fileOperationRequest) {
+        InputStream in = fileService.openFile(fileOperationRequest.getId());
+        if (in == null) {
+            return ResponseEntity.notFound().build();
+        }
+        InputStreamResource resource = new InputStreamResource(in);
         return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType("application/octet-stream"))
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileOperationRequest.getName() + "\"")
-                .body(bytes);
+                .body(resource);
     }
 
     @GetMapping("dashboard/tests")
@@ -6,7 +6,6 @@ import com.alibaba.fastjson.JSONObject;
 import io.metersphere.base.domain.LoadTestWithBLOBs;
 import io.metersphere.base.domain.TestResource;
 import io.metersphere.base.domain.TestResourcePool;
-import io.metersphere.commons.constants.PerformanceTestStatus;
 import io.metersphere.commons.constants.ResourcePoolTypeEnum;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.CommonBeanFactory;
@@ -66,16 +65,6 @@ public abstract class AbstractEngine implements Engine {
         }
     }
 
-    protected Integer getRunningThreadNum() {
-        List<LoadTestWithBLOBs> loadTests = performanceTestService.selectByTestResourcePoolId(loadTest.getTestResourcePoolId());
-        // 使用当前资源池正在运行的测试占用的并发数
-        return loadTests.stream()
-                .filter(t -> PerformanceTestStatus.Running.name().equals(t.getStatus()))
-                .map(this::getThreadNum)
-                .reduce(Integer::sum)
-                .orElse(0);
-    }
-
     private Integer getThreadNum(LoadTestWithBLOBs t) {
         Integer s = 0;
         String loadConfiguration = t.getLoadConfiguration();
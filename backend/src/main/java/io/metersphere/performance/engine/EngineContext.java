@@ -1,5 +1,7 @@
 package io.metersphere.performance.engine;
 
+import io.metersphere.performance.parse.EngineSourceTemplate;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,6 +19,9 @@ public class EngineContext {
     private Map<String, Object> properties = new HashMap<>();
     private Map<String, String> testData = new HashMap<>();
     private Map<String, String> env = new HashMap<>();
+    // 生成脚本模板时，各个节点不同的值用占位符代替
+    private Map<String, String> placeholders = new HashMap<>();
+    private EngineSourceTemplate sourceTemplate;
 
     public String getTestId() {
         return testId;
@@ -58,6 +63,10 @@ public class EngineContext {
         this.env = env;
     }
 
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
     public Object getProperty(String key) {
         return this.properties.get(key);
     }
@@ -126,4 +135,28 @@ public class EngineContext {
     public void setResourceIndex(Integer resourceIndex) {
         this.resourceIndex = resourceIndex;
     }
+
+    public String getThreadNumValue() {
+        return placeholders.getOrDefault(EngineSourceTemplate.THREAD_NUM, String.valueOf(threadNum));
+    }
+
+    public String getResourceIndexValue() {
+        return placeholders.getOrDefault(EngineSourceTemplate.RESOURCE_INDEX, String.valueOf(resourceIndex));
+    }
+
+    public void addPlaceholder(String key, String value) {
+        this.placeholders.put(key, value);
+    }
+
+    public Map<String, String> getPlaceholders() {
+        return placeholders;
+    }
+
+    public EngineSourceTemplate getSourceTemplate() {
+        return sourceTemplate;
+    }
+
+    public void setSourceTemplate(EngineSourceTemplate sourceTemplate) {
+        this.sourceTemplate = sourceTemplate;
+    }
 }
@@ -2,7 +2,6 @@ package io.metersphere.performance.engine;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import io.metersphere.base.domain.FileContent;
 import io.metersphere.base.domain.FileMetadata;
 import io.metersphere.base.domain.LoadTestWithBLOBs;
 import io.metersphere.base.domain.TestResourcePool;
@@ -14,14 +13,19 @@ import io.metersphere.i18n.Translator;
 import io.metersphere.performance.engine.docker.DockerTestEngine;
 import io.metersphere.performance.parse.EngineSourceParser;
 import io.metersphere.performance.parse.EngineSourceParserFactory;
+import io.metersphere.performance.parse.EngineSourceTemplate;
 import io.metersphere.service.FileService;
 import io.metersphere.service.TestResourcePoolService;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,7 +56,10 @@ public class EngineFactory {
         return null;
     }
 
-    public static EngineContext createContext(LoadTestWithBLOBs loadTest, String resourceId, long threadNum, long startTime, String reportId, int resourceIndex) {
+    /**
+     * 每次测试只读取和解析一遍脚本，生成各个节点共用的模板，CSV 也只加载一次
+     */
+    public static EngineContext createContextTemplate(LoadTestWithBLOBs loadTest, long startTime, String reportId) {
         final List<FileMetadata> fileMetadataList = fileService.getFileMetadataByTestId(loadTest.getId());
         if (org.springframework.util.CollectionUtils.isEmpty(fileMetadataList)) {
             MSException.throwException(Translator.get("run_load_test_file_not_found") + loadTest.getId());
@@ -63,25 +70,18 @@ public class EngineFactory {
                 });
 
         List<FileMetadata> csvFiles = fileMetadataList.stream().filter(f -> StringUtils.equalsIgnoreCase(f.getType(), FileType.CSV.name())).collect(Collectors.toList());
-        final FileContent fileContent = fileService.getFileContent(jmxFile.getId());
-        if (fileContent == null) {
-            MSException.throwException(Translator.get("run_load_test_file_content_not_found") + loadTest.getId());
-        }
         final EngineContext engineContext = new EngineContext();
         engineContext.setTestId(loadTest.getId());
         engineContext.setTestName(loadTest.getName());
         engineContext.setNamespace(loadTest.getProjectId());
         engineContext.setFileType(jmxFile.getType());
-        engineContext.setThreadNum(threadNum);
         engineContext.setResourcePoolId(loadTest.getTestResourcePoolId());
         engineContext.setStartTime(startTime);
         engineContext.setReportId(reportId);
-        engineContext.setResourceIndex(resourceIndex);
         HashMap<String, String> env = new HashMap<String, String>() {{
             put("BOOTSTRAP_SERVERS", kafkaProperties.getBootstrapServers());
             put("LOG_TOPIC", kafkaProperties.getLog().getTopic());
             put("REPORT_ID", reportId);
-            put("RESOURCE_ID", resourceId);
         }};
         engineContext.setEnv(env);
 
@@ -107,9 +107,11 @@ public class EngineFactory {
             MSException.throwException("File type unknown");
         }
 
-        try (ByteArrayInputStream source = new ByteArrayInputStream(fileContent.getFile())) {
-            String content = engineSourceParser.parse(engineContext, source);
-            engineContext.setContent(content);
+        try (InputStream source = fileService.openFile(jmxFile.getId())) {
+            if (source == null) {
+                MSException.throwException(Translator.get("run_load_test_file_content_not_found") + loadTest.getId());
+            }
+            engineContext.setSourceTemplate(EngineSourceTemplate.parse(engineSourceParser, engineContext, source));
         } catch (MSException e) {
             throw e;
         } catch (Exception e) {
@@ -119,15 +121,48 @@ public class EngineFactory {
         if (CollectionUtils.isNotEmpty(csvFiles)) {
             Map<String, String> data = new HashMap<>();
             csvFiles.forEach(cf -> {
-                FileContent csvContent = fileService.getFileContent(cf.getId());
-                data.put(cf.getName(), new String(csvContent.getFile()));
+                try (InputStream csvContent = fileService.openFile(cf.getId())) {
+                    if (csvContent != null) {
+                        data.put(cf.getName(), IOUtils.toString(csvContent, Charset.defaultCharset()));
+                    }
+                } catch (IOException e) {
+                    MSException.throwException(e);
+                }
             });
-            engineContext.setTestData(data);
+            // 各个节点共用，不再修改
+            engineContext.setTestData(Collections.unmodifiableMap(data));
         }
 
         return engineContext;
     }
 
+    /**
+     * 根据模板生成单个节点的 context，只替换线程数和节点序号
+     */
+    public static EngineContext createContext(EngineContext template, String resourceId, long threadNum, int resourceIndex) {
+        final EngineContext engineContext = new EngineContext();
+        engineContext.setTestId(template.getTestId());
+        engineContext.setTestName(template.getTestName());
+        engineContext.setNamespace(template.getNamespace());
+        engineContext.setFileType(template.getFileType());
+        engineContext.setThreadNum(threadNum);
+        engineContext.setResourcePoolId(template.getResourcePoolId());
+        engineContext.setStartTime(template.getStartTime());
+        engineContext.setReportId(template.getReportId());
+        engineContext.setResourceIndex(resourceIndex);
+        engineContext.addProperties(template.getProperties());
+        engineContext.setTestData(template.getTestData());
+
+        HashMap<String, String> env = new HashMap<>(template.getEnv());
+        env.put("RESOURCE_ID", resourceId);
+        engineContext.setEnv(env);
+
+        Map<String, String> values = new HashMap<>();
+        values.put(EngineSourceTemplate.THREAD_NUM, String.valueOf(threadNum));
+        values.put(EngineSourceTemplate.RESOURCE_INDEX, String.valueOf(resourceIndex));
+        engineContext.setContent(template.getSourceTemplate().render(values));
+        return engineContext;
+    }
 
     @Resource
     private void setFileService(FileService fileService) {
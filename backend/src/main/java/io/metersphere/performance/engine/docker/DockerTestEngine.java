@@ -9,19 +9,24 @@ import io.metersphere.commons.utils.CommonBeanFactory;
 import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.dto.NodeDTO;
 import io.metersphere.i18n.Translator;
+import io.metersphere.performance.base.NodePlacement;
+import io.metersphere.performance.base.Placement;
 import io.metersphere.performance.engine.AbstractEngine;
 import io.metersphere.performance.engine.EngineContext;
 import io.metersphere.performance.engine.EngineFactory;
 import io.metersphere.performance.engine.docker.request.TestRequest;
-import org.springframework.web.client.RestTemplate;
+import io.metersphere.performance.engine.placement.PlacementService;
+import io.metersphere.performance.service.CapacityLedger;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class DockerTestEngine extends AbstractEngine {
-    private static final String BASE_URL = "http://%s:%d";
-    private RestTemplate restTemplate;
-    private RestTemplate restTemplateWithTimeOut;
+    private NodeDispatcher nodeDispatcher;
+    private CapacityLedger capacityLedger;
+    private PlacementService placementService;
 
     public DockerTestEngine(LoadTestWithBLOBs loadTest) {
         this.init(loadTest);
@@ -30,87 +35,107 @@ public class DockerTestEngine extends AbstractEngine {
     @Override
     protected void init(LoadTestWithBLOBs loadTest) {
         super.init(loadTest);
-        this.restTemplate = (RestTemplate) CommonBeanFactory.getBean("restTemplate");
-        this.restTemplateWithTimeOut = (RestTemplate) CommonBeanFactory.getBean("restTemplateWithTimeOut");
-        // todo 初始化操作
+        this.nodeDispatcher = CommonBeanFactory.getBean(NodeDispatcher.class);
+        this.capacityLedger = CommonBeanFactory.getBean(CapacityLedger.class);
+        this.placementService = CommonBeanFactory.getBean(PlacementService.class);
     }
 
     @Override
     public void start() {
-        Integer runningSumThreadNum = getRunningThreadNum();
-        int totalThreadNum = resourceList.stream()
+        // 只有有效的节点参与分配
+        List<TestResource> validResources = resourceList.stream()
                 .filter(r -> ResourceStatusEnum.VALID.name().equals(r.getStatus()))
-                .map(r -> JSON.parseObject(r.getConfiguration(), NodeDTO.class).getMaxConcurrency())
-                .reduce(Integer::sum)
-                .orElse(0);
-        if (threadNum > totalThreadNum - runningSumThreadNum) {
+                .collect(Collectors.toList());
+        Map<String, Integer> nodeCapacities = new LinkedHashMap<>();
+        validResources.forEach(r -> {
+            NodeDTO node = JSON.parseObject(r.getConfiguration(), NodeDTO.class);
+            nodeCapacities.put(PlacementService.getNode(node), node.getMaxConcurrency());
+        });
+        int totalThreadNum = nodeCapacities.values().stream().reduce(Integer::sum).orElse(0);
+        if (threadNum > totalThreadNum) {
             MSException.throwException(Translator.get("max_thread_insufficient"));
         }
-        List<Integer> resourceRatio = resourceList.stream()
-                .filter(r -> ResourceStatusEnum.VALID.name().equals(r.getStatus()))
-                .map(r -> JSON.parseObject(r.getConfiguration(), NodeDTO.class).getMaxConcurrency())
-                .collect(Collectors.toList());
 
-        for (int i = 0, size = resourceList.size(); i < size; i++) {
-            int ratio = resourceRatio.get(i);
-            double realThreadNum = ((double) ratio / totalThreadNum) * threadNum;
-            runTest(resourceList.get(i), Math.round(realThreadNum), i);
+        // 按配置的策略分配，考虑节点上其他测试已占用的并发数
+        Placement placement = placementService.place(threadNum, validResources);
+        Map<String, Integer> nodeThreads = new LinkedHashMap<>();
+        placement.getNodes().forEach(n -> nodeThreads.put(n.getNode(), n.getThreadNum()));
+        // 同时启动的测试不会超出资源池和节点的并发数
+        capacityLedger.reserve(getReportId(), loadTest.getTestResourcePoolId(), totalThreadNum, threadNum, nodeThreads, nodeCapacities);
+        try {
+            // 先保存分配结果再启动节点，节点启动后不再有可能失败的步骤
+            placementService.record(getReportId(), placement);
+            Map<String, TestResource> resources = validResources.stream()
+                    .collect(Collectors.toMap(TestResource::getId, r -> r));
+            start(placement.getNodes().stream()
+                    .collect(Collectors.toMap(n -> resources.get(n.getResourceId()), NodePlacement::getThreadNum, (a, b) -> a, LinkedHashMap::new)));
+        } catch (RuntimeException e) {
+            capacityLedger.release(getReportId());
+            throw e;
         }
-
     }
 
-    private void runTest(TestResource resource, long realThreadNum, int resourceIndex) {
-        // todo 运行测试
-        EngineContext context = null;
+    private void start(Map<TestResource, Integer> resourceThreads) {
+        // 脚本和 CSV 只处理一次，各个节点只替换线程数和序号
+        EngineContext template = null;
         try {
-            context = EngineFactory.createContext(loadTest, resource.getId(), realThreadNum, this.getStartTime(), this.getReportId(), resourceIndex);
+            template = EngineFactory.createContextTemplate(loadTest, this.getStartTime(), this.getReportId());
         } catch (MSException e) {
             throw e;
         } catch (Exception e) {
             MSException.throwException(e);
         }
 
-        String configuration = resource.getConfiguration();
-        NodeDTO node = JSON.parseObject(configuration, NodeDTO.class);
-        String nodeIp = node.getIp();
-        Integer port = node.getPort();
-        String testId = context.getTestId();
-        String content = context.getContent();
+        Map<TestResource, TestRequest> requests = new LinkedHashMap<>();
+        int resourceIndex = 0;
+        for (Map.Entry<TestResource, Integer> entry : resourceThreads.entrySet()) {
+            requests.put(entry.getKey(), createTestRequest(template, entry.getKey(), entry.getValue(), resourceIndex++));
+        }
+
+        // 各个节点同时启动，有节点失败时停止已经启动的节点
+        List<NodeDispatcher.NodeResult> results = nodeDispatcher.start(requests);
+        List<NodeDispatcher.NodeResult> failed = results.stream()
+                .filter(r -> !r.isSuccess())
+                .collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            List<TestResource> started = results.stream()
+                    .filter(r -> r.isSuccess() || r.isTimedOut())
+                    .map(NodeDispatcher.NodeResult::getResource)
+                    .collect(Collectors.toList());
+            if (!started.isEmpty()) {
+                nodeDispatcher.stop(started, loadTest.getId());
+            }
+            MSException.throwException(Translator.get("start_engine_fail") + ": " + getMessage(failed));
+        }
+    }
 
-        String uri = String.format(BASE_URL + "/jmeter/container/start", nodeIp, port);
+    private TestRequest createTestRequest(EngineContext template, TestResource resource, long realThreadNum, int resourceIndex) {
+        EngineContext context = EngineFactory.createContext(template, resource.getId(), realThreadNum, resourceIndex);
 
         TestRequest testRequest = new TestRequest();
         testRequest.setSize(1);
-        testRequest.setTestId(testId);
-        testRequest.setFileString(content);
+        testRequest.setTestId(context.getTestId());
+        testRequest.setFileString(context.getContent());
         testRequest.setImage(JMETER_IMAGE);
         testRequest.setTestData(context.getTestData());
         testRequest.setEnv(context.getEnv());
-
-        try {
-            restTemplate.postForObject(uri, testRequest, String.class);
-        } catch (Exception e) {
-            LogUtil.error(e);
-            MSException.throwException(Translator.get("start_engine_fail"));
-        }
+        return testRequest;
     }
 
     @Override
     public void stop() {
-        // TODO 停止运行测试
-        String testId = loadTest.getId();
-        this.resourceList.forEach(r -> {
-            NodeDTO node = JSON.parseObject(r.getConfiguration(), NodeDTO.class);
-            String ip = node.getIp();
-            Integer port = node.getPort();
+        List<NodeDispatcher.NodeResult> failed = nodeDispatcher.stop(resourceList, loadTest.getId()).stream()
+                .filter(r -> !r.isSuccess())
+                .collect(Collectors.toList());
+        if (!failed.isEmpty()) {
+            LogUtil.error("stop load test fail... " + loadTest.getId());
+            MSException.throwException(Translator.get("container_delete_fail") + ": " + getMessage(failed));
+        }
+    }
 
-            String uri = String.format(BASE_URL + "/jmeter/container/stop/" + testId, ip, port);
-            try {
-                restTemplateWithTimeOut.getForObject(uri, String.class);
-            } catch (Exception e) {
-                LogUtil.error("stop load test fail... " + testId, e);
-                MSException.throwException(Translator.get("container_delete_fail"));
-            }
-        });
+    private String getMessage(List<NodeDispatcher.NodeResult> results) {
+        return results.stream()
+                .map(NodeDispatcher.NodeResult::getMessage)
+                .collect(Collectors.joining("; "));
     }
 }
@@ -0,0 +1,163 @@
+package io.metersphere.performance.engine.docker;
+
+import com.alibaba.fastjson.JSON;
+import io.metersphere.base.domain.TestResource;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.config.JmeterProperties;
+import io.metersphere.dto.NodeDTO;
+import io.metersphere.performance.engine.docker.request.TestRequest;
+import lombok.Getter;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行向各个节点发送启动/停止请求，每个节点单独计算超时，返回每个节点的结果
+ */
+@Service
+public class NodeDispatcher {
+    private static final String BASE_URL = "http://%s:%d";
+
+    @Resource
+    private JmeterProperties jmeterProperties;
+
+    private ThreadPoolExecutor executor;
+    private CloseableHttpClient httpClient;
+    private RestTemplate startRestTemplate;
+    private RestTemplate stopRestTemplate;
+
+    @PostConstruct
+    public void init() {
+        JmeterProperties.Node config = jmeterProperties.getNode();
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由调用线程发送，不会拒绝
+        executor = new ThreadPoolExecutor(config.getDispatchConcurrency(), config.getDispatchConcurrency(),
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(config.getDispatchConcurrency() * 10),
+                r -> new Thread(r, "node-dispatcher-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        // 连接池和发送线程数一致，每个节点最多可以同时占用全部连接
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(config.getDispatchConcurrency());
+        connectionManager.setDefaultMaxPerRoute(config.getDispatchConcurrency());
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        startRestTemplate = createRestTemplate(config, config.getStartTimeout());
+        stopRestTemplate = createRestTemplate(config, config.getStopTimeout());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            LogUtil.error(e.getMessage(), e);
+        }
+    }
+
+    private RestTemplate createRestTemplate(JmeterProperties.Node config, int readTimeout) {
+        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        httpRequestFactory.setConnectionRequestTimeout(config.getConnectionRequestTimeout());
+        httpRequestFactory.setConnectTimeout(config.getConnectTimeout());
+        httpRequestFactory.setReadTimeout(readTimeout);
+        return new RestTemplate(httpRequestFactory);
+    }
+
+    public List<NodeResult> start(Map<TestResource, TestRequest> requests) {
+        List<NodeResult> results = new ArrayList<>();
+        requests.forEach((resource, request) -> results.add(new NodeResult(resource)));
+        return invokeAll(results, r -> {
+            String uri = r.getBaseUrl() + "/jmeter/container/start";
+            startRestTemplate.postForObject(uri, requests.get(r.getResource()), String.class);
+        }, jmeterProperties.getNode().getStartTimeout());
+    }
+
+    public List<NodeResult> stop(List<TestResource> resources, String testId) {
+        List<NodeResult> results = new ArrayList<>();
+        resources.forEach(resource -> results.add(new NodeResult(resource)));
+        return invokeAll(results, r -> {
+            String uri = r.getBaseUrl() + "/jmeter/container/stop/" + testId;
+            stopRestTemplate.getForObject(uri, String.class);
+        }, jmeterProperties.getNode().getStopTimeout());
+    }
+
+    private List<NodeResult> invokeAll(List<NodeResult> results, NodeRequest request, long timeout) {
+        List<Future<?>> futures = new ArrayList<>();
+        results.forEach(r -> futures.add(executor.submit(() -> {
+            request.execute(r);
+            return null;
+        })));
+        // 所有节点同时开始，共用一个截止时间
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (int i = 0; i < results.size(); i++) {
+            NodeResult result = results.get(i);
+            Future<?> future = futures.get(i);
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                result.timedOut = true;
+                result.error = e;
+            } catch (ExecutionException e) {
+                result.error = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                result.error = e;
+            }
+            if (result.error != null) {
+                LogUtil.error("Node request failed: " + result.getAddress(), result.error);
+            }
+        }
+        return results;
+    }
+
+    private interface NodeRequest {
+        void execute(NodeResult result) throws Exception;
+    }
+
+    @Getter
+    public static class NodeResult {
+        private final TestResource resource;
+        private final NodeDTO node;
+        private Throwable error;
+        // 超时的节点可能已经收到请求
+        private boolean timedOut;
+
+        NodeResult(TestResource resource) {
+            this.resource = resource;
+            this.node = JSON.parseObject(resource.getConfiguration(), NodeDTO.class);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public String getAddress() {
+            return node.getIp() + ":" + node.getPort();
+        }
+
+        String getBaseUrl() {
+            return String.format(BASE_URL, node.getIp(), node.getPort());
+        }
+
+        public String getMessage() {
+            if (timedOut) {
+                return getAddress() + " timeout";
+            }
+            return getAddress() + " " + (error == null ? "" : error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.metersphere.performance.engine.placement;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 使用尽量少的节点：按剩余并发数从多到少依次占满节点，剩余相同时优先响应快的节点，空出的节点可以给其他测试使用
+ */
+@Component
+public class BinPackingPlacement implements PlacementStrategy {
+    public static final String NAME = "bin-packing";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Integer> place(int threadNum, List<PlacementNode> nodes) {
+        List<PlacementNode> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparingInt(PlacementNode::getFree).reversed()
+                .thenComparingLong(PlacementNode::getLatencyOrder));
+        // 一个节点放得下时选剩余最少的那个，留下大的节点
+        PlacementNode single = null;
+        for (PlacementNode n : sorted) {
+            if (n.getFree() >= threadNum && (single == null || n.getFree() < single.getFree())) {
+                single = n;
+            }
+        }
+        if (single != null && threadNum > 0) {
+            return Collections.singletonMap(single.getNode(), threadNum);
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        int remaining = threadNum;
+        for (PlacementNode n : sorted) {
+            if (remaining <= 0) {
+                break;
+            }
+            int count = Math.min(remaining, n.getFree());
+            if (count > 0) {
+                result.put(n.getNode(), count);
+                remaining -= count;
+            }
+        }
+        return remaining > 0 ? null : result;
+    }
+}
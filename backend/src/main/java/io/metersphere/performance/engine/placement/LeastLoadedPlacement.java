@@ -0,0 +1,57 @@
+package io.metersphere.performance.engine.placement;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 每次把并发分配给占用比例（已占用加已分配除以最大并发数）最低的节点，比例相同时优先响应快的节点，
+ * 分配后各个节点的负载尽量均衡
+ */
+@Component
+public class LeastLoadedPlacement implements PlacementStrategy {
+    public static final String NAME = "least-loaded";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Integer> place(int threadNum, List<PlacementNode> nodes) {
+        Map<String, Integer> assigned = new HashMap<>();
+        PriorityQueue<PlacementNode> queue = new PriorityQueue<>(
+                Comparator.comparingDouble((PlacementNode n) -> load(n, assigned.getOrDefault(n.getNode(), 0)))
+                        .thenComparingLong(PlacementNode::getLatencyOrder));
+        nodes.forEach(n -> {
+            if (n.getFree() > 0) {
+                queue.add(n);
+            }
+        });
+        int remaining = threadNum;
+        while (remaining > 0 && !queue.isEmpty()) {
+            // 取出后修改分配数再放回，保证队列中的顺序正确
+            PlacementNode n = queue.poll();
+            int count = assigned.merge(n.getNode(), 1, Integer::sum);
+            remaining--;
+            if (count < n.getFree()) {
+                queue.add(n);
+            }
+        }
+        if (remaining > 0) {
+            return null;
+        }
+        // 按节点原来的顺序返回
+        Map<String, Integer> result = new LinkedHashMap<>();
+        nodes.forEach(n -> {
+            if (assigned.containsKey(n.getNode())) {
+                result.put(n.getNode(), assigned.get(n.getNode()));
+            }
+        });
+        return result;
+    }
+
+    private double load(PlacementNode n, int assigned) {
+        return (double) (n.getUsed() + assigned) / n.getCapacity();
+    }
+}
@@ -0,0 +1,35 @@
+package io.metersphere.performance.engine.placement;
+
+import io.metersphere.base.domain.TestResource;
+import lombok.Getter;
+
+/**
+ * 参与分配的节点，capacity 为节点的最大并发数，used 为其他测试已占用的并发数
+ */
+@Getter
+public class PlacementNode {
+    private final TestResource resource;
+    private final String node;
+    private final int capacity;
+    private final int used;
+    private final long latency;
+
+    public PlacementNode(TestResource resource, String node, int capacity, int used, long latency) {
+        this.resource = resource;
+        this.node = node;
+        this.capacity = capacity;
+        this.used = used;
+        this.latency = latency;
+    }
+
+    public int getFree() {
+        return Math.max(0, capacity - used);
+    }
+
+    /**
+     * 没有检查结果的节点排在最后
+     */
+    long getLatencyOrder() {
+        return latency < 0 ? Long.MAX_VALUE : latency;
+    }
+}
@@ -0,0 +1,120 @@
+package io.metersphere.performance.engine.placement;
+
+import com.alibaba.fastjson.JSON;
+import io.metersphere.base.domain.LoadTestReportResult;
+import io.metersphere.base.domain.TestResource;
+import io.metersphere.base.mapper.LoadTestReportResultMapper;
+import io.metersphere.commons.constants.ReportKeys;
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.dto.NodeDTO;
+import io.metersphere.health.HealthMonitor;
+import io.metersphere.health.ProbeStatus;
+import io.metersphere.i18n.Translator;
+import io.metersphere.performance.base.NodePlacement;
+import io.metersphere.performance.base.Placement;
+import io.metersphere.performance.service.CapacityLedger;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 按 placement.strategy 选择分配策略，节点的已占用并发数来自 {@link CapacityLedger}，响应时间来自 {@link HealthMonitor}
+ */
+@Service
+public class PlacementService {
+
+    @Value("${placement.strategy:" + ProportionalPlacement.NAME + "}")
+    private String strategyName;
+
+    @Resource
+    private List<PlacementStrategy> placementStrategies;
+    @Resource
+    private CapacityLedger capacityLedger;
+    @Resource
+    private HealthMonitor healthMonitor;
+    @Resource
+    private LoadTestReportResultMapper loadTestReportResultMapper;
+
+    /**
+     * 分配并发数，检查不通过的节点不参与分配，剩余并发数不足时抛出异常
+     */
+    public Placement place(int threadNum, List<TestResource> resources) {
+        List<PlacementNode> nodes = new ArrayList<>();
+        for (TestResource resource : resources) {
+            NodeDTO nodeDTO = JSON.parseObject(resource.getConfiguration(), NodeDTO.class);
+            String node = getNode(nodeDTO);
+            ProbeStatus status = healthMonitor.getStatus(HealthMonitor.TYPE_NODE, node);
+            if (status != null && !status.isUp()) {
+                LogUtil.warn("Skip unavailable node " + node + " when placing threads");
+                continue;
+            }
+            nodes.add(new PlacementNode(resource, node, nodeDTO.getMaxConcurrency(), capacityLedger.getNodeUsage(node),
+                    status == null ? -1 : status.getLatency()));
+        }
+
+        PlacementStrategy strategy = getStrategy();
+        Map<String, Integer> nodeThreads = strategy.place(threadNum, nodes);
+        if (nodeThreads == null) {
+            MSException.throwException(Translator.get("max_thread_insufficient"));
+        }
+
+        Placement placement = new Placement();
+        placement.setStrategy(strategy.getName());
+        placement.setThreadNum(threadNum);
+        placement.setCreateTime(System.currentTimeMillis());
+        List<NodePlacement> nodePlacements = new ArrayList<>();
+        nodes.forEach(n -> {
+            Integer threads = nodeThreads.get(n.getNode());
+            if (threads == null || threads <= 0) {
+                return;
+            }
+            NodePlacement nodePlacement = new NodePlacement();
+            nodePlacement.setResourceId(n.getResource().getId());
+            nodePlacement.setNode(n.getNode());
+            nodePlacement.setThreadNum(threads);
+            nodePlacement.setMaxConcurrency(n.getCapacity());
+            nodePlacement.setUsedConcurrency(n.getUsed());
+            nodePlacement.setLatency(n.getLatency());
+            nodePlacements.add(nodePlacement);
+        });
+        placement.setNodes(nodePlacements);
+        return placement;
+    }
+
+    /**
+     * 把分配结果保存到报告中，用于之后分析
+     */
+    public void record(String reportId, Placement placement) {
+        LoadTestReportResult reportResult = new LoadTestReportResult();
+        reportResult.setId(UUID.randomUUID().toString());
+        reportResult.setReportId(reportId);
+        reportResult.setReportKey(ReportKeys.Placement.name());
+        reportResult.setReportValue(JSON.toJSONString(placement));
+        loadTestReportResultMapper.insertSelective(reportResult);
+    }
+
+    public static String getNode(NodeDTO node) {
+        return node.getIp() + ":" + node.getPort();
+    }
+
+    private PlacementStrategy getStrategy() {
+        PlacementStrategy proportional = null;
+        for (PlacementStrategy strategy : placementStrategies) {
+            if (StringUtils.equalsIgnoreCase(strategy.getName(), strategyName)) {
+                return strategy;
+            }
+            if (ProportionalPlacement.NAME.equals(strategy.getName())) {
+                proportional = strategy;
+            }
+        }
+        LogUtil.warn("Unknown placement strategy " + strategyName + ", use " + ProportionalPlacement.NAME);
+        return proportional;
+    }
+}
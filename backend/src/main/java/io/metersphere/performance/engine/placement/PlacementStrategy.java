@@ -0,0 +1,19 @@
+package io.metersphere.performance.engine.placement;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把测试的并发数分配到资源池的节点上
+ */
+public interface PlacementStrategy {
+
+    String getName();
+
+    /**
+     * 每个节点分配的并发数不超过剩余的并发数，分配为 0 的节点不返回
+     *
+     * @return node -> 分配的并发数，剩余并发数不足时返回 null
+     */
+    Map<String, Integer> place(int threadNum, List<PlacementNode> nodes);
+}
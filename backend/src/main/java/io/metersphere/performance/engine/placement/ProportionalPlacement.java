@@ -0,0 +1,65 @@
+package io.metersphere.performance.engine.placement;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 按节点的最大并发数比例分配，剩余并发数不足的节点分配不完的部分按比例分给其他节点
+ */
+@Component
+public class ProportionalPlacement implements PlacementStrategy {
+    public static final String NAME = "proportional";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Integer> place(int threadNum, List<PlacementNode> nodes) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        List<PlacementNode> candidates = new ArrayList<>();
+        nodes.forEach(n -> {
+            if (n.getFree() > 0) {
+                candidates.add(n);
+            }
+        });
+        int remaining = threadNum;
+        while (remaining > 0 && !candidates.isEmpty()) {
+            long totalCapacity = candidates.stream().mapToLong(PlacementNode::getCapacity).sum();
+            // 最大余数法，保证分配的总数等于要分配的并发数
+            Map<PlacementNode, Integer> shares = new LinkedHashMap<>();
+            List<PlacementNode> byRemainder = new ArrayList<>(candidates);
+            Map<PlacementNode, Double> remainders = new HashMap<>();
+            int assigned = 0;
+            for (PlacementNode n : candidates) {
+                double exact = (double) remaining * n.getCapacity() / totalCapacity;
+                int share = (int) exact;
+                shares.put(n, share);
+                remainders.put(n, exact - share);
+                assigned += share;
+            }
+            byRemainder.sort(Comparator.comparingDouble((PlacementNode n) -> remainders.get(n)).reversed());
+            for (int i = 0; i < remaining - assigned; i++) {
+                PlacementNode n = byRemainder.get(i);
+                shares.merge(n, 1, Integer::sum);
+            }
+
+            Iterator<PlacementNode> iterator = candidates.iterator();
+            while (iterator.hasNext()) {
+                PlacementNode n = iterator.next();
+                int current = result.getOrDefault(n.getNode(), 0);
+                int share = Math.min(shares.get(n), n.getFree() - current);
+                if (share > 0) {
+                    result.put(n.getNode(), current + share);
+                    remaining -= share;
+                }
+                if (result.getOrDefault(n.getNode(), 0) >= n.getFree()) {
+                    iterator.remove();
+                }
+            }
+        }
+        return remaining > 0 ? null : result;
+    }
+}
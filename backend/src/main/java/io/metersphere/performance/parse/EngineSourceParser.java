@@ -3,7 +3,11 @@ package io.metersphere.performance.parse;
 import io.metersphere.performance.engine.EngineContext;
 
 import java.io.InputStream;
+import java.io.Writer;
 
 public interface EngineSourceParser {
-    String parse(EngineContext context, InputStream source) throws Exception;
+    /**
+     * 转换脚本，结果写入 out
+     */
+    void parse(EngineContext context, InputStream source, Writer out) throws Exception;
 }
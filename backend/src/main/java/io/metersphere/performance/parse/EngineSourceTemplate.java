@@ -0,0 +1,113 @@
+package io.metersphere.performance.parse;
+
+import io.metersphere.performance.engine.EngineContext;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 转换后的脚本模板，只有各个节点不同的线程数和节点序号留作占位符
+ * <p>
+ * 一次测试只解析一遍脚本，每个节点渲染时只做字符串拼接
+ */
+public class EngineSourceTemplate {
+    public static final String THREAD_NUM = "threadNum";
+    public static final String RESOURCE_INDEX = "resourceIndex";
+
+    // segments 比 variables 多一个，渲染时交替拼接
+    private final List<String> segments = new ArrayList<>();
+    private final List<String> variables = new ArrayList<>();
+    private int length;
+
+    public static EngineSourceTemplate parse(EngineSourceParser parser, EngineContext context, InputStream source) throws Exception {
+        // 占位符带随机串，避免和脚本内容冲突
+        String token = UUID.randomUUID().toString();
+        String threadNum = "${__ms_" + THREAD_NUM + "_" + token + "}";
+        String resourceIndex = "${__ms_" + RESOURCE_INDEX + "_" + token + "}";
+        context.addPlaceholder(THREAD_NUM, threadNum);
+        context.addPlaceholder(RESOURCE_INDEX, resourceIndex);
+        try {
+            // 转换结果边写入边切分，模板要为每个节点渲染，只在内存中保留这一份
+            EngineSourceTemplate template = new EngineSourceTemplate();
+            try (TemplateWriter out = template.new TemplateWriter(threadNum, resourceIndex)) {
+                parser.parse(context, source, out);
+            }
+            return template;
+        } finally {
+            context.getPlaceholders().clear();
+        }
+    }
+
+    public String render(Map<String, String> values) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < variables.size(); i++) {
+            sb.append(segments.get(i)).append(values.get(variables.get(i)));
+        }
+        sb.append(segments.get(segments.size() - 1));
+        return sb.toString();
+    }
+
+    /**
+     * 接收转换结果，遇到占位符时切分出一个片段
+     */
+    private class TemplateWriter extends Writer {
+        private final String threadNum;
+        private final String resourceIndex;
+        private final StringBuilder current = new StringBuilder();
+        // current 中 from 之前的内容已确认不含占位符
+        private int from;
+
+        TemplateWriter(String threadNum, String resourceIndex) {
+            this.threadNum = threadNum;
+            this.resourceIndex = resourceIndex;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            current.append(cbuf, off, len);
+            length += len;
+            split();
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            current.append(str, off, off + len);
+            length += len;
+            split();
+        }
+
+        private void split() {
+            while (true) {
+                int t = current.indexOf(threadNum, from);
+                int r = current.indexOf(resourceIndex, from);
+                if (t < 0 && r < 0) {
+                    // 末尾可能是未写完的占位符
+                    from = Math.max(from, current.length() - Math.max(threadNum.length(), resourceIndex.length()) + 1);
+                    return;
+                }
+                boolean isThreadNum = t >= 0 && (r < 0 || t < r);
+                int index = isThreadNum ? t : r;
+                segments.add(current.substring(0, index));
+                variables.add(isThreadNum ? THREAD_NUM : RESOURCE_INDEX);
+                current.delete(0, index + (isThreadNum ? threadNum : resourceIndex).length());
+                from = 0;
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (segments.size() == variables.size()) {
+                segments.add(current.toString());
+                current.setLength(0);
+            }
+        }
+    }
+}
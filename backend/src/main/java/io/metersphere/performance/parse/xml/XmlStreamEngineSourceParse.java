@@ -0,0 +1,18 @@
+package io.metersphere.performance.parse.xml;
+
+import io.metersphere.performance.engine.EngineContext;
+import io.metersphere.performance.parse.EngineSourceParser;
+import io.metersphere.performance.parse.xml.reader.jmx.JmeterStreamDocumentParser;
+
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * 流式处理 jmx，不构建 DOM，内存占用只和单个元素的大小相关
+ */
+public class XmlStreamEngineSourceParse implements EngineSourceParser {
+    @Override
+    public void parse(EngineContext context, InputStream source, Writer out) throws Exception {
+        new JmeterStreamDocumentParser().parse(context, source, out);
+    }
+}
@@ -0,0 +1,796 @@
+package io.metersphere.performance.parse.xml.reader.jmx;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.CommonBeanFactory;
+import io.metersphere.commons.utils.ScriptEngineUtils;
+import io.metersphere.config.KafkaProperties;
+import io.metersphere.i18n.Translator;
+import io.metersphere.performance.engine.EngineContext;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 基于 StAX 的 jmx 处理，只遍历一遍且不构建 DOM，转换结果直接写入 out
+ * <p>
+ * 需要追加的元素生成事件后放回读取队列，和脚本中原有的元素走同样的处理逻辑
+ */
+public class JmeterStreamDocumentParser {
+    private final static String HASH_TREE_ELEMENT = "hashTree";
+    private final static String TEST_PLAN = "TestPlan";
+    private final static String STRING_PROP = "stringProp";
+    private final static String COLLECTION_PROP = "collectionProp";
+    private final static String CONCURRENCY_THREAD_GROUP = "com.blazemeter.jmeter.threads.concurrency.ConcurrencyThreadGroup";
+    private final static String VARIABLE_THROUGHPUT_TIMER = "kg.apc.jmeter.timers.VariableThroughputTimer";
+    private final static String THREAD_GROUP = "ThreadGroup";
+    private final static String BACKEND_LISTENER = "BackendListener";
+    private final static String CONFIG_TEST_ELEMENT = "ConfigTestElement";
+    private final static String DNS_CACHE_MANAGER = "DNSCacheManager";
+    private final static String ARGUMENTS = "Arguments";
+    private final static String RESPONSE_ASSERTION = "ResponseAssertion";
+
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+    private EngineContext context;
+    private PushbackEventReader reader;
+    private XMLEventWriter writer;
+    // ThreadGroup 转换后的 hashTree 不能为空
+    private boolean threadGroupConverted;
+
+    public void parse(EngineContext context, InputStream source, Writer out) throws Exception {
+        this.context = context;
+
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        reader = new PushbackEventReader(inputFactory.createXMLEventReader(source));
+        writer = XMLOutputFactory.newInstance().createXMLEventWriter(out);
+        try {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                writer.add(event);
+                if (event.isStartElement()) {
+                    // jmeterTestPlan的子元素肯定是<hashTree></hashTree>
+                    EndElement end = processChildren(child -> {
+                        processHashTree(child, new HashTreeScope(null, false));
+                        return true;
+                    });
+                    writer.add(end);
+                }
+            }
+            writer.flush();
+        } finally {
+            reader.close();
+            writer.close();
+        }
+    }
+
+    private void processHashTree(StartElement hashTree, HashTreeScope scope) throws Exception {
+        writer.add(hashTree);
+        HashTreeScope nextScope = null;
+        while (true) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isEndElement()) {
+                if (scope.requireChildren && !scope.hasChildren) {
+                    MSException.throwException(Translator.get("jmx_content_valid"));
+                }
+                if (!scope.checkedOut) {
+                    scope.checkedOut = true;
+                    List<XMLEvent> appended = checkout(scope);
+                    if (!appended.isEmpty()) {
+                        appended.add(event);
+                        reader.push(appended);
+                        continue;
+                    }
+                }
+                writer.add(event);
+                return;
+            }
+            scope.hasChildren = true;
+            if (!event.isStartElement()) {
+                writer.add(event);
+                continue;
+            }
+
+            StartElement ele = event.asStartElement();
+            String name = name(ele);
+            scope.children.add(name);
+            if (HASH_TREE_ELEMENT.equals(name)) {
+                processHashTree(ele, nextScope == null ? new HashTreeScope(null, false) : nextScope);
+                nextScope = null;
+                continue;
+            }
+            nextScope = null;
+
+            if (TEST_PLAN.equals(scope.owner) && RESPONSE_ASSERTION.equals(name) && hasStatusCode() && !scope.assertionReset) {
+                // 如果已经存在，重置第一个断言
+                scope.assertionReset = true;
+                resetResponseAssertion(ele);
+                continue;
+            }
+            if (invalid(ele)) {
+                copyElement(ele);
+                continue;
+            }
+
+            switch (name) {
+                case TEST_PLAN:
+                    processTestPlan(ele);
+                    nextScope = new HashTreeScope(TEST_PLAN, false);
+                    break;
+                case CONCURRENCY_THREAD_GROUP:
+                    processConcurrencyThreadGroup(ele);
+                    nextScope = new HashTreeScope(THREAD_GROUP, threadGroupConverted);
+                    threadGroupConverted = false;
+                    break;
+                case THREAD_GROUP:
+                    processThreadGroup(ele);
+                    break;
+                case VARIABLE_THROUGHPUT_TIMER:
+                    processVariableThroughputTimer(ele);
+                    break;
+                case BACKEND_LISTENER:
+                    processBackendListener(ele);
+                    break;
+                case CONFIG_TEST_ELEMENT:
+                    processConfigTestElement(ele);
+                    break;
+                case ARGUMENTS:
+                    processArguments(ele);
+                    break;
+                case RESPONSE_ASSERTION:
+                    processResponseAssertion(ele);
+                    break;
+                case DNS_CACHE_MANAGER:
+                    // todo dns cache manager bug:  https://bz.apache.org/bugzilla/show_bug.cgi?id=63858
+                default:
+                    copyElement(ele);
+                    break;
+            }
+        }
+    }
+
+    private List<XMLEvent> checkout(HashTreeScope scope) {
+        Events events = new Events();
+        if (TEST_PLAN.equals(scope.owner)) {
+            checkoutSetupTestPlan(events);
+            checkoutTearDownTestPlan(events);
+            if (context.getProperty("timeout") != null && StringUtils.isNotBlank(context.getProperty("timeout").toString())
+                    && !scope.children.contains(CONFIG_TEST_ELEMENT)) {
+                checkoutConfigTestElement(events);
+            }
+            if (isNotEmptyArray("domains") && !scope.children.contains(DNS_CACHE_MANAGER)) {
+                checkoutDnsCacheManager(events);
+            }
+            if (isNotEmptyArray("params") && !scope.children.contains(ARGUMENTS)) {
+                checkoutArguments(events);
+            }
+            if (hasStatusCode() && !scope.children.contains(RESPONSE_ASSERTION)) {
+                checkoutResponseAssertion(events);
+            }
+        } else if (THREAD_GROUP.equals(scope.owner)) {
+            if (context.getProperty("rpsLimitEnable") != null && !StringUtils.equals(context.getProperty("rpsLimitEnable").toString(), "false")
+                    && !scope.children.contains(VARIABLE_THROUGHPUT_TIMER)) {
+                checkoutTimer(events);
+            }
+            if (!scope.children.contains(BACKEND_LISTENER)) {
+                checkoutBackendListener(events);
+            }
+        }
+        return events.list;
+    }
+
+    private void checkoutSetupTestPlan(Events events) {
+        KafkaProperties kafkaProperties = CommonBeanFactory.getBean(KafkaProperties.class);
+        String[] servers = StringUtils.split(kafkaProperties.getBootstrapServers(), ",");
+        if (servers == null) {
+            return;
+        }
+        for (String s : servers) {
+            String[] ipAndPort = StringUtils.split(s, ":");
+            events.start("SetupThreadGroup", "guiclass", "SetupThreadGroupGui", "testclass", "SetupThreadGroup", "testname", "setUp Thread Group", "enabled", "true")
+                    .stringProp("ThreadGroup.on_sample_error", "stoptestnow")
+                    .start("elementProp", "name", "ThreadGroup.main_controller", "elementType", "LoopController", "guiclass", "LoopControlPanel", "testclass", "LoopController", "testname", "Loop Controller", "enabled", "true")
+                    .boolProp("LoopController.continue_forever", false)
+                    .intProp("LoopController.loops", 1)
+                    .end("elementProp")
+                    .stringProp("ThreadGroup.num_threads", "1")
+                    .stringProp("ThreadGroup.ramp_time", "1")
+                    .stringProp("ThreadGroup.duration", "")
+                    .stringProp("ThreadGroup.delay", "")
+                    .boolProp("ThreadGroup.scheduler", false)
+                    .boolProp("ThreadGroup.same_user_on_next_iteration", true)
+                    .end("SetupThreadGroup");
+
+            events.start(HASH_TREE_ELEMENT)
+                    .start("TCPSampler", "guiclass", "TCPSamplerGui", "testclass", "TCPSampler", "testname", "TCP Sampler", "enabled", "true")
+                    .stringProp("TCPSampler.classname", "TCPClientImpl")
+                    .stringProp("TCPSampler.server", ipAndPort[0])
+                    .boolProp("TCPSampler.reUseConnection", true)
+                    .stringProp("TCPSampler.port", ipAndPort[1])
+                    .boolProp("TCPSampler.nodelay", false)
+                    .stringProp("TCPSampler.timeout", "100")
+                    .stringProp("TCPSampler.ctimeout", "100")
+                    .stringProp("TCPSampler.request", "1010")
+                    .boolProp("TCPSampler.closeConnection", false)
+                    .stringProp("TCPSampler.EolByte", "0")
+                    .stringProp("ConfigTestElement.username", "")
+                    .stringProp("ConfigTestElement.password", "")
+                    .end("TCPSampler")
+                    .start(HASH_TREE_ELEMENT)
+                    .start(RESPONSE_ASSERTION, "guiclass", "AssertionGui", "testclass", "ResponseAssertion", "testname", "Response Assertion", "enabled", "true")
+                    .start(COLLECTION_PROP, "name", "Asserion.test_strings")
+                    .stringProp("49586", "200")
+                    .end(COLLECTION_PROP)
+                    .stringProp("Assertion.custom_message", "")
+                    .stringProp("Assertion.test_field", "Assertion.response_code")
+                    .boolProp("Assertion.assume_success", false)
+                    .intProp("Assertion.test_type", 8)
+                    .end(RESPONSE_ASSERTION)
+                    // 添加空的hashtree
+                    .empty(HASH_TREE_ELEMENT)
+                    .end(HASH_TREE_ELEMENT)
+                    .end(HASH_TREE_ELEMENT);
+        }
+    }
+
+    private void checkoutTearDownTestPlan(Events events) {
+        events.start("PostThreadGroup", "guiclass", "PostThreadGroupGui", "testclass", "PostThreadGroup", "testname", "tearDown Thread Group", "enabled", "true")
+                .stringProp("ThreadGroup.on_sample_error", "continue")
+                .stringProp("ThreadGroup.num_threads", "1")
+                .stringProp("ThreadGroup.ramp_time", "1")
+                .stringProp("ThreadGroup.duration", "")
+                .stringProp("ThreadGroup.delay", "")
+                .boolProp("ThreadGroup.scheduler", false)
+                .boolProp("ThreadGroup.same_user_on_next_iteration", true)
+                .start("elementProp", "name", "ThreadGroup.main_controller", "elementType", "LoopController", "guiclass", "LoopControlPanel", "testclass", "LoopController", "testname", "Loop Controller", "enabled", "true")
+                .boolProp("LoopController.continue_forever", false)
+                .stringProp("LoopController.loops", "1")
+                .end("elementProp")
+                .end("PostThreadGroup");
+
+        events.start(HASH_TREE_ELEMENT)
+                .empty("OnceOnlyController", "guiclass", "OnceOnlyControllerGui", "testclass", "OnceOnlyController", "testname", "Once Only Controller", "enabled", "true")
+                .start(HASH_TREE_ELEMENT)
+                .start("DebugSampler", "guiclass", "TestBeanGUI", "testclass", "DebugSampler", "testname", "Debug Sampler", "enabled", "true")
+                .boolProp("displayJMeterProperties", false)
+                .boolProp("displayJMeterVariables", true)
+                .boolProp("displaySystemProperties", false)
+                .end("DebugSampler")
+                // 添加空的 hashTree
+                .empty(HASH_TREE_ELEMENT)
+                .end(HASH_TREE_ELEMENT);
+        // 添加backend listener
+        checkoutBackendListener(events);
+        events.end(HASH_TREE_ELEMENT);
+    }
+
+    private void checkoutConfigTestElement(Events events) {
+        events.start(CONFIG_TEST_ELEMENT, "guiclass", "HttpDefaultsGui", "testclass", "ConfigTestElement", "testname", "HTTP Request Defaults", "enabled", "true")
+                .start("elementProp", "name", "HTTPsampler.Arguments", "elementType", "Arguments", "guiclass", "HTTPArgumentsPanel", "testclass", "Arguments", "enabled", "true")
+                .empty(COLLECTION_PROP, "name", "Arguments.arguments")
+                .end("elementProp")
+                .stringProp("HTTPSampler.domain", "")
+                .stringProp("HTTPSampler.port", "")
+                .stringProp("HTTPSampler.protocol", "")
+                .stringProp("HTTPSampler.contentEncoding", "")
+                .stringProp("HTTPSampler.path", "")
+                .stringProp("HTTPSampler.concurrentPool", "6")
+                .stringProp("HTTPSampler.connect_timeout", "")
+                .stringProp("HTTPSampler.response_timeout", "")
+                .boolProp("HTTPSampler.image_parser", true)
+                .boolProp("HTTPSampler.concurrentDwn", true)
+                .end(CONFIG_TEST_ELEMENT)
+                // 空的 hashTree
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void checkoutDnsCacheManager(Events events) {
+        events.start(DNS_CACHE_MANAGER, "guiclass", "DNSCachePanel", "testclass", "DNSCacheManager", "testname", "DNS Cache Manager", "enabled", "true")
+                .empty(COLLECTION_PROP, "name", "DNSCacheManager.servers")
+                .empty(COLLECTION_PROP, "name", "DNSCacheManager.hosts")
+                .boolProp("DNSCacheManager.clearEachIteration", true)
+                .boolProp("DNSCacheManager.isCustomResolver", true)
+                .end(DNS_CACHE_MANAGER)
+                // 空的 hashTree
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void checkoutArguments(Events events) {
+        events.start(ARGUMENTS, "guiclass", "ArgumentsPanel", "testclass", "Arguments", "testname", "User Defined Variables", "enabled", "true")
+                .empty(COLLECTION_PROP, "name", "Arguments.arguments")
+                .end(ARGUMENTS)
+                // 空的 hashTree
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void checkoutResponseAssertion(Events events) {
+        events.start(RESPONSE_ASSERTION, "guiclass", "AssertionGui", "testclass", "ResponseAssertion", "testname", "Response Assertion", "enabled", "true");
+        responseCodeAssertion(events);
+        events.end(RESPONSE_ASSERTION)
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void resetResponseAssertion(StartElement ele) throws XMLStreamException {
+        skipContent();
+        Events events = new Events();
+        events.list.add(ele);
+        responseCodeAssertion(events);
+        events.end(RESPONSE_ASSERTION);
+        reader.push(events.list);
+    }
+
+    private void responseCodeAssertion(Events events) {
+        events.empty(COLLECTION_PROP, "name", "Asserion.test_strings")
+                .stringProp("Assertion.custom_message", "")
+                .stringProp("Assertion.test_field", "Assertion.response_code")
+                .boolProp("Assertion.assume_success", true)
+                .intProp("Assertion.test_type", 40);
+    }
+
+    private void checkoutTimer(Events events) {
+        events.start(VARIABLE_THROUGHPUT_TIMER, "guiclass", VARIABLE_THROUGHPUT_TIMER + "Gui", "testclass", VARIABLE_THROUGHPUT_TIMER, "testname", "jp@gc - Throughput Shaping Timer", "enabled", "true")
+                .start(COLLECTION_PROP, "name", "load_profile")
+                .start(COLLECTION_PROP, "name", "140409499")
+                .stringProp("49", "1")
+                .stringProp("49", "1")
+                .stringProp("1570", "10")
+                .end(COLLECTION_PROP)
+                .end(COLLECTION_PROP)
+                .end(VARIABLE_THROUGHPUT_TIMER)
+                // 添加一个空的hashTree
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void checkoutBackendListener(Events events) {
+        // 由 processBackendListener 填充内容
+        events.empty(BACKEND_LISTENER, "guiclass", "BackendListenerGui", "testclass", "BackendListener", "testname", "Backend Listener", "enabled", "true")
+                .empty(HASH_TREE_ELEMENT);
+    }
+
+    private void processTestPlan(StartElement ele) throws Exception {
+        writer.add(ele);
+        EndElement end = processChildren(child -> false);
+        /*<boolProp name="TestPlan.tearDown_on_shutdown">true</boolProp>*/
+        add(new Events().boolProp("TestPlan.tearDown_on_shutdown", true));
+        writer.add(end);
+    }
+
+    private void processThreadGroup(StartElement threadGroup) throws XMLStreamException {
+        skipContent();
+        threadGroupConverted = true;
+        // 重命名 tagName
+        Map<String, String> attributes = attributes(threadGroup);
+        attributes.put("guiclass", CONCURRENCY_THREAD_GROUP + "Gui");
+        attributes.put("testclass", CONCURRENCY_THREAD_GROUP);
+        // 持续时长
+        String duration = context.getProperty("duration").toString();
+        String rampUp = context.getProperty("RampUp").toString();
+        int realHold = Integer.parseInt(duration) - Integer.parseInt(rampUp);
+
+        Events events = new Events();
+        events.start(CONCURRENCY_THREAD_GROUP, attributes)
+                .empty("elementProp", "name", "ThreadGroup.main_controller", "elementType", "com.blazemeter.jmeter.control.VirtualUserController")
+                .stringProp("ThreadGroup.on_sample_error", "continue")
+                .stringProp("TargetLevel", "2")
+                .stringProp("RampUp", "12")
+                .stringProp("Steps", "2")
+                .stringProp("Hold", String.valueOf(realHold))
+                .stringProp("LogFilename", "")
+                // bzm - Concurrency Thread Group "Thread Iterations Limit:" 设置为空
+                .stringProp("Unit", "M")
+                .end(CONCURRENCY_THREAD_GROUP);
+        // 交给 processConcurrencyThreadGroup 继续处理
+        reader.push(events.list);
+    }
+
+    private void processConcurrencyThreadGroup(StartElement concurrencyThreadGroup) throws Exception {
+        Map<String, String> attributes = attributes(concurrencyThreadGroup);
+        attributes.put("testname", StringUtils.defaultString(attributes.get("testname")) + "-" + context.getResourceIndexValue());
+        writer.add(createStartElement(name(concurrencyThreadGroup), attributes));
+        EndElement end = processChildren(child -> {
+            if (!STRING_PROP.equals(name(child))) {
+                return false;
+            }
+            String propName = attribute(child, "name");
+            String value = readText();
+            // 设置具体的线程数
+            if ("TargetLevel".equals(propName)) {
+                value = context.getThreadNumValue();
+            } else if (value != null && context.getProperty(propName) != null) {
+                value = context.getProperty(propName).toString();
+            }
+            writeTextElement(child, value);
+            return true;
+        });
+        writer.add(end);
+    }
+
+    private void processVariableThroughputTimer(StartElement variableThroughputTimer) throws Exception {
+        writer.add(variableThroughputTimer);
+        // TODO kg.apc.jmeter.timers.VariableThroughputTimer的stringProp的name属性是动态的
+        EndElement end = processChildren(loadProfile -> {
+            if (!COLLECTION_PROP.equals(name(loadProfile))) {
+                return false;
+            }
+            writer.add(loadProfile);
+            EndElement loadProfileEnd = processChildren(item -> {
+                if (!COLLECTION_PROP.equals(name(item))) {
+                    return false;
+                }
+                writer.add(item);
+                int[] stringPropCount = {0};
+                EndElement itemEnd = processChildren(prop -> {
+                    if (!STRING_PROP.equals(name(prop))) {
+                        return false;
+                    }
+                    readText();
+                    String value;
+                    if (stringPropCount[0] < 2) {
+                        stringPropCount[0]++;
+                        value = context.getProperty("rpsLimit").toString();
+                    } else {
+                        stringPropCount[0] = 0;
+                        Integer duration = (Integer) context.getProperty("duration");// 传入的是分钟数, 需要转化成秒数
+                        value = String.valueOf(duration * 60);
+                    }
+                    writeTextElement(prop, value);
+                    return true;
+                });
+                writer.add(itemEnd);
+                return true;
+            });
+            writer.add(loadProfileEnd);
+            return true;
+        });
+        writer.add(end);
+    }
+
+    private void processBackendListener(StartElement backendListener) throws XMLStreamException {
+        KafkaProperties kafkaProperties = CommonBeanFactory.getBean(KafkaProperties.class);
+        writer.add(backendListener);
+        // 清空child
+        EndElement end = skipContent();
+        Events events = new Events();
+        events.stringProp("classname", "io.github.rahulsinghai.jmeter.backendlistener.kafka.KafkaBackendClient")
+                .stringProp("QUEUE_SIZE", "5000")
+                .start("elementProp", "name", "arguments", "elementType", "Arguments", "guiclass", "ArgumentsPanel", "testclass", "Arguments", "enabled", "true")
+                .start(COLLECTION_PROP, "name", "Arguments.arguments")
+                .argument("kafka.acks", kafkaProperties.getAcks())
+                .argument("kafka.bootstrap.servers", kafkaProperties.getBootstrapServers())
+                .argument("kafka.topic", kafkaProperties.getTopic())
+                .argument("kafka.sample.filter", kafkaProperties.getSampleFilter())
+                .argument("kafka.fields", kafkaProperties.getFields())
+                .argument("kafka.test.mode", kafkaProperties.getTestMode())
+                .argument("kafka.parse.all.req.headers", kafkaProperties.getParseAllReqHeaders())
+                .argument("kafka.parse.all.res.headers", kafkaProperties.getParseAllResHeaders())
+                .argument("kafka.timestamp", kafkaProperties.getTimestamp())
+                .argument("kafka.compression.type", kafkaProperties.getCompressionType())
+                .argument("kafka.ssl.enabled", kafkaProperties.getSsl().getEnabled())
+                .argument("kafka.ssl.key.password", kafkaProperties.getSsl().getKeyPassword())
+                .argument("kafka.ssl.keystore.location", kafkaProperties.getSsl().getKeystoreLocation())
+                .argument("kafka.ssl.keystore.password", kafkaProperties.getSsl().getKeystorePassword())
+                .argument("kafka.ssl.truststore.location", kafkaProperties.getSsl().getTruststoreLocation())
+                .argument("kafka.ssl.truststore.password", kafkaProperties.getSsl().getTruststorePassword())
+                .argument("kafka.ssl.enabled.protocols", kafkaProperties.getSsl().getEnabledProtocols())
+                .argument("kafka.ssl.keystore.type", kafkaProperties.getSsl().getKeystoreType())
+                .argument("kafka.ssl.protocol", kafkaProperties.getSsl().getProtocol())
+                .argument("kafka.ssl.provider", kafkaProperties.getSsl().getProvider())
+                .argument("kafka.ssl.truststore.type", kafkaProperties.getSsl().getTruststoreType())
+                .argument("kafka.batch.size", kafkaProperties.getBatchSize())
+                .argument("kafka.client.id", kafkaProperties.getClientId())
+                .argument("kafka.connections.max.idle.ms", kafkaProperties.getConnectionsMaxIdleMs())
+                // 添加关联关系 test.id test.name test.startTime test.reportId
+                .argument("test.id", context.getTestId())
+                .argument("test.name", context.getTestName())
+                .argument("test.startTime", context.getStartTime().toString())
+                .argument("test.reportId", context.getReportId())
+                .end(COLLECTION_PROP)
+                .end("elementProp");
+        add(events);
+        writer.add(end);
+    }
+
+    private void processConfigTestElement(StartElement configTestElement) throws Exception {
+        writer.add(configTestElement);
+        EndElement end = processChildren(child -> {
+            if (STRING_PROP.equals(name(child)) && StringUtils.equals(attribute(child, "name"), "HTTPSampler.connect_timeout")
+                    && context.getProperty("timeout") != null) {
+                readText();
+                writeTextElement(child, context.getProperty("timeout").toString());
+                return true;
+            }
+            return false;
+        });
+        writer.add(end);
+    }
+
+    private void processArguments(StartElement arguments) throws Exception {
+        writer.add(arguments);
+        EndElement end = processChildren(child -> {
+            if (!COLLECTION_PROP.equals(name(child))) {
+                return false;
+            }
+            writer.add(child);
+            EndElement childEnd = processChildren(item -> false);
+            Object params = context.getProperty("params");
+            if (params instanceof List) {
+                Events events = new Events();
+                for (Object p : (List) params) {
+                    JSONObject jsonObject = JSON.parseObject(p.toString());
+                    if (!jsonObject.getBooleanValue("enable")) {
+                        continue;
+                    }
+                    // 处理 mock data
+                    String value = jsonObject.getString("value");
+                    events.start("elementProp", "name", jsonObject.getString("name"), "elementType", "Argument")
+                            .stringProp("Argument.name", jsonObject.getString("name"))
+                            .stringProp("Argument.value", ScriptEngineUtils.calculate(value))
+                            .stringProp("Argument.metadata", "=")
+                            .end("elementProp");
+                }
+                add(events);
+            }
+            writer.add(childEnd);
+            return true;
+        });
+        writer.add(end);
+    }
+
+    private void processResponseAssertion(StartElement responseAssertion) throws Exception {
+        writer.add(responseAssertion);
+        EndElement end = processChildren(child -> {
+            if (!COLLECTION_PROP.equals(name(child))) {
+                return false;
+            }
+            writer.add(child);
+            EndElement childEnd = processChildren(item -> false);
+            Object params = context.getProperty("statusCode");
+            if (params instanceof List) {
+                Events events = new Events();
+                for (Object p : new HashSet((List) params)) {
+                    events.stringProp(p.toString(), p.toString());
+                }
+                add(events);
+            }
+            writer.add(childEnd);
+            return true;
+        });
+        writer.add(end);
+    }
+
+    /**
+     * 逐个处理当前元素的直接子元素，handler 返回 false 的子元素原样写出
+     *
+     * @return 当前元素的结束事件，尚未写出
+     */
+    private EndElement processChildren(ChildHandler handler) throws Exception {
+        while (true) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isEndElement()) {
+                return event.asEndElement();
+            }
+            if (event.isStartElement()) {
+                StartElement child = event.asStartElement();
+                if (!handler.handle(child)) {
+                    copyElement(child);
+                }
+            } else {
+                writer.add(event);
+            }
+        }
+    }
+
+    private void copyElement(StartElement ele) throws XMLStreamException {
+        writer.add(ele);
+        int depth = 1;
+        while (depth > 0) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            writer.add(event);
+        }
+    }
+
+    /**
+     * 跳过当前元素的全部子节点
+     *
+     * @return 当前元素的结束事件，尚未写出
+     */
+    private EndElement skipContent() throws XMLStreamException {
+        int depth = 1;
+        while (true) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement() && --depth == 0) {
+                return event.asEndElement();
+            }
+        }
+    }
+
+    /**
+     * 读取当前元素的文本并消费结束事件，没有文本节点时返回 null
+     */
+    private String readText() throws XMLStreamException {
+        StringBuilder text = null;
+        int depth = 1;
+        while (true) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                if (--depth == 0) {
+                    return text == null ? null : text.toString();
+                }
+            } else if (event.isCharacters() && depth == 1) {
+                if (text == null) {
+                    text = new StringBuilder();
+                }
+                text.append(event.asCharacters().getData());
+            }
+        }
+    }
+
+    private void writeTextElement(StartElement ele, String text) throws XMLStreamException {
+        writer.add(ele);
+        if (text != null) {
+            writer.add(eventFactory.createCharacters(text));
+        }
+        writer.add(eventFactory.createEndElement("", "", name(ele)));
+    }
+
+    private void add(Events events) throws XMLStreamException {
+        for (XMLEvent event : events.list) {
+            writer.add(event);
+        }
+    }
+
+    private boolean hasStatusCode() {
+        return isNotEmptyArray("statusCode");
+    }
+
+    private boolean isNotEmptyArray(String key) {
+        return context.getProperty(key) != null && JSON.parseArray(context.getProperty(key).toString()).size() > 0;
+    }
+
+    private String name(StartElement ele) {
+        return ele.getName().getLocalPart();
+    }
+
+    private String attribute(StartElement ele, String name) {
+        Attribute attribute = ele.getAttributeByName(new QName(name));
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    private Map<String, String> attributes(StartElement ele) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Iterator<?> iterator = ele.getAttributes();
+        while (iterator.hasNext()) {
+            Attribute attribute = (Attribute) iterator.next();
+            attributes.put(attribute.getName().getLocalPart(), attribute.getValue());
+        }
+        return attributes;
+    }
+
+    private StartElement createStartElement(String name, Map<String, String> attributes) {
+        List<Attribute> list = new ArrayList<>();
+        attributes.forEach((k, v) -> list.add(eventFactory.createAttribute(k, v)));
+        return eventFactory.createStartElement("", "", name, list.iterator(), null);
+    }
+
+    private boolean invalid(StartElement ele) {
+        String enabled = attribute(ele, "enabled");
+        return !StringUtils.isBlank(enabled) && !Boolean.parseBoolean(enabled);
+    }
+
+    private interface ChildHandler {
+        boolean handle(StartElement child) throws Exception;
+    }
+
+    private static class HashTreeScope {
+        // hashTree 前一个元素的类型
+        private final String owner;
+        private final boolean requireChildren;
+        private final Set<String> children = new HashSet<>();
+        private boolean hasChildren;
+        private boolean checkedOut;
+        private boolean assertionReset;
+
+        HashTreeScope(String owner, boolean requireChildren) {
+            this.owner = owner;
+            this.requireChildren = requireChildren;
+        }
+    }
+
+    private class Events {
+        private final List<XMLEvent> list = new ArrayList<>();
+
+        Events start(String name, String... attributes) {
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i + 1 < attributes.length; i += 2) {
+                map.put(attributes[i], attributes[i + 1]);
+            }
+            return start(name, map);
+        }
+
+        Events start(String name, Map<String, String> attributes) {
+            list.add(createStartElement(name, attributes));
+            return this;
+        }
+
+        Events end(String name) {
+            list.add(eventFactory.createEndElement("", "", name));
+            return this;
+        }
+
+        Events empty(String name, String... attributes) {
+            return start(name, attributes).end(name);
+        }
+
+        Events text(String name, String value, String... attributes) {
+            start(name, attributes);
+            list.add(eventFactory.createCharacters(StringUtils.defaultString(value)));
+            return end(name);
+        }
+
+        Events stringProp(String name, String value) {
+            return text(STRING_PROP, value, "name", name);
+        }
+
+        Events boolProp(String name, boolean value) {
+            return text("boolProp", String.valueOf(value), "name", name);
+        }
+
+        Events intProp(String name, int value) {
+            return text("intProp", String.valueOf(value), "name", name);
+        }
+
+        Events argument(String name, String value) {
+            return start("elementProp", "name", name, "elementType", "Argument")
+                    .stringProp("Argument.name", name)
+                    .stringProp("Argument.value", value)
+                    .stringProp("Argument.metadata", "=")
+                    .end("elementProp");
+        }
+    }
+
+    private static class PushbackEventReader {
+        private final XMLEventReader reader;
+        private final Deque<XMLEvent> pushed = new ArrayDeque<>();
+
+        PushbackEventReader(XMLEventReader reader) {
+            this.reader = reader;
+        }
+
+        boolean hasNext() {
+            return !pushed.isEmpty() || reader.hasNext();
+        }
+
+        XMLEvent nextEvent() throws XMLStreamException {
+            return pushed.isEmpty() ? reader.nextEvent() : pushed.pollFirst();
+        }
+
+        void push(List<XMLEvent> events) {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                pushed.addFirst(events.get(i));
+            }
+        }
+
+        void close() throws XMLStreamException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.metersphere.performance.service;
+
+import io.metersphere.base.domain.LoadTestReport;
+import io.metersphere.base.domain.LoadTestReportExample;
+import io.metersphere.base.domain.ResourceReservation;
+import io.metersphere.base.mapper.LoadTestReportMapper;
+import io.metersphere.base.mapper.ext.ExtResourceReservationMapper;
+import io.metersphere.commons.constants.PerformanceTestStatus;
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.i18n.Translator;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 记录每个资源池、每个节点已经被占用的并发数，启动测试前预占，报告结束后释放
+ * <p>
+ * 预占以 resource_reservation 为准：锁住资源池的行后重新统计已占用的并发数，足够时再写入，多个节点同时启动测试也不会超出。
+ * 内存中的统计只是缓存，分配节点时参考，定时从数据库重新加载
+ */
+@Service
+public class CapacityLedger {
+
+    // 预占后报告还没有提交的时间，这段时间内不会因为查不到报告而释放
+    @Value("${capacity-ledger.grace-period:300000}")
+    private long gracePeriod;
+
+    @Resource
+    private ExtResourceReservationMapper extResourceReservationMapper;
+    @Resource
+    private LoadTestReportMapper loadTestReportMapper;
+
+    // reportId -> 该报告在各个节点上的预占
+    private final Map<String, List<ResourceReservation>> reservations = new HashMap<>();
+    // poolId -> 已占用的并发数
+    private final Map<String, Integer> poolUsage = new HashMap<>();
+    // node -> 已占用的并发数
+    private final Map<String, Integer> nodeUsage = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 资源池或任意一个节点剩余的并发数不足时抛出异常
+     * <p>
+     * 在单独的事务中执行，提交后资源池的锁即释放；启动失败时调用方需要调用 {@link #release(String)}，
+     * 进程在释放前退出时，报告不存在或已结束的预占由 {@link #reconcile()} 在 gracePeriod 后释放
+     *
+     * @param nodeThreads    每个节点分配的并发数
+     * @param nodeCapacities 每个节点的最大并发数
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public void reserve(String reportId, String poolId, int poolCapacity, int threadNum,
+                        Map<String, Integer> nodeThreads, Map<String, Integer> nodeCapacities) {
+        long now = System.currentTimeMillis();
+        List<ResourceReservation> list = new ArrayList<>();
+        nodeThreads.forEach((node, threads) -> {
+            ResourceReservation reservation = new ResourceReservation();
+            reservation.setReportId(reportId);
+            reservation.setNode(node);
+            reservation.setTestResourcePoolId(poolId);
+            reservation.setThreadNum(threads);
+            reservation.setCreateTime(now);
+            list.add(reservation);
+        });
+        // 同一个资源池的预占依次执行，统计时加锁读取，能看到其他事务刚提交的预占
+        if (extResourceReservationMapper.lockPool(poolId) == null) {
+            MSException.throwException(Translator.get("test_resource_pool_not_exists"));
+        }
+        if (threadNum > poolCapacity - extResourceReservationMapper.sumPoolThreadsForUpdate(poolId)) {
+            MSException.throwException(Translator.get("max_thread_insufficient"));
+        }
+        if (list.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> usedThreads = extResourceReservationMapper.sumNodeThreadsForUpdate(nodeThreads.keySet()).stream()
+                .collect(Collectors.toMap(ResourceReservation::getNode, ResourceReservation::getThreadNum));
+        for (ResourceReservation reservation : list) {
+            int used = usedThreads.getOrDefault(reservation.getNode(), 0);
+            if (reservation.getThreadNum() > nodeCapacities.getOrDefault(reservation.getNode(), 0) - used) {
+                MSException.throwException(Translator.get("max_thread_insufficient") + ": " + reservation.getNode());
+            }
+        }
+        extResourceReservationMapper.insertBatch(list);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (CapacityLedger.this) {
+                    add(reportId, list);
+                }
+            }
+        });
+    }
+
+    public void release(String reportId) {
+        extResourceReservationMapper.deleteByReportId(reportId);
+        releaseLocal(reportId);
+    }
+
+    public synchronized int getPoolUsage(String poolId) {
+        return poolUsage.getOrDefault(poolId, 0);
+    }
+
+    public synchronized int getNodeUsage(String node) {
+        return nodeUsage.getOrDefault(node, 0);
+    }
+
+    /**
+     * 报告的状态可能由 data-streaming 修改，定时释放已经结束或已删除的报告的预占；同时重新加载缓存，包含其他节点的预占
+     */
+    @Scheduled(fixedDelayString = "${capacity-ledger.reconcile-interval:30000}")
+    public void reconcile() {
+        try {
+            reload();
+        } catch (Exception e) {
+            LogUtil.error(e);
+            return;
+        }
+        long deadline = System.currentTimeMillis() - gracePeriod;
+        List<String> reportIds;
+        synchronized (this) {
+            reportIds = reservations.entrySet().stream()
+                    .filter(e -> e.getValue().stream().allMatch(r -> r.getCreateTime() < deadline))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+        if (reportIds.isEmpty()) {
+            return;
+        }
+        try {
+            LoadTestReportExample example = new LoadTestReportExample();
+            example.createCriteria().andIdIn(reportIds);
+            Map<String, String> statusMap = loadTestReportMapper.selectByExample(example).stream()
+                    .collect(Collectors.toMap(LoadTestReport::getId, LoadTestReport::getStatus));
+            reportIds.stream()
+                    .filter(id -> !statusMap.containsKey(id) || isFinished(statusMap.get(id)))
+                    .forEach(this::release);
+        } catch (Exception e) {
+            LogUtil.error(e);
+        }
+    }
+
+    public static boolean isFinished(String status) {
+        return StringUtils.equalsAny(status, PerformanceTestStatus.Completed.name(), PerformanceTestStatus.Error.name());
+    }
+
+    private void reload() {
+        Map<String, List<ResourceReservation>> saved = extResourceReservationMapper.selectAll().stream()
+                .collect(Collectors.groupingBy(ResourceReservation::getReportId));
+        synchronized (this) {
+            reservations.clear();
+            poolUsage.clear();
+            nodeUsage.clear();
+            saved.forEach(this::add);
+        }
+    }
+
+    private void add(String reportId, List<ResourceReservation> list) {
+        reservations.put(reportId, list);
+        for (ResourceReservation reservation : list) {
+            poolUsage.merge(reservation.getTestResourcePoolId(), reservation.getThreadNum(), Integer::sum);
+            nodeUsage.merge(reservation.getNode(), reservation.getThreadNum(), Integer::sum);
+        }
+    }
+
+    private synchronized void releaseLocal(String reportId) {
+        List<ResourceReservation> list = reservations.remove(reportId);
+        if (list == null) {
+            return;
+        }
+        for (ResourceReservation reservation : list) {
+            poolUsage.computeIfPresent(reservation.getTestResourcePoolId(), (k, v) -> v - reservation.getThreadNum() > 0 ? v - reservation.getThreadNum() : null);
+            nodeUsage.computeIfPresent(reservation.getNode(), (k, v) -> v - reservation.getThreadNum() > 0 ? v - reservation.getThreadNum() : null);
+        }
+    }
+}
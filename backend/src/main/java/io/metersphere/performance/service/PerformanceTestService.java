@@ -3,19 +3,18 @@ package io.metersphere.performance.service;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.*;
 import io.metersphere.base.mapper.ext.ExtLoadTestMapper;
-import io.metersphere.base.mapper.ext.ExtLoadTestReportDetailMapper;
 import io.metersphere.base.mapper.ext.ExtLoadTestReportMapper;
 import io.metersphere.commons.constants.*;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.ServiceUtils;
 import io.metersphere.commons.utils.SessionUtils;
-import io.metersphere.config.KafkaProperties;
 import io.metersphere.controller.request.OrderRequest;
 import io.metersphere.controller.request.QueryScheduleRequest;
 import io.metersphere.dto.DashboardTestDTO;
 import io.metersphere.dto.LoadTestDTO;
 import io.metersphere.dto.ScheduleDao;
+import io.metersphere.health.HealthMonitor;
 import io.metersphere.i18n.Translator;
 import io.metersphere.job.sechedule.PerformanceTestJob;
 import io.metersphere.performance.engine.Engine;
@@ -33,9 +32,6 @@ import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
-import java.io.OutputStream;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -59,9 +55,7 @@ public class PerformanceTestService {
     @Resource
     private ExtLoadTestReportMapper extLoadTestReportMapper;
     @Resource
-    private LoadTestReportDetailMapper loadTestReportDetailMapper;
-    @Resource
-    private ExtLoadTestReportDetailMapper extLoadTestReportDetailMapper;
+    private ReportDetailService reportDetailService;
     @Resource
     private LoadTestReportLogMapper loadTestReportLogMapper;
     @Resource
@@ -71,7 +65,7 @@ public class PerformanceTestService {
     @Resource
     private ReportService reportService;
     @Resource
-    private KafkaProperties kafkaProperties;
+    private HealthMonitor healthMonitor;
     @Resource
     private ScheduleService scheduleService;
     @Resource
@@ -230,26 +224,8 @@ public class PerformanceTestService {
     }
 
     private void checkKafka() {
-        String bootstrapServers = kafkaProperties.getBootstrapServers();
-        String[] servers = StringUtils.split(bootstrapServers, ",");
-        try {
-            for (String s : servers) {
-                String[] ipAndPort = s.split(":");
-                //1,建立tcp
-                String ip = ipAndPort[0];
-                int port = Integer.parseInt(ipAndPort[1]);
-                Socket soc = new Socket();
-                soc.connect(new InetSocketAddress(ip, port), 1000); // 1s timeout
-                //2.输入内容
-                String content = "1010";
-                byte[] bs = content.getBytes();
-                OutputStream os = soc.getOutputStream();
-                os.write(bs);
-                //3.关闭
-                soc.close();
-            }
-        } catch (Exception e) {
-            LogUtil.error(e);
+        // 使用后台检查的结果，结果过期或不可用时才会同步连接一次
+        if (!healthMonitor.isKafkaAvailable()) {
             MSException.throwException(Translator.get("load_test_kafka_invalid"));
         }
     }
@@ -279,13 +255,8 @@ public class PerformanceTestService {
             testReport.setStatus(PerformanceTestStatus.Starting.name());
             loadTestReportMapper.insertSelective(testReport);
 
-            LoadTestReportDetail reportDetail = new LoadTestReportDetail();
-            reportDetail.setContent(HEADERS);
-            reportDetail.setReportId(testReport.getId());
-            reportDetail.setPart(1L);
-            loadTestReportDetailMapper.insertSelective(reportDetail);
-            // append \n
-            extLoadTestReportDetailMapper.appendLine(testReport.getId(), "\n");
+            // 第一块只有表头，之后的内容按块追加
+            reportDetailService.init(testReport.getId(), HEADERS + "\n");
             // 保存一个 reportStatus
             LoadTestReportResult reportResult = new LoadTestReportResult();
             reportResult.setId(UUID.randomUUID().toString());
@@ -0,0 +1,37 @@
+package io.metersphere.performance.service;
+
+import io.metersphere.base.domain.LoadTestReportDetail;
+import io.metersphere.base.domain.LoadTestReportDetailExample;
+import io.metersphere.base.mapper.LoadTestReportDetailMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+
+/**
+ * load_test_report_detail 按 part 分块保存，这里只负责创建第一块和删除，追加由数据处理服务完成
+ */
+@Service
+@Transactional(rollbackFor = Exception.class)
+public class ReportDetailService {
+    @Resource
+    private LoadTestReportDetailMapper loadTestReportDetailMapper;
+
+    public void init(String reportId, String content) {
+        insertPart(reportId, 1L, content);
+    }
+
+    public void delete(String reportId) {
+        LoadTestReportDetailExample example = new LoadTestReportDetailExample();
+        example.createCriteria().andReportIdEqualTo(reportId);
+        loadTestReportDetailMapper.deleteByExample(example);
+    }
+
+    private void insertPart(String reportId, long part, String content) {
+        LoadTestReportDetail reportDetail = new LoadTestReportDetail();
+        reportDetail.setReportId(reportId);
+        reportDetail.setPart(part);
+        reportDetail.setContent(content);
+        loadTestReportDetailMapper.insertSelective(reportDetail);
+    }
+}
@@ -0,0 +1,154 @@
+package io.metersphere.performance.service;
+
+import io.metersphere.commons.cache.CacheEvictionChannel;
+import io.metersphere.commons.constants.ReportKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 缓存已完成报告解析后的结果，已完成的报告内容不再变化，再次打开时不需要读取 report_value
+ * <p>
+ * 按 report_value 的字符数计算占用，超出上限时淘汰最久未使用的结果；缓存的对象由所有请求共用，读取时返回副本。
+ * 报告状态变化时通过 {@link CacheEvictionChannel} 通知所有节点清除，没有收到通知时按 ttl 过期
+ */
+@Service
+public class ReportResultCache {
+    private static final String CACHE_NAME = "report-result";
+
+    @Value("${report.result-cache.max-weight:33554432}")
+    private long maxWeight;
+
+    @Value("${report.result-cache.ttl:3600000}")
+    private long ttl;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private CacheEvictionChannel cacheEvictionChannel;
+
+    private final Map<String, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private Counter hitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        hitCounter = meterRegistry.counter("ms.report.result.cache", "result", "hit");
+        missCounter = meterRegistry.counter("ms.report.result.cache", "result", "miss");
+        Gauge.builder("ms.report.result.cache.weight", this, c -> c.getWeight()).register(meterRegistry);
+        cacheEvictionChannel.subscribe(CACHE_NAME, this::evictLocal);
+    }
+
+    /**
+     * @param copier 复制缓存的对象，调用方修改返回值不影响缓存
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(String reportId, ReportKeys reportKey, UnaryOperator<T> copier) {
+        String key = key(reportId, reportKey);
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expireTime <= System.currentTimeMillis()) {
+            cache.remove(key);
+            weight -= entry.weight;
+            entry = null;
+        }
+        if (entry == null) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return copier.apply((T) entry.value);
+    }
+
+    /**
+     * 放入后 value 由缓存持有，调用方不能再修改
+     */
+    public synchronized void put(String reportId, ReportKeys reportKey, Object value, long valueWeight) {
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        Entry old = cache.put(key(reportId, reportKey), new Entry(value, valueWeight, System.currentTimeMillis() + ttl));
+        if (old != null) {
+            weight -= old.weight;
+        }
+        weight += valueWeight;
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            weight -= iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 在事务中调用时，事务结束后再清除一次并通知其他节点，避免提交前重新缓存旧结果
+     */
+    public void invalidate(String reportId) {
+        evictLocal(reportId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictAndPublish(reportId);
+                }
+            });
+        } else {
+            evictAndPublish(reportId);
+        }
+    }
+
+    private void evictAndPublish(String reportId) {
+        evictLocal(reportId);
+        cacheEvictionChannel.publish(CACHE_NAME, reportId);
+    }
+
+    private synchronized void evictLocal(String reportId) {
+        if (reportId == null) {
+            cache.clear();
+            weight = 0;
+            return;
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(reportId + ":")) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized long getWeight() {
+        return weight;
+    }
+
+    private String key(String reportId, ReportKeys reportKey) {
+        return reportId + ":" + reportKey.name();
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long weight;
+        private final long expireTime;
+
+        Entry(Object value, long weight, long expireTime) {
+            this.value = value;
+            this.weight = weight;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -4,29 +4,46 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.*;
+import io.metersphere.base.mapper.ext.ExtLoadTestReportLogMapper;
 import io.metersphere.base.mapper.ext.ExtLoadTestReportMapper;
 import io.metersphere.commons.constants.PerformanceTestStatus;
 import io.metersphere.commons.constants.ReportKeys;
 import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.BeanUtils;
 import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.ServiceUtils;
 import io.metersphere.controller.request.OrderRequest;
 import io.metersphere.dto.LogDetailDTO;
+import io.metersphere.dto.LogPartDTO;
 import io.metersphere.dto.ReportDTO;
+import io.metersphere.dto.ReportStatusDTO;
 import io.metersphere.performance.base.*;
 import io.metersphere.performance.controller.request.ReportRequest;
 import io.metersphere.performance.engine.Engine;
 import io.metersphere.performance.engine.EngineFactory;
 import io.metersphere.service.TestResourceService;
+import io.metersphere.websocket.ReportWatcher;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
@@ -43,9 +60,17 @@ public class ReportService {
     @Resource
     private LoadTestReportLogMapper loadTestReportLogMapper;
     @Resource
+    private ExtLoadTestReportLogMapper extLoadTestReportLogMapper;
+    @Resource
     private TestResourceService testResourceService;
     @Resource
-    private LoadTestReportDetailMapper loadTestReportDetailMapper;
+    private ReportDetailService reportDetailService;
+    @Resource
+    private ReportWatcher reportWatcher;
+    @Resource
+    private ReportResultCache reportResultCache;
+    @Resource
+    private CapacityLedger capacityLedger;
 
     public List<ReportDTO> getRecentReportList(ReportRequest request) {
         List<OrderRequest> orders = new ArrayList<>();
@@ -92,11 +117,11 @@ public class ReportService {
         loadTestReportResultMapper.deleteByExample(loadTestReportResultExample);
 
         // delete load_test_report_detail
-        LoadTestReportDetailExample example = new LoadTestReportDetailExample();
-        example.createCriteria().andReportIdEqualTo(reportId);
-        loadTestReportDetailMapper.deleteByExample(example);
+        reportDetailService.delete(reportId);
 
         loadTestReportMapper.deleteByPrimaryKey(reportId);
+        reportResultCache.invalidate(reportId);
+        capacityLedger.release(reportId);
     }
 
     public void stopEngine(LoadTestWithBLOBs loadTest, Engine engine) {
@@ -119,54 +144,85 @@ public class ReportService {
         return loadTestReportResults.get(0).getReportValue();
     }
 
+    /**
+     * 一次查询多个结果，不存在的 key 不返回
+     */
+    public Map<ReportKeys, String> getReportContents(String id, List<ReportKeys> reportKeys) {
+        LoadTestReportResultExample example = new LoadTestReportResultExample();
+        example.createCriteria().andReportIdEqualTo(id)
+                .andReportKeyIn(reportKeys.stream().map(ReportKeys::name).collect(Collectors.toList()));
+        Map<ReportKeys, String> contents = new EnumMap<>(ReportKeys.class);
+        loadTestReportResultMapper.selectByExampleWithBLOBs(example)
+                .forEach(r -> contents.put(ReportKeys.valueOf(r.getReportKey()), r.getReportValue()));
+        return contents;
+    }
+
     public List<Statistics> getReportStatistics(String id) {
-        checkReportStatus(id);
-        String reportValue = getContent(id, ReportKeys.RequestStatistics);
-        return JSON.parseArray(reportValue, Statistics.class);
+        return getResult(id, ReportKeys.RequestStatistics, content -> JSON.parseArray(content, Statistics.class));
     }
 
     public List<Errors> getReportErrors(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.Errors);
-        return JSON.parseArray(content, Errors.class);
+        return getResult(id, ReportKeys.Errors, content -> JSON.parseArray(content, Errors.class));
     }
 
     public List<ErrorsTop5> getReportErrorsTOP5(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ErrorsTop5);
-        return JSON.parseArray(content, ErrorsTop5.class);
+        return getResult(id, ReportKeys.ErrorsTop5, content -> JSON.parseArray(content, ErrorsTop5.class));
+    }
+
+    /**
+     * 启动时各个节点分配的并发数，之前的报告没有记录时返回 null
+     */
+    public Placement getPlacement(String id) {
+        String content = getReportContents(id, Collections.singletonList(ReportKeys.Placement)).get(ReportKeys.Placement);
+        return content == null ? null : JSON.parseObject(content, Placement.class);
     }
 
     public TestOverview getTestOverview(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.Overview);
-        return JSON.parseObject(content, TestOverview.class);
+        return getResult(id, ReportKeys.Overview, content -> JSON.parseObject(content, TestOverview.class));
     }
 
     public ReportTimeInfo getReportTimeInfo(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.TimeInfo);
-        return JSON.parseObject(content, ReportTimeInfo.class);
+        return getResult(id, ReportKeys.TimeInfo, content -> JSON.parseObject(content, ReportTimeInfo.class),
+                info -> BeanUtils.copyBean(new ReportTimeInfo(), info));
     }
 
     public List<ChartsData> getLoadChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.LoadChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getResult(id, ReportKeys.LoadChart, content -> JSON.parseArray(content, ChartsData.class), this::copyChartsData);
     }
 
     public List<ChartsData> getResponseTimeChartData(String id) {
-        checkReportStatus(id);
-        String content = getContent(id, ReportKeys.ResponseTimeChart);
-        return JSON.parseArray(content, ChartsData.class);
+        return getResult(id, ReportKeys.ResponseTimeChart, content -> JSON.parseArray(content, ChartsData.class), this::copyChartsData);
+    }
+
+    /**
+     * 已完成报告的结果不再变化，解析后缓存，再次读取时不查询数据库；缓存的对象共用，返回副本
+     */
+    private <T> T getResult(String id, ReportKeys reportKey, Function<String, T> parser, UnaryOperator<T> copier) {
+        T result = reportResultCache.get(id, reportKey, copier);
+        if (result != null) {
+            return result;
+        }
+        String reportStatus = checkReportStatus(id);
+        String content = getContent(id, reportKey);
+        result = parser.apply(content);
+        if (StringUtils.equals(PerformanceTestStatus.Completed.name(), reportStatus) && result != null) {
+            reportResultCache.put(id, reportKey, result, content.length());
+            return copier.apply(result);
+        }
+        return result;
+    }
+
+    private List<ChartsData> copyChartsData(List<ChartsData> chartsData) {
+        return chartsData.stream().map(data -> BeanUtils.copyBean(new ChartsData(), data)).collect(Collectors.toList());
     }
 
-    public void checkReportStatus(String reportId) {
+    public String checkReportStatus(String reportId) {
         LoadTestReport loadTestReport = loadTestReportMapper.selectByPrimaryKey(reportId);
         String reportStatus = loadTestReport.getStatus();
         if (StringUtils.equals(PerformanceTestStatus.Error.name(), reportStatus)) {
             MSException.throwException("Report generation error!");
         }
+        return reportStatus;
     }
 
     public LoadTestReportWithBLOBs getLoadTestReport(String id) {
@@ -212,27 +268,112 @@ public class ReportService {
         return loadTestReportLogMapper.selectByExampleWithBLOBs(example);
     }
 
-    public void downloadLog(HttpServletResponse response, String reportId, String resourceId) throws Exception {
-        LoadTestReportLogExample example = new LoadTestReportLogExample();
-        LoadTestReportLogExample.Criteria criteria = example.createCriteria();
-        criteria.andReportIdEqualTo(reportId).andResourceIdEqualTo(resourceId);
-        example.setOrderByClause("part");
+    /**
+     * 一次查询按 part 顺序流式输出日志，支持 Range 断点续传，不分段请求时可按 Accept-Encoding 压缩输出
+     * <p>
+     * 不在事务中执行，下载较慢时不会长时间占用事务；输出不超过按长度算出的 end，之后追加的内容不影响本次下载
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void downloadLog(HttpServletRequest request, HttpServletResponse response, String reportId, String resourceId) throws Exception {
+        List<LogPartDTO> parts = extLoadTestReportLogMapper.selectPartLength(reportId, resourceId);
+        long total = parts.stream().mapToLong(LogPartDTO::getLength).sum();
+
+        response.setContentType("application/x-download");
+        response.addHeader("Content-Disposition", "attachment;filename=jmeter.log");
+        response.setHeader("Accept-Ranges", "bytes");
+        // 是否压缩取决于 Accept-Encoding，缓存需要按它区分
+        response.setHeader("Vary", "Accept-Encoding");
+        // 日志只会追加，块数和总长度不变时内容不变
+        String etag = "\"" + parts.size() + "-" + total + "\"";
+        response.setHeader("ETag", etag);
+
+        long start = 0;
+        long end = total - 1;
+        String range = request.getHeader("Range");
+        // 日志已变化时 If-Range 不匹配，返回全部内容，避免拼接出不同版本的内容
+        String ifRange = request.getHeader("If-Range");
+        // 只支持单个区间，多个区间时返回全部内容
+        boolean partial = StringUtils.startsWith(range, "bytes=") && !StringUtils.contains(range, ",")
+                && (ifRange == null || StringUtils.equals(ifRange, etag));
+        if (partial) {
+            long[] bounds = parseRange(range, total);
+            if (bounds == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + total);
+                return;
+            }
+            start = bounds[0];
+            end = bounds[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + total);
+        }
+        boolean gzip = !partial && StringUtils.contains(request.getHeader("Accept-Encoding"), "gzip");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        } else {
+            response.setContentLengthLong(end - start + 1);
+        }
 
-        long count = loadTestReportLogMapper.countByExample(example);
+        // 跳过 start 之前的 part
+        long fromPart = 0;
+        long offset = 0;
+        for (LogPartDTO part : parts) {
+            fromPart = part.getPart();
+            if (offset + part.getLength() > start) {
+                break;
+            }
+            offset += part.getLength();
+        }
 
-        try (OutputStream outputStream = response.getOutputStream()) {
-            response.setContentType("application/x-download");
-            response.addHeader("Content-Disposition", "attachment;filename=jmeter.log");
-            for (long i = 1; i <= count; i++) {
-                example.clear();
-                LoadTestReportLogExample.Criteria innerCriteria = example.createCriteria();
-                innerCriteria.andReportIdEqualTo(reportId).andResourceIdEqualTo(resourceId).andPartEqualTo(i);
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(response.getOutputStream()) : response.getOutputStream()) {
+            final long first = start;
+            final long last = end;
+            long[] position = {offset};
+            extLoadTestReportLogMapper.selectContent(reportId, resourceId, fromPart, context -> {
+                if (position[0] > last) {
+                    context.stop();
+                    return;
+                }
+                byte[] bytes = StringUtils.defaultString(context.getResultObject().getContent()).getBytes(StandardCharsets.UTF_8);
+                int from = (int) Math.max(0, first - position[0]);
+                int to = (int) Math.min(bytes.length, last - position[0] + 1);
+                try {
+                    if (from < to) {
+                        outputStream.write(bytes, from, to - from);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                position[0] += bytes.length;
+            });
+        }
+    }
 
-                List<LoadTestReportLog> loadTestReportLogs = loadTestReportLogMapper.selectByExampleWithBLOBs(example);
-                LoadTestReportLog content = loadTestReportLogs.get(0);
-                outputStream.write(content.getContent().getBytes());
-                outputStream.flush();
+    /**
+     * 解析 bytes=start-end、bytes=start-、bytes=-suffix，超出范围时返回 null
+     */
+    private long[] parseRange(String range, long total) {
+        String[] bounds = StringUtils.substringAfter(range, "bytes=").trim().split("-", -1);
+        if (bounds.length != 2 || total == 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (StringUtils.isBlank(bounds[0])) {
+                long suffix = Long.parseLong(bounds[1].trim());
+                start = Math.max(0, total - suffix);
+                end = total - 1;
+            } else {
+                start = Long.parseLong(bounds[0].trim());
+                end = StringUtils.isBlank(bounds[1]) ? total - 1 : Math.min(Long.parseLong(bounds[1].trim()), total - 1);
+            }
+            if (start > end || start >= total) {
+                return null;
             }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -240,10 +381,24 @@ public class ReportService {
         return loadTestReportMapper.selectByPrimaryKey(reportId);
     }
 
+    /**
+     * 只查询报告状态和更新时间，不读取报告和结果内容
+     */
+    public ReportStatusDTO getReportStatus(String reportId, List<ReportKeys> reportKeys) {
+        return extLoadTestReportMapper.selectReportStatus(reportId,
+                reportKeys.stream().map(ReportKeys::name).collect(Collectors.toList()));
+    }
+
     public void updateStatus(String reportId, String status) {
         LoadTestReportWithBLOBs report = new LoadTestReportWithBLOBs();
         report.setId(reportId);
         report.setStatus(status);
         loadTestReportMapper.updateByPrimaryKeySelective(report);
+        reportResultCache.invalidate(reportId);
+        if (CapacityLedger.isFinished(status)) {
+            capacityLedger.release(reportId);
+        }
+        // 通知正在查看报告的页面
+        reportWatcher.publish(reportId);
     }
 }
@@ -14,6 +14,8 @@ public class ApiKeyHandler {
 
     public static final String API_SIGNATURE = "signature";
 
+    private static final long SIGNATURE_TIMEOUT = 1800000;
+
     public static String getUser(HttpServletRequest request) {
         if (request == null) {
             return null;
@@ -32,33 +34,41 @@ public class ApiKeyHandler {
         if (StringUtils.isBlank(accessKey) || StringUtils.isBlank(signature)) {
             return null;
         }
-        UserKey userKey = CommonBeanFactory.getBean(UserKeyService.class).getUserKey(accessKey);
+        UserKeyService userKeyService = CommonBeanFactory.getBean(UserKeyService.class);
+        // 同一个签名在有效期内重复调用时不再解密
+        String verifiedUser = userKeyService.getVerifiedUser(accessKey, signature);
+        if (verifiedUser != null) {
+            return verifiedUser;
+        }
+        UserKey userKey = userKeyService.getUserKey(accessKey);
         if (userKey == null) {
             throw new RuntimeException("invalid accessKey");
         }
         String signatureDecrypt;
         try {
-            signatureDecrypt = CodingUtil.aesDecrypt(signature, userKey.getSecretKey(), accessKey);
+            signatureDecrypt = StringUtils.trimToNull(CodingUtil.aesDecrypt(signature, userKey.getSecretKey(), accessKey));
         } catch (Throwable t) {
             throw new RuntimeException("invalid signature");
         }
-        String[] signatureArray = StringUtils.split(StringUtils.trimToNull(signatureDecrypt), "|");
-        if (signatureArray.length < 2) {
+        // 格式为 accessKey|...|timestamp
+        int first = StringUtils.indexOf(signatureDecrypt, '|');
+        if (first < 0) {
             throw new RuntimeException("invalid signature");
         }
-        if (!StringUtils.equals(accessKey, signatureArray[0])) {
+        if (first != accessKey.length() || !signatureDecrypt.startsWith(accessKey)) {
             throw new RuntimeException("invalid signature");
         }
         long signatureTime;
         try {
-            signatureTime = Long.parseLong(signatureArray[signatureArray.length - 1]);
+            signatureTime = Long.parseLong(signatureDecrypt.substring(signatureDecrypt.lastIndexOf('|') + 1));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-        if (Math.abs(System.currentTimeMillis() - signatureTime) > 1800000) {
+        if (Math.abs(System.currentTimeMillis() - signatureTime) > SIGNATURE_TIMEOUT) {
             //签名30分钟超时
             throw new RuntimeException("expired signature");
         }
+        userKeyService.putVerifiedUser(accessKey, signature, userKey.getUserId(), signatureTime + SIGNATURE_TIMEOUT);
         return userKey.getUserId();
     }
 }
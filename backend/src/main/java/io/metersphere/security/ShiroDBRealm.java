@@ -1,8 +1,8 @@
 package io.metersphere.security;
 
 
-import io.metersphere.base.domain.Role;
 import io.metersphere.commons.constants.UserSource;
+import io.metersphere.commons.constants.UserStatus;
 import io.metersphere.commons.user.SessionUser;
 import io.metersphere.commons.utils.SessionUtils;
 import io.metersphere.dto.UserDTO;
@@ -22,8 +22,6 @@ import org.springframework.beans.factory.annotation.Value;
 import javax.annotation.Resource;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 
 /**
@@ -54,11 +52,13 @@ public class ShiroDBRealm extends AuthorizingRealm {
     }
 
     public static AuthorizationInfo getAuthorizationInfo(String userId, UserService userService) {
+        // 禁用的用户不能再访问，状态和角色都有缓存，修改状态或角色时清除
+        if (StringUtils.equals(userService.getUserStatus(userId), UserStatus.DISABLED)) {
+            throw new DisabledAccountException();
+        }
         SimpleAuthorizationInfo authorizationInfo = new SimpleAuthorizationInfo();
         // roles 内容填充
-        UserDTO userDTO = userService.getUserDTO(userId);
-        Set<String> roles = userDTO.getRoles().stream().map(Role::getId).collect(Collectors.toSet());
-        authorizationInfo.setRoles(roles);
+        authorizationInfo.setRoles(userService.getUserRoleIds(userId));
         return authorizationInfo;
     }
 
@@ -0,0 +1,49 @@
+package io.metersphere.security;
+
+import io.metersphere.commons.cache.CacheEvictionChannel;
+import io.metersphere.commons.cache.VersionedCache;
+import io.metersphere.dto.UserRoleDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.function.Function;
+
+/**
+ * 缓存用户的角色和状态，权限检查不再查询数据库
+ * <p>
+ * 修改 user_role 或用户状态后需要调用 {@link #evict(String)}，事务结束后通知所有节点
+ */
+@Component
+public class UserAuthorizationCache {
+
+    // 没有收到清除通知时的兜底过期时间
+    @Value("${authorization.cache.ttl:1800000}")
+    private long ttl;
+
+    @Value("${authorization.cache.max-size:10000}")
+    private int maxSize;
+
+    @Resource
+    private CacheEvictionChannel cacheEvictionChannel;
+
+    private VersionedCache<UserRoleDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new VersionedCache<>("authorization", ttl, maxSize, cacheEvictionChannel);
+    }
+
+    public UserRoleDTO get(String userId, Function<String, UserRoleDTO> loader) {
+        return cache.get(userId, loader);
+    }
+
+    public void evict(String userId) {
+        cache.evict(userId);
+    }
+
+    public void evictAll() {
+        cache.evict(null);
+    }
+}
@@ -4,19 +4,35 @@ import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.FileContentMapper;
 import io.metersphere.base.mapper.FileMetadataMapper;
 import io.metersphere.base.mapper.LoadTestFileMapper;
+import io.metersphere.base.mapper.ext.ExtFileBlobMapper;
+import io.metersphere.commons.constants.FileStorageType;
 import io.metersphere.commons.constants.FileType;
 import io.metersphere.commons.exception.MSException;
+import io.metersphere.config.FileStorageProperties;
+import io.metersphere.service.storage.DatabaseBlobStorage;
+import io.metersphere.service.storage.FileBlobStorage;
+import io.metersphere.service.storage.LocalBlobStorage;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * 文件内容按 SHA-256 保存，相同内容只保存一份，file_blob.ref_count 记录引用的文件数
+ * <p>
+ * file_metadata.content_hash 为空的是旧数据，内容仍在 file_content 中
+ */
 @Service
+@Transactional(rollbackFor = Exception.class)
 public class FileService {
     @Resource
     private FileMetadataMapper fileMetadataMapper;
@@ -24,11 +40,42 @@ public class FileService {
     private LoadTestFileMapper loadTestFileMapper;
     @Resource
     private FileContentMapper fileContentMapper;
+    @Resource
+    private ExtFileBlobMapper extFileBlobMapper;
+    @Resource
+    private FileStorageProperties fileStorageProperties;
+    @Resource
+    private DatabaseBlobStorage databaseBlobStorage;
+    @Resource
+    private LocalBlobStorage localBlobStorage;
+
+    /**
+     * 文件内容的 SHA-256，旧数据先迁移到 file_blob，文件不存在时返回 null
+     */
+    public String getContentHash(String fileId) {
+        String hash = extFileBlobMapper.selectContentHash(fileId);
+        return hash == null ? migrateLegacyFile(fileId) : hash;
+    }
 
-    public byte[] loadFileAsBytes(String id) {
-        FileContent fileContent = fileContentMapper.selectByPrimaryKey(id);
-
-        return fileContent.getFile();
+    /**
+     * 打开文件内容，文件不存在时返回 null，调用方负责关闭
+     */
+    public InputStream openFile(String fileId) {
+        String hash = extFileBlobMapper.selectContentHash(fileId);
+        if (hash == null) {
+            FileContent fileContent = fileContentMapper.selectByPrimaryKey(fileId);
+            return fileContent == null ? null : new ByteArrayInputStream(fileContent.getFile());
+        }
+        FileBlob blob = extFileBlobMapper.selectBlob(hash);
+        if (blob == null) {
+            return null;
+        }
+        try {
+            return getStorage(blob.getStorage()).open(hash);
+        } catch (IOException e) {
+            MSException.throwException(e);
+        }
+        return null;
     }
 
     public List<FileMetadata> getFileMetadataByTestId(String testId) {
@@ -45,14 +92,21 @@ public class FileService {
         return fileMetadataMapper.selectByExample(example);
     }
 
-    public FileContent getFileContent(String fileId) {
-        return fileContentMapper.selectByPrimaryKey(fileId);
+    public FileMetadata getFileMetadataById(String fileId) {
+        return fileMetadataMapper.selectByPrimaryKey(fileId);
     }
 
     public void deleteFileByIds(List<String> ids) {
         if (CollectionUtils.isEmpty(ids)) {
             return;
         }
+        ids.forEach(id -> {
+            String hash = extFileBlobMapper.selectContentHash(id);
+            if (hash != null) {
+                releaseBlob(hash);
+            }
+        });
+
         FileMetadataExample example = new FileMetadataExample();
         example.createCriteria().andIdIn(ids);
         fileMetadataMapper.deleteByExample(example);
@@ -73,36 +127,107 @@ public class FileService {
         fileMetadata.setType(fileType.name());
         fileMetadataMapper.insert(fileMetadata);
 
-        FileContent fileContent = new FileContent();
-        fileContent.setFileId(fileMetadata.getId());
-        try {
-            fileContent.setFile(file.getBytes());
+        // 上传的文件可以重复读取，先算 hash，内容不存在时再读一遍写入
+        String hash = null;
+        try (InputStream in = file.getInputStream()) {
+            hash = DigestUtils.sha256Hex(in);
         } catch (IOException e) {
             MSException.throwException(e);
         }
-        fileContentMapper.insert(fileContent);
+        acquireBlob(hash, file.getSize(), file::getInputStream);
+        extFileBlobMapper.updateContentHash(fileMetadata.getId(), hash);
 
         return fileMetadata;
     }
 
+    /**
+     * 只复制文件信息，内容共用
+     */
     public FileMetadata copyFile(String fileId) {
         FileMetadata fileMetadata = fileMetadataMapper.selectByPrimaryKey(fileId);
-        FileContent fileContent = getFileContent(fileId);
-        if (fileMetadata != null && fileContent != null) {
-            fileMetadata.setId(UUID.randomUUID().toString());
-            fileMetadata.setCreateTime(System.currentTimeMillis());
-            fileMetadata.setUpdateTime(System.currentTimeMillis());
-            fileMetadataMapper.insert(fileMetadata);
-
-            fileContent.setFileId(fileMetadata.getId());
-            fileContentMapper.insert(fileContent);
+        if (fileMetadata == null) {
+            return null;
+        }
+        String hash = extFileBlobMapper.selectContentHash(fileId);
+        if (hash == null) {
+            hash = migrateLegacyFile(fileId);
+            if (hash == null) {
+                return fileMetadata;
+            }
         }
+        extFileBlobMapper.incrementRef(hash);
+        fileMetadata.setId(UUID.randomUUID().toString());
+        fileMetadata.setCreateTime(System.currentTimeMillis());
+        fileMetadata.setUpdateTime(System.currentTimeMillis());
+        fileMetadataMapper.insert(fileMetadata);
+        extFileBlobMapper.updateContentHash(fileMetadata.getId(), hash);
         return fileMetadata;
     }
 
+    /**
+     * 把旧数据的内容移到 file_blob，之后复制时不再复制内容
+     */
+    private String migrateLegacyFile(String fileId) {
+        FileContent fileContent = fileContentMapper.selectByPrimaryKey(fileId);
+        if (fileContent == null || fileContent.getFile() == null) {
+            return null;
+        }
+        byte[] bytes = fileContent.getFile();
+        String hash = DigestUtils.sha256Hex(bytes);
+        acquireBlob(hash, bytes.length, () -> new ByteArrayInputStream(bytes));
+        extFileBlobMapper.updateContentHash(fileId, hash);
+        fileContentMapper.deleteByPrimaryKey(fileId);
+        return hash;
+    }
+
+    /**
+     * 引用数加一，内容不存在时写入
+     */
+    private void acquireBlob(String hash, long size, ContentSupplier content) {
+        FileBlob blob = new FileBlob();
+        blob.setHash(hash);
+        blob.setSize(size);
+        blob.setRefCount(1);
+        blob.setStorage(fileStorageProperties.getType().name());
+        blob.setCreateTime(System.currentTimeMillis());
+        // 相同内容同时上传时，后插入的会等待先插入的事务结束
+        if (extFileBlobMapper.insertIgnore(blob) == 0) {
+            extFileBlobMapper.incrementRef(hash);
+            return;
+        }
+        try (InputStream in = content.get()) {
+            getStorage(blob.getStorage()).write(hash, in);
+        } catch (IOException e) {
+            MSException.throwException(e);
+        }
+    }
+
+    /**
+     * 引用数减一，没有文件引用时删除内容
+     */
+    private void releaseBlob(String hash) {
+        extFileBlobMapper.decrementRef(hash);
+        FileBlob blob = extFileBlobMapper.selectBlob(hash);
+        if (blob != null && blob.getRefCount() <= 0) {
+            extFileBlobMapper.deleteBlob(hash);
+            getStorage(blob.getStorage()).delete(hash);
+        }
+    }
+
+    private FileBlobStorage getStorage(String storage) {
+        if (FileStorageType.LOCAL.name().equals(storage)) {
+            return localBlobStorage;
+        }
+        return databaseBlobStorage;
+    }
+
     private FileType getFileType(String filename) {
         int s = filename.lastIndexOf(".") + 1;
         String type = filename.substring(s);
         return FileType.valueOf(type.toUpperCase());
     }
-}
\ No newline at end of file
+
+    private interface ContentSupplier {
+        InputStream get() throws IOException;
+    }
+}
@@ -16,6 +16,7 @@ import io.metersphere.dto.OrganizationMemberDTO;
 import io.metersphere.dto.UserDTO;
 import io.metersphere.dto.UserRoleHelpDTO;
 import io.metersphere.i18n.Translator;
+import io.metersphere.security.UserAuthorizationCache;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +36,8 @@ public class OrganizationService {
     @Resource
     private UserRoleMapper userRoleMapper;
     @Resource
+    private UserAuthorizationCache userAuthorizationCache;
+    @Resource
     private ExtUserRoleMapper extUserRoleMapper;
     @Resource
     private UserMapper userMapper;
@@ -101,6 +104,7 @@ public class OrganizationService {
         UserRoleExample userRoleExample = new UserRoleExample();
         userRoleExample.createCriteria().andSourceIdEqualTo(organizationId);
         userRoleMapper.deleteByExample(userRoleExample);
+        userAuthorizationCache.evictAll();
 
         // delete org
         organizationMapper.deleteByPrimaryKey(organizationId);
@@ -161,6 +165,7 @@ public class OrganizationService {
                     .andRoleIdIn(allRoleIds);
             userRoleMapper.deleteByExample(userRoleExample);
         }
+        userAuthorizationCache.evict(userId);
     }
 
     public Integer checkSourceRole(String orgId, String userId, String roleId) {
@@ -11,15 +11,13 @@ import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.controller.request.resourcepool.QueryResourcePoolRequest;
 import io.metersphere.dto.NodeDTO;
 import io.metersphere.dto.TestResourcePoolDTO;
+import io.metersphere.health.HealthMonitor;
 import io.metersphere.i18n.Translator;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.Resource;
 import java.lang.reflect.InvocationTargetException;
@@ -38,14 +36,12 @@ import static io.metersphere.commons.constants.ResourceStatusEnum.VALID;
 @Transactional(rollbackFor = Exception.class)
 public class TestResourcePoolService {
 
-    private final static String nodeControllerUrl = "http://%s:%s/status";
-
     @Resource
     private TestResourcePoolMapper testResourcePoolMapper;
     @Resource
     private TestResourceMapper testResourceMapper;
     @Resource
-    private RestTemplate restTemplateWithTimeOut;
+    private HealthMonitor healthMonitor;
     @Resource
     private LoadTestMapper loadTestMapper;
 
@@ -195,13 +191,8 @@ public class TestResourcePoolService {
     }
 
     private boolean validateNode(NodeDTO node) {
-        try {
-            ResponseEntity<String> entity = restTemplateWithTimeOut.getForEntity(String.format(nodeControllerUrl, node.getIp(), node.getPort()), String.class);
-            return HttpStatus.OK.equals(entity.getStatusCode());
-        } catch (Exception e) {
-            LogUtil.error(e);
-            return false;
-        }
+        // 使用后台检查的结果，新加入、结果过期或不可用的节点才会同步请求
+        return healthMonitor.isNodeAvailable(node);
     }
 
     private void updateTestResource(TestResource testResource) {
@@ -3,26 +3,62 @@ package io.metersphere.service;
 import io.metersphere.base.domain.UserKey;
 import io.metersphere.base.domain.UserKeyExample;
 import io.metersphere.base.mapper.UserKeyMapper;
+import io.metersphere.commons.cache.CacheEvictionChannel;
+import io.metersphere.commons.cache.VersionedCache;
 import io.metersphere.commons.constants.ApiKeyConstants;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.i18n.Translator;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * API key 认证在每个请求上执行，启用的 key 和验证过的签名都在内存中缓存一段时间
+ * <p>
+ * 不存在或未启用的 key 不缓存，避免任意 accessKey 占满缓存；删除/禁用 key 后通过 {@link CacheEvictionChannel} 通知所有节点清除
+ */
 @Service
 public class UserKeyService {
 
+    @Value("${api-key.cache.ttl:60000}")
+    private long keyCacheTtl;
+
+    @Value("${api-key.cache.max-size:1000}")
+    private int keyCacheMaxSize;
+
+    @Value("${api-key.signature-cache.ttl:60000}")
+    private long signatureCacheTtl;
+
+    @Value("${api-key.signature-cache.max-size:10000}")
+    private int signatureCacheMaxSize;
+
+    // accessKey -> 启用的 key
+    private VersionedCache<UserKey> keyCache;
+
+    // accessKey + signature -> 验证通过的签名
+    private VersionedCache<VerifiedSignature> signatureCache;
+
     @Resource
     private UserKeyMapper userKeyMapper;
 
     @Resource
     private UserService userService;
 
+    @Resource
+    private CacheEvictionChannel cacheEvictionChannel;
+
+    @PostConstruct
+    public void init() {
+        keyCache = new VersionedCache<>("user-key", keyCacheTtl, keyCacheMaxSize, cacheEvictionChannel);
+        signatureCache = new VersionedCache<>("user-key-signature", signatureCacheTtl, signatureCacheMaxSize, cacheEvictionChannel);
+    }
+
     public List<UserKey> getUserKeysInfo(String userId) {
         UserKeyExample userKeysExample = new UserKeyExample();
         userKeysExample.createCriteria().andUserIdEqualTo(userId);
@@ -50,11 +86,16 @@ public class UserKeyService {
         userKeys.setSecretKey(RandomStringUtils.randomAlphanumeric(16));
         userKeys.setCreateTime(System.currentTimeMillis());
         userKeyMapper.insert(userKeys);
+        invalidate(userKeys.getAccessKey());
         return userKeyMapper.selectByPrimaryKey(userKeys.getId());
     }
 
     public void deleteUserKey(String id) {
+        UserKey userKey = userKeyMapper.selectByPrimaryKey(id);
         userKeyMapper.deleteByPrimaryKey(id);
+        if (userKey != null) {
+            invalidate(userKey.getAccessKey());
+        }
     }
 
     public void activeUserKey(String id) {
@@ -62,6 +103,7 @@ public class UserKeyService {
         userKeys.setId(id);
         userKeys.setStatus(ApiKeyConstants.ACTIVE.name());
         userKeyMapper.updateByPrimaryKeySelective(userKeys);
+        invalidateById(id);
     }
 
     public void disableUserKey(String id) {
@@ -69,9 +111,53 @@ public class UserKeyService {
         userKeys.setId(id);
         userKeys.setStatus(ApiKeyConstants.DISABLED.name());
         userKeyMapper.updateByPrimaryKeySelective(userKeys);
+        invalidateById(id);
     }
 
     public UserKey getUserKey(String accessKey) {
+        return keyCache.get(accessKey, this::selectActiveUserKey);
+    }
+
+    /**
+     * 返回已验证过的签名对应的用户，没有验证过或已过期时返回 null
+     */
+    public String getVerifiedUser(String accessKey, String signature) {
+        // loader 返回 null 时不缓存，只查看已有的结果
+        VerifiedSignature verified = signatureCache.get(signatureKey(accessKey, signature), key -> null);
+        if (verified == null || verified.expireTime <= System.currentTimeMillis()) {
+            return null;
+        }
+        return verified.userId;
+    }
+
+    /**
+     * 缓存验证通过的签名，缓存时间不超过签名本身的有效期
+     */
+    public void putVerifiedUser(String accessKey, String signature, String userId, long signatureExpireTime) {
+        long expireTime = Math.min(System.currentTimeMillis() + signatureCacheTtl, signatureExpireTime);
+        VerifiedSignature verified = new VerifiedSignature(userId, expireTime);
+        // 没有缓存时放入
+        signatureCache.get(signatureKey(accessKey, signature), key -> verified);
+    }
+
+    private String signatureKey(String accessKey, String signature) {
+        return accessKey + "|" + signature;
+    }
+
+    private void invalidate(String accessKey) {
+        keyCache.evict(accessKey);
+        // 只在修改 key 时执行，签名缓存全部清除
+        signatureCache.evict(null);
+    }
+
+    private void invalidateById(String id) {
+        UserKey userKey = userKeyMapper.selectByPrimaryKey(id);
+        if (userKey != null) {
+            invalidate(userKey.getAccessKey());
+        }
+    }
+
+    private UserKey selectActiveUserKey(String accessKey) {
         UserKeyExample userKeyExample = new UserKeyExample();
         userKeyExample.createCriteria().andAccessKeyEqualTo(accessKey).andStatusEqualTo(ApiKeyConstants.ACTIVE.name());
         List<UserKey> userKeysList = userKeyMapper.selectByExample(userKeyExample);
@@ -80,4 +166,14 @@ public class UserKeyService {
         }
         return null;
     }
+
+    private static class VerifiedSignature {
+        private final String userId;
+        private final long expireTime;
+
+        VerifiedSignature(String userId, long expireTime) {
+            this.userId = userId;
+            this.expireTime = expireTime;
+        }
+    }
 }
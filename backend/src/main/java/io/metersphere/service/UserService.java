@@ -22,6 +22,7 @@ import io.metersphere.controller.request.organization.QueryOrgMemberRequest;
 import io.metersphere.dto.UserDTO;
 import io.metersphere.dto.UserRoleDTO;
 import io.metersphere.i18n.Translator;
+import io.metersphere.security.UserAuthorizationCache;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.authc.*;
@@ -60,6 +61,8 @@ public class UserService {
     @Lazy
     @Resource
     private WorkspaceService workspaceService;
+    @Resource
+    private UserAuthorizationCache userAuthorizationCache;
 
     public UserDTO insert(UserRequest user) {
         checkUserParam(user);
@@ -75,6 +78,7 @@ public class UserService {
         if (!roles.isEmpty()) {
             insertUserRole(roles, user.getId());
         }
+        userAuthorizationCache.evict(user.getId());
         return getUserDTO(user.getId());
     }
 
@@ -228,8 +232,48 @@ public class UserService {
         return getUserDTO(users.get(0).getId());
     }
 
+    /**
+     * 角色信息从缓存读取，返回副本
+     */
     public UserRoleDTO getUserRole(String userId) {
+        UserRoleDTO cached = userAuthorizationCache.get(userId, this::loadUserRole);
         UserRoleDTO userRoleDTO = new UserRoleDTO();
+        userRoleDTO.setUserId(cached.getUserId());
+        userRoleDTO.setStatus(cached.getStatus());
+        if (cached.getRoles() != null) {
+            userRoleDTO.setRoles(new ArrayList<>(cached.getRoles()));
+        }
+        if (cached.getUserRoles() != null) {
+            userRoleDTO.setUserRoles(new ArrayList<>(cached.getUserRoles()));
+        }
+        return userRoleDTO;
+    }
+
+    /**
+     * 权限检查使用，不复制
+     */
+    public Set<String> getUserRoleIds(String userId) {
+        List<Role> roles = userAuthorizationCache.get(userId, this::loadUserRole).getRoles();
+        if (roles == null) {
+            return new HashSet<>();
+        }
+        return roles.stream().map(Role::getId).collect(Collectors.toSet());
+    }
+
+    /**
+     * 权限检查使用，用户不存在时返回 null
+     */
+    public String getUserStatus(String userId) {
+        return userAuthorizationCache.get(userId, this::loadUserRole).getStatus();
+    }
+
+    private UserRoleDTO loadUserRole(String userId) {
+        UserRoleDTO userRoleDTO = new UserRoleDTO();
+        userRoleDTO.setUserId(userId);
+        User user = userMapper.selectByPrimaryKey(userId);
+        if (user != null) {
+            userRoleDTO.setStatus(user.getStatus());
+        }
         //
         UserRoleExample userRoleExample = new UserRoleExample();
         userRoleExample.createCriteria().andUserIdEqualTo(userId);
@@ -273,6 +317,7 @@ public class UserService {
         userRoleMapper.deleteByExample(example);
 
         userMapper.deleteByPrimaryKey(userId);
+        userAuthorizationCache.evict(userId);
     }
 
     public void updateUserRole(UserRequest user) {
@@ -295,6 +340,7 @@ public class UserService {
         if (!roles.isEmpty()) {
             insertUserRole(roles, user.getId());
         }
+        userAuthorizationCache.evict(userId);
 
         UserExample example = new UserExample();
         UserExample.Criteria criteria = example.createCriteria();
@@ -311,6 +357,10 @@ public class UserService {
     public void updateUser(User user) {
         user.setUpdateTime(System.currentTimeMillis());
         userMapper.updateByPrimaryKeySelective(user);
+        // 状态和角色一起缓存，启用/禁用后清除
+        if (user.getStatus() != null) {
+            userAuthorizationCache.evict(user.getId());
+        }
     }
 
     public void switchUserRole(String sign, String sourceId) {
@@ -366,6 +416,7 @@ public class UserService {
                         userRole.setCreateTime(System.currentTimeMillis());
                         userRoleMapper.insertSelective(userRole);
                     }
+                    userAuthorizationCache.evict(userId);
                 }
             }
         }
@@ -384,6 +435,7 @@ public class UserService {
         }
 
         userRoleMapper.deleteByExample(example);
+        userAuthorizationCache.evict(userId);
     }
 
     public void addOrganizationMember(AddOrgMemberRequest request) {
@@ -405,6 +457,7 @@ public class UserService {
                         userRole.setCreateTime(System.currentTimeMillis());
                         userRoleMapper.insertSelective(userRole);
                     }
+                    userAuthorizationCache.evict(userId);
                 }
             }
         }
@@ -422,6 +475,7 @@ public class UserService {
         }
 
         userRoleMapper.deleteByExample(userRoleExample);
+        userAuthorizationCache.evict(userId);
     }
 
     public List<User> getOrgMemberList(QueryOrgMemberRequest request) {
@@ -18,6 +18,7 @@ import io.metersphere.dto.UserRoleHelpDTO;
 import io.metersphere.dto.WorkspaceDTO;
 import io.metersphere.dto.WorkspaceMemberDTO;
 import io.metersphere.i18n.Translator;
+import io.metersphere.security.UserAuthorizationCache;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,6 +42,8 @@ public class WorkspaceService {
     @Resource
     private UserRoleMapper userRoleMapper;
     @Resource
+    private UserAuthorizationCache userAuthorizationCache;
+    @Resource
     private UserMapper userMapper;
     @Resource
     private ExtOrganizationMapper extOrganizationMapper;
@@ -109,6 +112,7 @@ public class WorkspaceService {
         UserRoleExample userRoleExample = new UserRoleExample();
         userRoleExample.createCriteria().andSourceIdEqualTo(workspaceId);
         userRoleMapper.deleteByExample(userRoleExample);
+        userAuthorizationCache.evictAll();
 
         // delete workspace
         workspaceMapper.deleteByPrimaryKey(workspaceId);
@@ -231,6 +235,7 @@ public class WorkspaceService {
                     .andRoleIdIn(allRoleIds);
             userRoleMapper.deleteByExample(userRoleExample);
         }
+        userAuthorizationCache.evict(userId);
     }
 
     public Integer checkSourceRole(String workspaceId, String userId, String roleId) {
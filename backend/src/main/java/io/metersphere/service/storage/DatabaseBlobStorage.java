@@ -0,0 +1,103 @@
+package io.metersphere.service.storage;
+
+import io.metersphere.base.mapper.ext.ExtFileBlobMapper;
+import io.metersphere.commons.constants.FileStorageType;
+import io.metersphere.commons.utils.CompressUtils;
+import io.metersphere.config.FileStorageProperties;
+import org.apache.commons.io.IOUtils;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 内容按固定大小分块压缩后保存在 file_blob_content，读取时逐块查询，内存中最多只有一块
+ */
+@Service
+public class DatabaseBlobStorage implements FileBlobStorage {
+    @Resource
+    private ExtFileBlobMapper extFileBlobMapper;
+    @Resource
+    private FileStorageProperties fileStorageProperties;
+
+    @Override
+    public FileStorageType getType() {
+        return FileStorageType.DB;
+    }
+
+    @Override
+    public void write(String hash, InputStream in) throws IOException {
+        byte[] buffer = new byte[fileStorageProperties.getChunkSize()];
+        int part = 0;
+        int length;
+        while ((length = IOUtils.read(in, buffer)) > 0) {
+            byte[] content = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            extFileBlobMapper.insertContentPart(hash, part++, CompressUtils.encode(content, CompressUtils.DEFAULT_CODEC));
+            if (length < buffer.length) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) {
+        return new ChunkInputStream(hash);
+    }
+
+    @Override
+    public void delete(String hash) {
+        extFileBlobMapper.deleteContent(hash);
+    }
+
+    private class ChunkInputStream extends InputStream {
+        private final String hash;
+        private int part;
+        private byte[] chunk;
+        private int position;
+        private boolean eof;
+
+        ChunkInputStream(String hash) {
+            this.hash = hash;
+        }
+
+        private boolean nextChunk() {
+            while (!eof && (chunk == null || position >= chunk.length)) {
+                byte[] content = extFileBlobMapper.selectContentPart(hash, part++);
+                chunk = content == null ? null : (byte[]) CompressUtils.decode(content);
+                position = 0;
+                eof = chunk == null;
+            }
+            return !eof;
+        }
+
+        @Override
+        public int read() {
+            if (!nextChunk()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            chunk = null;
+            eof = true;
+        }
+    }
+}
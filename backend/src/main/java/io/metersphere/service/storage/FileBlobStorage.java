@@ -0,0 +1,23 @@
+package io.metersphere.service.storage;
+
+import io.metersphere.commons.constants.FileStorageType;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按内容 hash 保存文件内容，读写都是流式的
+ */
+public interface FileBlobStorage {
+
+    FileStorageType getType();
+
+    void write(String hash, InputStream in) throws IOException;
+
+    InputStream open(String hash) throws IOException;
+
+    /**
+     * 在引用数降为 0 的事务中调用
+     */
+    void delete(String hash);
+}
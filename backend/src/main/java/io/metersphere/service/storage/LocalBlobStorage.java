@@ -0,0 +1,97 @@
+package io.metersphere.service.storage;
+
+import io.metersphere.base.mapper.ext.ExtFileBlobMapper;
+import io.metersphere.commons.constants.FileStorageType;
+import io.metersphere.commons.utils.CompressUtils;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.config.FileStorageProperties;
+import org.apache.commons.io.IOUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 内容压缩后保存在本地目录，按 hash 前缀分两级子目录
+ */
+@Service
+public class LocalBlobStorage implements FileBlobStorage {
+    @Resource
+    private ExtFileBlobMapper extFileBlobMapper;
+    @Resource
+    private FileStorageProperties fileStorageProperties;
+
+    @Override
+    public FileStorageType getType() {
+        return FileStorageType.LOCAL;
+    }
+
+    private Path getPath(String hash) {
+        return Paths.get(fileStorageProperties.getLocalDir(), hash.substring(0, 2), hash.substring(2, 4), hash);
+    }
+
+    @Override
+    public void write(String hash, InputStream in) throws IOException {
+        Path path = getPath(hash);
+        Files.createDirectories(path.getParent());
+        // 先写临时文件再改名，读取方不会看到写了一半的文件
+        Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+        try {
+            try (OutputStream out = CompressUtils.compressStream(Files.newOutputStream(temp))) {
+                IOUtils.copy(in, out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        // 事务回滚时 file_blob 中没有记录，删除已写入的文件
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        deleteFile(hash);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return CompressUtils.decompressStream(Files.newInputStream(getPath(hash)));
+    }
+
+    @Override
+    public void delete(String hash) {
+        // 文件删除不能回滚，提交后再删；期间相同内容被重新上传时保留
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (extFileBlobMapper.selectBlob(hash) == null) {
+                        deleteFile(hash);
+                    }
+                }
+            });
+        } else {
+            deleteFile(hash);
+        }
+    }
+
+    private void deleteFile(String hash) {
+        try {
+            Files.deleteIfExists(getPath(hash));
+        } catch (IOException e) {
+            LogUtil.error("Failed to delete file blob: " + hash, e);
+        }
+    }
+}
@@ -9,10 +9,12 @@ import io.metersphere.commons.constants.RoleConstants;
 import io.metersphere.commons.utils.PageUtils;
 import io.metersphere.commons.utils.Pager;
 import io.metersphere.commons.utils.SessionUtils;
+import io.metersphere.excel.domain.ExcelImportProgress;
 import io.metersphere.excel.domain.ExcelResponse;
 import io.metersphere.track.dto.TestCaseDTO;
 import io.metersphere.track.request.testcase.QueryTestCaseRequest;
 import io.metersphere.track.request.testcase.TestCaseBatchRequest;
+import io.metersphere.track.service.TestCaseImportService;
 import io.metersphere.track.service.TestCaseService;
 import org.apache.shiro.authz.annotation.Logical;
 import org.apache.shiro.authz.annotation.RequiresRoles;
@@ -30,6 +32,8 @@ public class TestCaseController {
 
     @Resource
     TestCaseService testCaseService;
+    @Resource
+    TestCaseImportService testCaseImportService;
 
     @PostMapping("/list/{goPage}/{pageSize}")
     public Pager<List<TestCaseDTO>> list(@PathVariable int goPage, @PathVariable int pageSize, @RequestBody QueryTestCaseRequest request) {
@@ -102,7 +106,19 @@ public class TestCaseController {
     @PostMapping("/import/{projectId}")
     @RequiresRoles(value = {RoleConstants.TEST_USER, RoleConstants.TEST_MANAGER}, logical = Logical.OR)
     public ExcelResponse testCaseImport(MultipartFile file, @PathVariable String projectId) throws NoSuchFieldException {
-        return testCaseService.testCaseImport(file, projectId);
+        return testCaseImportService.testCaseImport(file, projectId);
+    }
+
+    @PostMapping("/import/async/{projectId}")
+    @RequiresRoles(value = {RoleConstants.TEST_USER, RoleConstants.TEST_MANAGER}, logical = Logical.OR)
+    public ExcelImportProgress testCaseImportAsync(MultipartFile file, @PathVariable String projectId) {
+        return testCaseImportService.testCaseImportAsync(file, projectId);
+    }
+
+    @GetMapping("/import/progress/{taskId}")
+    @RequiresRoles(value = {RoleConstants.TEST_USER, RoleConstants.TEST_MANAGER}, logical = Logical.OR)
+    public ExcelImportProgress getImportProgress(@PathVariable String taskId) {
+        return testCaseImportService.getImportProgress(taskId);
     }
 
     @GetMapping("/export/template")
@@ -1,17 +1,28 @@
 package io.metersphere.track.domain;
 
+import io.metersphere.base.domain.Issues;
 import io.metersphere.track.dto.TestCaseReportMetricDTO;
 import io.metersphere.track.dto.TestPlanCaseDTO;
 import io.metersphere.track.dto.TestPlanDTO;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public abstract class ReportComponent {
     protected String componentId;
     protected TestPlanDTO testPlan;
+    // caseId -> 用例关联的缺陷
+    protected Map<String, List<Issues>> caseIssues = Collections.emptyMap();
 
     public ReportComponent(TestPlanDTO testPlan) {
         this.testPlan = testPlan;
     }
 
+    public void setCaseIssues(Map<String, List<Issues>> caseIssues) {
+        this.caseIssues = caseIssues;
+    }
+
     public abstract void readRecord(TestPlanCaseDTO testCase);
 
     public abstract void afterBuild(TestCaseReportMetricDTO testCaseReportMetric);
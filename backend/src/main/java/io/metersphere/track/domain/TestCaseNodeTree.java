@@ -0,0 +1,117 @@
+package io.metersphere.track.domain;
+
+import io.metersphere.base.domain.TestCaseNode;
+import io.metersphere.commons.utils.BeanUtils;
+import io.metersphere.track.dto.TestCaseNodeDTO;
+
+import java.util.*;
+
+/**
+ * 项目模块树的只读快照，按父节点索引子节点，并预先计算每个节点的所有子孙节点和所属的根节点
+ * <p>
+ * 创建后不再修改，可以在多个请求之间共用；需要修改的树通过 {@link #toNodeDTOs()} 复制
+ */
+public class TestCaseNodeTree {
+    private static final String ROOT = "";
+
+    private final List<TestCaseNode> rootNodes;
+    private final Map<String, List<TestCaseNode>> childrenMap;
+    // 节点 -> 节点本身及所有子孙节点
+    private final Map<String, Set<String>> descendantIds;
+    // 节点 -> 所属的根节点
+    private final Map<String, String> rootIds;
+
+    private TestCaseNodeTree(List<TestCaseNode> rootNodes, Map<String, List<TestCaseNode>> childrenMap,
+                             Map<String, Set<String>> descendantIds, Map<String, String> rootIds) {
+        this.rootNodes = rootNodes;
+        this.childrenMap = childrenMap;
+        this.descendantIds = descendantIds;
+        this.rootIds = rootIds;
+    }
+
+    /**
+     * 第一层的节点为根节点，父节点不在树中的节点不显示
+     */
+    public static TestCaseNodeTree build(List<TestCaseNode> nodes) {
+        Map<String, List<TestCaseNode>> childrenMap = new HashMap<>();
+        List<TestCaseNode> rootNodes = new ArrayList<>();
+        nodes.forEach(node -> {
+            TestCaseNode copy = BeanUtils.copyBean(new TestCaseNode(), node);
+            if (Objects.equals(node.getLevel(), 1)) {
+                rootNodes.add(copy);
+            } else if (node.getParentId() != null) {
+                childrenMap.computeIfAbsent(node.getParentId(), k -> new ArrayList<>()).add(copy);
+            }
+        });
+        childrenMap.put(ROOT, rootNodes);
+
+        Map<String, Set<String>> descendantIds = new HashMap<>();
+        Map<String, String> rootIds = new HashMap<>();
+        rootNodes.forEach(root -> collect(root, root.getId(), childrenMap, descendantIds, rootIds, new HashSet<>()));
+
+        Map<String, List<TestCaseNode>> unmodifiableChildren = new HashMap<>();
+        childrenMap.forEach((k, v) -> unmodifiableChildren.put(k, Collections.unmodifiableList(v)));
+        return new TestCaseNodeTree(Collections.unmodifiableList(rootNodes), unmodifiableChildren, descendantIds, rootIds);
+    }
+
+    private static Set<String> collect(TestCaseNode node, String rootId, Map<String, List<TestCaseNode>> childrenMap,
+                                       Map<String, Set<String>> descendantIds, Map<String, String> rootIds, Set<String> visiting) {
+        Set<String> ids = new HashSet<>();
+        ids.add(node.getId());
+        // 数据有环时不再向下
+        if (!visiting.add(node.getId())) {
+            return ids;
+        }
+        rootIds.put(node.getId(), rootId);
+        for (TestCaseNode child : childrenMap.getOrDefault(node.getId(), Collections.emptyList())) {
+            ids.addAll(collect(child, rootId, childrenMap, descendantIds, rootIds, visiting));
+        }
+        Set<String> unmodifiable = Collections.unmodifiableSet(ids);
+        descendantIds.put(node.getId(), unmodifiable);
+        return unmodifiable;
+    }
+
+    public List<TestCaseNode> getRootNodes() {
+        return rootNodes;
+    }
+
+    public List<TestCaseNode> getChildren(String nodeId) {
+        return childrenMap.getOrDefault(nodeId, Collections.emptyList());
+    }
+
+    /**
+     * 节点本身及所有子孙节点的 ID，节点不在树中时返回空集合
+     */
+    public Set<String> getDescendantIds(String nodeId) {
+        return descendantIds.getOrDefault(nodeId, Collections.emptySet());
+    }
+
+    /**
+     * 节点所属的根节点，节点不在树中时返回 null
+     */
+    public String getRootId(String nodeId) {
+        return nodeId == null ? null : rootIds.get(nodeId);
+    }
+
+    /**
+     * 复制为前端使用的树，调用方可以修改
+     */
+    public List<TestCaseNodeDTO> toNodeDTOs() {
+        List<TestCaseNodeDTO> nodeTreeList = new ArrayList<>();
+        rootNodes.forEach(rootNode -> nodeTreeList.add(toNodeDTO(rootNode, new HashSet<>())));
+        return nodeTreeList;
+    }
+
+    private TestCaseNodeDTO toNodeDTO(TestCaseNode node, Set<String> visiting) {
+        TestCaseNodeDTO nodeTree = new TestCaseNodeDTO();
+        BeanUtils.copyBean(nodeTree, node);
+        nodeTree.setLabel(node.getName());
+        List<TestCaseNode> children = childrenMap.get(node.getId());
+        if (children != null && !children.isEmpty() && visiting.add(node.getId())) {
+            List<TestCaseNodeDTO> childList = new ArrayList<>(children.size());
+            children.forEach(child -> childList.add(toNodeDTO(child, visiting)));
+            nodeTree.setChildren(childList);
+        }
+        return nodeTree;
+    }
+}
@@ -0,0 +1,21 @@
+package io.metersphere.track.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 判断用例是否重复的字段，steps 和 remark 只取 MD5
+ */
+@Getter
+@Setter
+public class TestCaseIdentityDTO {
+    private String name;
+    private String nodePath;
+    private String type;
+    private String maintainer;
+    private String priority;
+    private String method;
+    private String prerequisite;
+    private String stepsHash;
+    private String remarkHash;
+}
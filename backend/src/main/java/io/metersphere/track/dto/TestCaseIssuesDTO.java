@@ -0,0 +1,16 @@
+package io.metersphere.track.dto;
+
+import io.metersphere.base.domain.Issues;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 用例关联的缺陷，以及用例所属项目关联的 Tapd 项目 ID 和 Jira 项目 Key
+ */
+@Getter
+@Setter
+public class TestCaseIssuesDTO extends Issues {
+    private String caseId;
+    private String tapdId;
+    private String jiraKey;
+}
@@ -0,0 +1,16 @@
+package io.metersphere.track.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 计划中的用例总数、已执行数和通过数
+ */
+@Getter
+@Setter
+public class TestPlanCaseCountDTO {
+    private String planId;
+    private Integer total;
+    private Integer tested;
+    private Integer passed;
+}
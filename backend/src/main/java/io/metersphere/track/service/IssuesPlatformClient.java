@@ -0,0 +1,247 @@
+package io.metersphere.track.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import io.metersphere.base.domain.Issues;
+import io.metersphere.commons.constants.IssuesManagePlatform;
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.LogUtil;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量查询 Tapd/Jira 的缺陷，多个批次在共用的连接池上并发查询，查到的缺陷按 issues.cache.ttl 缓存
+ * <p>
+ * 返回查到的缺陷（id -> 缺陷），平台上不存在的缺陷不返回；查询失败时抛出异常
+ */
+@Service
+public class IssuesPlatformClient {
+    private static final String TAPD_BUGS_URL = "https://api.tapd.cn/bugs?workspace_id=%s&id=%s&limit=%d";
+
+    @Value("${issues.cache.ttl:300000}")
+    private long cacheTtl;
+
+    @Value("${issues.fetch.batch-size:100}")
+    private int batchSize;
+
+    @Value("${issues.fetch.concurrency:4}")
+    private int concurrency;
+
+    @Value("${issues.fetch.timeout:10000}")
+    private int timeout;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时由调用线程查询，不会拒绝
+        executor = new ThreadPoolExecutor(concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(concurrency * 10),
+                r -> new Thread(r, "issues-fetcher-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        HttpComponentsClientHttpRequestFactory httpRequestFactory = new HttpComponentsClientHttpRequestFactory(
+                HttpClientBuilder.create()
+                        .setMaxConnTotal(concurrency * 2)
+                        .setMaxConnPerRoute(concurrency)
+                        .build());
+        httpRequestFactory.setConnectionRequestTimeout(timeout);
+        httpRequestFactory.setConnectTimeout(timeout);
+        httpRequestFactory.setReadTimeout(timeout);
+        restTemplate = new RestTemplate(httpRequestFactory);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param issuesIds Tapd 项目 ID -> 缺陷 ID
+     */
+    public Map<String, Issues> getTapdIssues(HttpHeaders headers, Map<String, Set<String>> issuesIds) {
+        evictExpired();
+        Map<String, Issues> result = new HashMap<>();
+        List<Callable<List<Issues>>> tasks = new ArrayList<>();
+        issuesIds.forEach((workspaceId, ids) -> {
+            String scope = IssuesManagePlatform.Tapd + "|" + workspaceId;
+            List<String> missing = fromCache(scope, ids, result);
+            for (List<String> batch : partition(missing)) {
+                tasks.add(() -> {
+                    List<Issues> issues = fetchTapd(headers, workspaceId, batch);
+                    issues.forEach(i -> cache.put(key(scope, i.getId()), new CacheEntry(i, System.currentTimeMillis() + cacheTtl)));
+                    return issues;
+                });
+            }
+        });
+        invokeAll(tasks).forEach(i -> result.put(i.getId(), i));
+        return result;
+    }
+
+    public Map<String, Issues> getJiraIssues(HttpHeaders headers, String url, Set<String> issuesIds) {
+        evictExpired();
+        Map<String, Issues> result = new HashMap<>();
+        String scope = IssuesManagePlatform.Jira + "|" + url;
+        List<Callable<List<Issues>>> tasks = new ArrayList<>();
+        for (List<String> batch : partition(fromCache(scope, issuesIds, result))) {
+            tasks.add(() -> {
+                List<Issues> issues = fetchJira(headers, url, batch);
+                issues.forEach(i -> cache.put(key(scope, i.getId()), new CacheEntry(i, System.currentTimeMillis() + cacheTtl)));
+                return issues;
+            });
+        }
+        invokeAll(tasks).forEach(i -> result.put(i.getId(), i));
+        return result;
+    }
+
+    private List<Issues> fetchTapd(HttpHeaders headers, String workspaceId, List<String> ids) {
+        String url = String.format(TAPD_BUGS_URL, workspaceId, String.join(",", ids), ids.size());
+        String body;
+        try {
+            body = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getBody();
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+            MSException.throwException("Tapd接口调用失败：" + e.getMessage());
+            return null;
+        }
+        JSONObject response = JSON.parseObject(body);
+        List<Issues> issues = new ArrayList<>();
+        Object data = response == null ? null : response.get("data");
+        // 只查到一个缺陷时 data 可能是对象
+        if (data instanceof JSONArray) {
+            for (int i = 0; i < ((JSONArray) data).size(); i++) {
+                issues.add(parseTapd(((JSONArray) data).getJSONObject(i)));
+            }
+        } else if (data instanceof JSONObject) {
+            issues.add(parseTapd((JSONObject) data));
+        }
+        return issues;
+    }
+
+    private Issues parseTapd(JSONObject item) {
+        Issues issues = item.getObject("Bug", Issues.class);
+        issues.setPlatform(IssuesManagePlatform.Tapd.toString());
+        return issues;
+    }
+
+    private List<Issues> fetchJira(HttpHeaders headers, String url, List<String> ids) {
+        JSONObject request = new JSONObject();
+        request.put("jql", "id in (" + String.join(",", ids) + ")");
+        request.put("fields", Arrays.asList("summary", "description", "status"));
+        request.put("maxResults", ids.size());
+        // 不存在的缺陷不报错，只是不返回
+        request.put("validateQuery", false);
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(headers);
+        requestHeaders.setContentType(MediaType.APPLICATION_JSON);
+        String body = null;
+        try {
+            body = restTemplate.exchange(url + "/rest/api/2/search", HttpMethod.POST,
+                    new HttpEntity<>(request.toJSONString(), requestHeaders), String.class).getBody();
+        } catch (HttpClientErrorException.Unauthorized e) {
+            LogUtil.error(e.getMessage(), e);
+            MSException.throwException("获取Jira缺陷失败，检查Jira配置信息");
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+            MSException.throwException("调用Jira接口获取缺陷失败");
+        }
+        List<Issues> issues = new ArrayList<>();
+        JSONArray items = JSON.parseObject(body).getJSONArray("issues");
+        for (int i = 0; items != null && i < items.size(); i++) {
+            JSONObject obj = items.getJSONObject(i);
+            JSONObject fields = obj.getJSONObject("fields");
+            Issues item = new Issues();
+            item.setId(obj.getString("id"));
+            item.setTitle(fields.getString("summary"));
+            item.setDescription(fields.getString("description"));
+            item.setStatus(fields.getJSONObject("status").getJSONObject("statusCategory").getString("key"));
+            item.setPlatform(IssuesManagePlatform.Jira.toString());
+            issues.add(item);
+        }
+        return issues;
+    }
+
+    /**
+     * 缓存中有效的缺陷放入 result，返回需要查询的 ID
+     */
+    private List<String> fromCache(String scope, Collection<String> ids, Map<String, Issues> result) {
+        long now = System.currentTimeMillis();
+        List<String> missing = new ArrayList<>();
+        ids.forEach(id -> {
+            CacheEntry entry = cache.get(key(scope, id));
+            if (entry != null && entry.expireTime > now) {
+                result.put(id, entry.issues);
+            } else {
+                missing.add(id);
+            }
+        });
+        return missing;
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(entry -> entry.expireTime <= now);
+    }
+
+    private List<Issues> invokeAll(List<Callable<List<Issues>>> tasks) {
+        List<Future<List<Issues>>> futures = new ArrayList<>();
+        tasks.forEach(task -> futures.add(executor.submit(task)));
+        List<Issues> result = new ArrayList<>();
+        try {
+            for (Future<List<Issues>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            MSException.throwException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            MSException.throwException(e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return result;
+    }
+
+    private List<List<String>> partition(List<String> ids) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += batchSize) {
+            batches.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    private String key(String scope, String id) {
+        return scope + "|" + id;
+    }
+
+    private static class CacheEntry {
+        private final Issues issues;
+        private final long expireTime;
+
+        CacheEntry(Issues issues, long expireTime) {
+            this.issues = issues;
+            this.expireTime = expireTime;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import io.metersphere.base.mapper.ext.ExtIssuesMapper;
 import io.metersphere.commons.constants.IssuesManagePlatform;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.user.SessionUser;
+import io.metersphere.commons.utils.BeanUtils;
 import io.metersphere.commons.utils.EncryptUtils;
 import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.RestTemplateUtils;
@@ -17,6 +18,7 @@ import io.metersphere.controller.ResultHolder;
 import io.metersphere.controller.request.IntegrationRequest;
 import io.metersphere.service.IntegrationService;
 import io.metersphere.service.ProjectService;
+import io.metersphere.track.dto.TestCaseIssuesDTO;
 import io.metersphere.track.request.testcase.IssuesRequest;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -27,7 +29,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.Resource;
@@ -50,6 +51,8 @@ public class IssuesService {
     private IssuesMapper issuesMapper;
     @Resource
     private ExtIssuesMapper extIssuesMapper;
+    @Resource
+    private IssuesPlatformClient issuesPlatformClient;
 
 
     public void testAuth(String platform) {
@@ -89,10 +92,6 @@ public class IssuesService {
 
     }
 
-    private ResultHolder call(String url) {
-        return call(url, HttpMethod.GET, null);
-    }
-
     private ResultHolder call(String url, HttpMethod httpMethod, Object params) {
         String responseJson;
 
@@ -302,155 +301,93 @@ public class IssuesService {
         testCaseIssuesMapper.insert(testCaseIssues);
     }
 
-    public Issues getTapdIssues(String projectId, String issuesId) {
-        String url = "https://api.tapd.cn/bugs?workspace_id=" + projectId + "&id=" + issuesId;
-        ResultHolder call = call(url);
-        String listJson = JSON.toJSONString(call.getData());
-        if (StringUtils.equals(Boolean.FALSE.toString(), listJson)) {
-            return new Issues();
-        }
-        JSONObject jsonObject = JSONObject.parseObject(listJson);
-        return jsonObject.getObject("Bug", Issues.class);
+    public List<Issues> getIssues(String caseId) {
+        return getIssues(Collections.singletonList(caseId)).get(caseId);
     }
 
-    public Issues getJiraIssues(HttpHeaders headers, String url, String issuesId) {
-        HttpEntity<MultiValueMap> requestEntity = new HttpEntity<>(headers);
-        RestTemplate restTemplate = new RestTemplate();
-        //post
-        ResponseEntity<String> responseEntity;
-        Issues issues = new Issues();
-        try {
-            responseEntity = restTemplate.exchange(url + "/rest/api/2/issue/" + issuesId, HttpMethod.GET, requestEntity, String.class);
-            String body = responseEntity.getBody();
-
-            JSONObject obj = JSONObject.parseObject(body);
-            JSONObject fields = (JSONObject) obj.get("fields");
-            JSONObject statusObj = (JSONObject) fields.get("status");
-            JSONObject statusCategory = (JSONObject) statusObj.get("statusCategory");
-
-            String id = obj.getString("id");
-            String title = fields.getString("summary");
-            String description = fields.getString("description");
-            String status = statusCategory.getString("key");
-
-            issues.setId(id);
-            issues.setTitle(title);
-            issues.setDescription(description);
-            issues.setStatus(status);
-            issues.setPlatform(IssuesManagePlatform.Jira.toString());
-        } catch (HttpClientErrorException.NotFound e) {
-            LogUtil.error(e.getStackTrace(), e);
-            return new Issues();
-        } catch (HttpClientErrorException.Unauthorized e) {
-            LogUtil.error(e.getStackTrace(), e);
-            MSException.throwException("获取Jira缺陷失败，检查Jira配置信息");
-        } catch (Exception e) {
-            LogUtil.error(e.getMessage(), e);
-            MSException.throwException("调用Jira接口获取缺陷失败");
+    /**
+     * 批量查询用例关联的未关闭的缺陷，Tapd/Jira 的缺陷去重后按批次查询，平台上已不存在的缺陷解除关联
+     *
+     * @return caseId -> 缺陷，每个用例的缺陷是单独的对象
+     */
+    public Map<String, List<Issues>> getIssues(List<String> caseIds) {
+        Map<String, List<Issues>> result = new LinkedHashMap<>();
+        caseIds.forEach(caseId -> result.put(caseId, new ArrayList<>()));
+        if (caseIds.isEmpty()) {
+            return result;
         }
-
-        return issues;
-
-    }
-
-    public List<Issues> getIssues(String caseId) {
-        List<Issues> list = new ArrayList<>();
         SessionUser user = SessionUtils.getUser();
         String orgId = user.getLastOrganizationId();
 
         boolean tapd = isIntegratedPlatform(orgId, IssuesManagePlatform.Tapd.toString());
         boolean jira = isIntegratedPlatform(orgId, IssuesManagePlatform.Jira.toString());
 
-        if (tapd) {
-            // 是否关联了项目
-            String tapdId = getTapdProjectId(caseId);
-            if (StringUtils.isNotBlank(tapdId)) {
-                list.addAll(getTapdIssues(caseId));
-            }
+        List<TestCaseIssuesDTO> caseIssues = new ArrayList<>();
+        List<String> distinctCaseIds = new ArrayList<>(result.keySet());
+        for (int i = 0; i < distinctCaseIds.size(); i += 1000) {
+            caseIssues.addAll(extIssuesMapper.getIssuesByCaseIds(distinctCaseIds.subList(i, Math.min(distinctCaseIds.size(), i + 1000))));
+        }
 
+        // 是否关联了项目
+        List<TestCaseIssuesDTO> tapdIssues = caseIssues.stream()
+                .filter(i -> tapd && StringUtils.equals(i.getPlatform(), IssuesManagePlatform.Tapd.toString()) && StringUtils.isNotBlank(i.getTapdId()))
+                .collect(Collectors.toList());
+        List<TestCaseIssuesDTO> jiraIssues = caseIssues.stream()
+                .filter(i -> jira && StringUtils.equals(i.getPlatform(), IssuesManagePlatform.Jira.toString()) && StringUtils.isNotBlank(i.getJiraKey()))
+                .collect(Collectors.toList());
+
+        if (!tapdIssues.isEmpty()) {
+            Map<String, Set<String>> issuesIds = new HashMap<>();
+            tapdIssues.forEach(i -> issuesIds.computeIfAbsent(i.getTapdId(), k -> new LinkedHashSet<>()).add(i.getId()));
+            Map<String, Issues> issues = issuesPlatformClient.getTapdIssues(platformAuth(IssuesManagePlatform.Tapd.toString()), issuesIds);
+            // 缺陷状态为 关闭，则不显示
+            mergeIssues(result, tapdIssues, issues, "closed");
         }
 
-        if (jira) {
-            String jiraKey = getJiraProjectKey(caseId);
-            if (StringUtils.isNotBlank(jiraKey)) {
-                list.addAll(getJiraIssues(caseId));
+        if (!jiraIssues.isEmpty()) {
+            String config = platformConfig(IssuesManagePlatform.Jira.toString());
+            JSONObject object = JSON.parseObject(config);
+            if (object == null) {
+                MSException.throwException("jira config is null");
             }
+            HttpHeaders headers = auth(object.getString("account"), object.getString("password"));
+            Set<String> issuesIds = jiraIssues.stream().map(Issues::getId).collect(Collectors.toCollection(LinkedHashSet::new));
+            Map<String, Issues> issues = issuesPlatformClient.getJiraIssues(headers, object.getString("url"), issuesIds);
+            // 缺陷状态为 完成，则不显示
+            mergeIssues(result, jiraIssues, issues, "done");
         }
 
-        list.addAll(getLocalIssues(caseId));
-        return list;
+        caseIssues.stream()
+                .filter(i -> StringUtils.equals(i.getPlatform(), IssuesManagePlatform.Local.toString()))
+                .filter(i -> !StringUtils.equals(i.getStatus(), "closed"))
+                .forEach(i -> result.get(i.getCaseId()).add(BeanUtils.copyBean(new Issues(), i)));
+        return result;
     }
 
-    public List<Issues> getTapdIssues(String caseId) {
-        List<Issues> list = new ArrayList<>();
-        String tapdId = getTapdProjectId(caseId);
-
-        TestCaseIssuesExample example = new TestCaseIssuesExample();
-        example.createCriteria().andTestCaseIdEqualTo(caseId);
-
-        List<Issues> issues = extIssuesMapper.getIssues(caseId, IssuesManagePlatform.Tapd.toString());
-
-        List<String> issuesIds = issues.stream().map(Issues::getId).collect(Collectors.toList());
-        issuesIds.forEach(issuesId -> {
-            Issues dto = getTapdIssues(tapdId, issuesId);
-            if (StringUtils.isBlank(dto.getId())) {
+    private void mergeIssues(Map<String, List<Issues>> result, List<TestCaseIssuesDTO> caseIssues, Map<String, Issues> issues, String hiddenStatus) {
+        caseIssues.forEach(caseIssue -> {
+            Issues dto = issues.get(caseIssue.getId());
+            if (dto == null || StringUtils.isBlank(dto.getId())) {
                 // 缺陷不存在，解除用例和缺陷的关联
                 TestCaseIssuesExample issuesExample = new TestCaseIssuesExample();
                 issuesExample.createCriteria()
-                        .andTestCaseIdEqualTo(caseId)
-                        .andIssuesIdEqualTo(issuesId);
+                        .andTestCaseIdEqualTo(caseIssue.getCaseId())
+                        .andIssuesIdEqualTo(caseIssue.getId());
                 testCaseIssuesMapper.deleteByExample(issuesExample);
-                issuesMapper.deleteByPrimaryKey(issuesId);
-            } else {
-                dto.setPlatform(IssuesManagePlatform.Tapd.toString());
-                // 缺陷状态为 关闭，则不显示
-                if (!StringUtils.equals("closed", dto.getStatus())) {
-                    list.add(dto);
-                }
+                issuesMapper.deleteByPrimaryKey(caseIssue.getId());
+            } else if (!StringUtils.equals(hiddenStatus, dto.getStatus())) {
+                // 缓存中的缺陷是共用的，每个用例复制一份
+                result.get(caseIssue.getCaseId()).add(BeanUtils.copyBean(new Issues(), dto));
             }
         });
-        return list;
     }
 
-    public List<Issues> getJiraIssues(String caseId) {
-        List<Issues> list = new ArrayList<>();
-
-        String config = platformConfig(IssuesManagePlatform.Jira.toString());
-        JSONObject object = JSON.parseObject(config);
-
+    private HttpHeaders platformAuth(String platform) {
+        JSONObject object = JSON.parseObject(platformConfig(platform));
         if (object == null) {
-            MSException.throwException("tapd config is null");
+            MSException.throwException(platform.toLowerCase() + " config is null");
         }
-
-        String account = object.getString("account");
-        String password = object.getString("password");
-        String url = object.getString("url");
-        HttpHeaders headers = auth(account, password);
-
-        TestCaseIssuesExample example = new TestCaseIssuesExample();
-        example.createCriteria().andTestCaseIdEqualTo(caseId);
-
-        List<Issues> issues = extIssuesMapper.getIssues(caseId, IssuesManagePlatform.Jira.toString());
-
-        List<String> issuesIds = issues.stream().map(Issues::getId).collect(Collectors.toList());
-        issuesIds.forEach(issuesId -> {
-            Issues dto = getJiraIssues(headers, url, issuesId);
-            if (StringUtils.isBlank(dto.getId())) {
-                // 缺陷不存在，解除用例和缺陷的关联
-                TestCaseIssuesExample issuesExample = new TestCaseIssuesExample();
-                issuesExample.createCriteria()
-                        .andTestCaseIdEqualTo(caseId)
-                        .andIssuesIdEqualTo(issuesId);
-                testCaseIssuesMapper.deleteByExample(issuesExample);
-                issuesMapper.deleteByPrimaryKey(issuesId);
-            } else {
-                // 缺陷状态为 完成，则不显示
-                if (!StringUtils.equals("done", dto.getStatus())) {
-                    list.add(dto);
-                }
-            }
-        });
-        return list;
+        return auth(object.getString("account"), object.getString("password"));
     }
 
     public List<Issues> getLocalIssues(String caseId) {
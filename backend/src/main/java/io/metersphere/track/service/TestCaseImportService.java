@@ -0,0 +1,354 @@
+package io.metersphere.track.service;
+
+import com.alibaba.excel.EasyExcelFactory;
+import com.alibaba.fastjson.JSON;
+import io.metersphere.base.domain.Project;
+import io.metersphere.base.domain.TestCaseImportTask;
+import io.metersphere.base.domain.UserRole;
+import io.metersphere.base.domain.UserRoleExample;
+import io.metersphere.base.mapper.ProjectMapper;
+import io.metersphere.base.mapper.UserRoleMapper;
+import io.metersphere.base.mapper.ext.ExtTestCaseImportTaskMapper;
+import io.metersphere.base.mapper.ext.ExtTestCaseMapper;
+import io.metersphere.commons.constants.ImportTaskStatus;
+import io.metersphere.commons.constants.RoleConstants;
+import io.metersphere.commons.exception.MSException;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.commons.utils.SessionUtils;
+import io.metersphere.excel.domain.ExcelErrData;
+import io.metersphere.excel.domain.ExcelImportProgress;
+import io.metersphere.excel.domain.ExcelResponse;
+import io.metersphere.excel.domain.TestCaseExcelData;
+import io.metersphere.excel.listener.TestCaseDataListener;
+import io.metersphere.i18n.Translator;
+import io.metersphere.track.dto.TestCaseIdentityDTO;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.shiro.SecurityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 用例导入：边解析边校验，按批写入，整个导入在一个事务中，有错误数据时回滚
+ * <p>
+ * 大文件可以异步导入，通过任务 ID 查询进度。进度定时保存到 test_case_import_task，任意节点都可以查询，
+ * 只有发起导入的用户在同一个工作空间下可以查询；结束的任务保留 test-case.import.task-ttl 毫秒。
+ * 处理导入的节点退出后，进度超过 test-case.import.stale-timeout 毫秒没有更新的任务标记为失败
+ * <p>
+ * 单个事务意味着导入结束前已写入的用例都不提交：整个导入期间占用一个数据库连接，数据库要保留所有写入的 undo 日志，
+ * 出错回滚的时间和写入的时间相当。几十万行的文件应拆分成多个文件导入，每个文件单独成功或回滚
+ */
+@Service
+public class TestCaseImportService {
+
+    @Value("${test-case.import.flush-size:500}")
+    private int flushSize;
+
+    @Value("${test-case.import.concurrency:2}")
+    private int concurrency;
+
+    @Value("${test-case.import.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${test-case.import.task-ttl:3600000}")
+    private long taskTtl;
+
+    @Value("${test-case.import.stale-timeout:60000}")
+    private long staleTimeout;
+
+    @Resource
+    TestCaseService testCaseService;
+    @Resource
+    TestCaseNodeService testCaseNodeService;
+    @Resource
+    ExtTestCaseMapper extTestCaseMapper;
+    @Resource
+    UserRoleMapper userRoleMapper;
+    @Resource
+    SqlSessionFactory sqlSessionFactory;
+    @Resource
+    TransactionTemplate transactionTemplate;
+    @Resource
+    ExtTestCaseImportTaskMapper extTestCaseImportTaskMapper;
+    @Resource
+    ProjectMapper projectMapper;
+
+    // 本节点正在执行的任务，结束后只保留在数据库中
+    private final Map<String, ImportTask> tasks = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "test-case-import-" + threadIndex.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public ExcelResponse testCaseImport(MultipartFile file, String projectId) {
+        Set<String> userIds = getUserIds();
+        try (InputStream inputStream = file.getInputStream()) {
+            return importTestCase(inputStream, projectId, userIds, new ImportTask());
+        } catch (IOException e) {
+            LogUtil.error(e.getMessage(), e);
+            MSException.throwException(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 上传的文件先保存为临时文件，由导入线程解析，返回任务进度
+     */
+    public ExcelImportProgress testCaseImportAsync(MultipartFile file, String projectId) {
+        evictExpired();
+        Set<String> userIds = getUserIds();
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("test-case-import-", null);
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            LogUtil.error(e.getMessage(), e);
+            MSException.throwException(e.getMessage());
+        }
+
+        ImportTask task = new ImportTask(UUID.randomUUID().toString(), projectId, SessionUtils.getUserId());
+        extTestCaseImportTaskMapper.insert(task.toRecord());
+        tasks.put(task.taskId, task);
+        File importFile = tempFile;
+        // 导入线程中翻译错误信息、读取当前用户时使用发起请求时的语言和用户
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        Runnable runnable = SecurityUtils.getSubject().associateWith(() -> {
+            LocaleContextHolder.setLocaleContext(localeContext);
+            try (InputStream inputStream = new FileInputStream(importFile)) {
+                task.response = importTestCase(inputStream, projectId, userIds, task);
+                task.status = ImportTaskStatus.Completed;
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+                task.message = e.getMessage();
+                task.status = ImportTaskStatus.Error;
+            } finally {
+                task.endTime = System.currentTimeMillis();
+                importFile.delete();
+                saveProgress(task);
+                tasks.remove(task.taskId);
+                LocaleContextHolder.resetLocaleContext();
+            }
+        });
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            tasks.remove(task.taskId);
+            importFile.delete();
+            task.message = Translator.get("test_case_import_task_busy");
+            task.status = ImportTaskStatus.Error;
+            task.endTime = System.currentTimeMillis();
+            saveProgress(task);
+            MSException.throwException(task.message);
+        }
+        return task.toProgress();
+    }
+
+    public ExcelImportProgress getImportProgress(String taskId) {
+        ImportTask task = tasks.get(taskId);
+        if (task != null) {
+            checkTaskOwner(task.userId, task.projectId);
+            return task.toProgress();
+        }
+        TestCaseImportTask record = extTestCaseImportTaskMapper.selectById(taskId);
+        if (record == null) {
+            MSException.throwException(Translator.get("test_case_import_task_not_exists"));
+        }
+        checkTaskOwner(record.getUserId(), record.getProjectId());
+        return toProgress(record);
+    }
+
+    /**
+     * 定时保存本节点正在执行的任务的进度，其他节点从数据库查询
+     */
+    @Scheduled(fixedDelayString = "${test-case.import.progress-interval:2000}")
+    public void saveProgress() {
+        tasks.values().forEach(this::saveProgress);
+    }
+
+    /**
+     * 本节点的任务每次保存进度都会更新 update_time，长时间没有更新说明处理导入的节点已退出
+     */
+    @Scheduled(fixedDelayString = "${test-case.import.stale-check-interval:60000}")
+    public void markStale() {
+        long now = System.currentTimeMillis();
+        int count = extTestCaseImportTaskMapper.markStaleRunning(now - staleTimeout, now,
+                Translator.get("test_case_import_task_interrupted"));
+        if (count > 0) {
+            LogUtil.warn("Marked " + count + " interrupted test case import tasks as error");
+        }
+    }
+
+    private void saveProgress(ImportTask task) {
+        try {
+            // 和任务结束时的保存串行，避免旧的进度覆盖最终结果
+            synchronized (task) {
+                extTestCaseImportTaskMapper.updateProgress(task.toRecord());
+            }
+        } catch (Exception e) {
+            LogUtil.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 其他用户或其他工作空间的任务按不存在处理
+     */
+    private void checkTaskOwner(String userId, String projectId) {
+        Project project = projectMapper.selectByPrimaryKey(projectId);
+        if (!StringUtils.equals(userId, SessionUtils.getUserId()) || project == null
+                || !StringUtils.equals(project.getWorkspaceId(), SessionUtils.getCurrentWorkspaceId())) {
+            MSException.throwException(Translator.get("test_case_import_task_not_exists"));
+        }
+    }
+
+    private ExcelImportProgress toProgress(TestCaseImportTask record) {
+        ExcelImportProgress progress = new ExcelImportProgress();
+        progress.setTaskId(record.getId());
+        progress.setStatus(record.getStatus());
+        progress.setStartTime(record.getStartTime());
+        progress.setEndTime(record.getEndTime());
+        progress.setMessage(record.getMessage());
+        progress.setReadCount(record.getReadCount());
+        progress.setErrorCount(record.getErrorCount());
+        progress.setImportCount(record.getImportCount());
+        if (record.getResponse() != null) {
+            progress.setResponse(JSON.parseObject(record.getResponse(), ExcelResponse.class));
+        }
+        return progress;
+    }
+
+    private ExcelResponse importTestCase(InputStream inputStream, String projectId, Set<String> userIds, ImportTask task) {
+        return transactionTemplate.execute(status -> {
+            List<TestCaseIdentityDTO> testCases = extTestCaseMapper.getTestCaseIdentities(projectId);
+            TestCaseImportWriter writer = new TestCaseImportWriter(sqlSessionFactory, testCaseNodeService,
+                    projectId, testCaseService.getNextNum(projectId), flushSize);
+            TestCaseDataListener listener = null;
+            List<ExcelErrData<TestCaseExcelData>> errList = null;
+            try {
+                listener = new TestCaseDataListener(writer, projectId, testCases, userIds);
+                task.listener = listener;
+                task.writer = writer;
+                EasyExcelFactory.read(inputStream, TestCaseExcelData.class, listener).sheet().doRead();
+                writer.flush();
+                errList = listener.getErrList();
+            } catch (Exception e) {
+                LogUtil.error(e.getMessage(), e);
+                MSException.throwException(e.getMessage());
+            } finally {
+                if (listener != null) {
+                    listener.close();
+                }
+                writer.close();
+            }
+
+            ExcelResponse excelResponse = new ExcelResponse();
+            //如果包含错误信息就导出错误信息，已写入的用例回滚
+            if (!errList.isEmpty()) {
+                status.setRollbackOnly();
+                excelResponse.setSuccess(false);
+                excelResponse.setErrList(errList);
+            } else {
+                excelResponse.setSuccess(true);
+            }
+            return excelResponse;
+        });
+    }
+
+    private Set<String> getUserIds() {
+        UserRoleExample userRoleExample = new UserRoleExample();
+        userRoleExample.createCriteria()
+                .andRoleIdIn(Arrays.asList(RoleConstants.TEST_MANAGER, RoleConstants.TEST_USER))
+                .andSourceIdEqualTo(SessionUtils.getCurrentWorkspaceId());
+        return userRoleMapper.selectByExample(userRoleExample).stream().map(UserRole::getUserId).collect(Collectors.toSet());
+    }
+
+    private void evictExpired() {
+        extTestCaseImportTaskMapper.deleteExpired(System.currentTimeMillis() - taskTtl);
+    }
+
+    private static class ImportTask {
+        private String taskId;
+        private String projectId;
+        private String userId;
+        private final long startTime = System.currentTimeMillis();
+        private volatile ImportTaskStatus status = ImportTaskStatus.Running;
+        private volatile Long endTime;
+        private volatile String message;
+        private volatile ExcelResponse response;
+        private volatile TestCaseDataListener listener;
+        private volatile TestCaseImportWriter writer;
+
+        ImportTask() {
+        }
+
+        ImportTask(String taskId, String projectId, String userId) {
+            this.taskId = taskId;
+            this.projectId = projectId;
+            this.userId = userId;
+        }
+
+        TestCaseImportTask toRecord() {
+            ExcelImportProgress progress = toProgress();
+            TestCaseImportTask record = new TestCaseImportTask();
+            record.setId(taskId);
+            record.setProjectId(projectId);
+            record.setUserId(userId);
+            record.setStatus(progress.getStatus());
+            record.setReadCount(progress.getReadCount());
+            record.setImportCount(progress.getImportCount());
+            record.setErrorCount(progress.getErrorCount());
+            record.setStartTime(startTime);
+            record.setEndTime(endTime);
+            record.setUpdateTime(System.currentTimeMillis());
+            record.setMessage(StringUtils.substring(message, 0, 1000));
+            record.setResponse(response == null ? null : JSON.toJSONString(response));
+            return record;
+        }
+
+        ExcelImportProgress toProgress() {
+            ExcelImportProgress progress = new ExcelImportProgress();
+            progress.setTaskId(taskId);
+            progress.setStatus(status.name());
+            progress.setStartTime(startTime);
+            progress.setEndTime(endTime);
+            progress.setMessage(message);
+            progress.setResponse(response);
+            TestCaseDataListener listener = this.listener;
+            TestCaseImportWriter writer = this.writer;
+            progress.setReadCount(listener == null ? 0 : listener.getReadCount());
+            progress.setErrorCount(listener == null ? 0 : listener.getErrorCount());
+            progress.setImportCount(writer == null ? 0 : writer.getCount());
+            return progress;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.metersphere.track.service;
+
+import io.metersphere.base.domain.TestCaseWithBLOBs;
+import io.metersphere.base.mapper.TestCaseMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导入用例时逐批写入
+ * <p>
+ * 整个导入共用一个批量 SqlSession，每 flushSize 条提交一次；模块路径索引和用例编号只初始化一次，新建的模块记录到索引中
+ */
+public class TestCaseImportWriter implements Closeable {
+
+    private final SqlSession sqlSession;
+    private final TestCaseMapper testCaseMapper;
+    private final TestCaseNodeService testCaseNodeService;
+    private final String projectId;
+    private final Map<String, String> nodePathMap;
+    private final int flushSize;
+
+    private int nextNum;
+    private int pending;
+    private volatile int count;
+
+    public TestCaseImportWriter(SqlSessionFactory sqlSessionFactory, TestCaseNodeService testCaseNodeService,
+                                String projectId, int nextNum, int flushSize) {
+        this.testCaseNodeService = testCaseNodeService;
+        this.projectId = projectId;
+        this.nextNum = nextNum;
+        this.flushSize = flushSize;
+        this.nodePathMap = testCaseNodeService.getNodePathMap(projectId);
+        this.sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+        this.testCaseMapper = sqlSession.getMapper(TestCaseMapper.class);
+    }
+
+    public void write(List<TestCaseWithBLOBs> testCases) {
+        // 每批内编号从大到小，排序从 0 开始
+        int num = nextNum + testCases.size();
+        int sort = 0;
+        for (TestCaseWithBLOBs testCase : testCases) {
+            testCase.setNodeId(testCaseNodeService.createNodeByPath(testCase.getNodePath(), projectId, nodePathMap));
+            testCase.setSort(sort++);
+            testCase.setNum(--num);
+            testCaseMapper.insert(testCase);
+            if (++pending >= flushSize) {
+                flush();
+            }
+        }
+        nextNum += testCases.size();
+        count += testCases.size();
+    }
+
+    public void flush() {
+        sqlSession.flushStatements();
+        pending = 0;
+    }
+
+    /**
+     * 已写入的用例数
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        sqlSession.close();
+    }
+}
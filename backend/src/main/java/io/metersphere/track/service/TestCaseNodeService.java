@@ -12,10 +12,9 @@ import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.utils.BeanUtils;
 import io.metersphere.exception.ExcelException;
 import io.metersphere.i18n.Translator;
-import io.metersphere.track.dto.TestCaseDTO;
+import io.metersphere.track.domain.TestCaseNodeTree;
 import io.metersphere.track.dto.TestCaseNodeDTO;
 import io.metersphere.track.request.testcase.DragNodeRequest;
-import io.metersphere.track.request.testcase.QueryTestCaseRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -43,6 +42,8 @@ public class TestCaseNodeService {
     ExtTestCaseMapper extTestCaseMapper;
     @Resource
     SqlSessionFactory sqlSessionFactory;
+    @Resource
+    TestCaseNodeTreeCache testCaseNodeTreeCache;
 
     public String addNode(TestCaseNode node) {
         validateNode(node);
@@ -50,6 +51,7 @@ public class TestCaseNodeService {
         node.setUpdateTime(System.currentTimeMillis());
         node.setId(UUID.randomUUID().toString());
         testCaseNodeMapper.insertSelective(node);
+        testCaseNodeTreeCache.evict(node.getProjectId());
         return node.getId();
     }
 
@@ -82,88 +84,42 @@ public class TestCaseNodeService {
     }
 
     public List<TestCaseNodeDTO> getNodeTreeByProjectId(String projectId) {
+        return getNodeTree(projectId).toNodeDTOs();
+    }
+
+    /**
+     * 项目模块树的快照，不能修改
+     */
+    public TestCaseNodeTree getNodeTree(String projectId) {
+        return testCaseNodeTreeCache.get(projectId, this::loadNodeTree);
+    }
+
+    private TestCaseNodeTree loadNodeTree(String projectId) {
         TestCaseNodeExample testCaseNodeExample = new TestCaseNodeExample();
         testCaseNodeExample.createCriteria().andProjectIdEqualTo(projectId);
         testCaseNodeExample.setOrderByClause("create_time asc");
         List<TestCaseNode> nodes = testCaseNodeMapper.selectByExample(testCaseNodeExample);
-        return getNodeTrees(nodes);
+        return TestCaseNodeTree.build(nodes);
     }
 
     public List<TestCaseNodeDTO> getNodeTrees(List<TestCaseNode> nodes) {
-
-        List<TestCaseNodeDTO> nodeTreeList = new ArrayList<>();
-
-        Map<Integer, List<TestCaseNode>> nodeLevelMap = new HashMap<>();
-
-        nodes.forEach(node -> {
-            Integer level = node.getLevel();
-            if (nodeLevelMap.containsKey(level)) {
-                nodeLevelMap.get(level).add(node);
-            } else {
-                List<TestCaseNode> testCaseNodes = new ArrayList<>();
-                testCaseNodes.add(node);
-                nodeLevelMap.put(node.getLevel(), testCaseNodes);
-            }
-        });
-
-        List<TestCaseNode> rootNodes = Optional.ofNullable(nodeLevelMap.get(1)).orElse(new ArrayList<>());
-        rootNodes.forEach(rootNode -> nodeTreeList.add(buildNodeTree(nodeLevelMap, rootNode)));
-
-        return nodeTreeList;
-    }
-
-    /**
-     * 递归构建节点树
-     *
-     * @param nodeLevelMap
-     * @param rootNode
-     * @return
-     */
-    private TestCaseNodeDTO buildNodeTree(Map<Integer, List<TestCaseNode>> nodeLevelMap, TestCaseNode rootNode) {
-
-        TestCaseNodeDTO nodeTree = new TestCaseNodeDTO();
-        BeanUtils.copyBean(nodeTree, rootNode);
-        nodeTree.setLabel(rootNode.getName());
-
-        List<TestCaseNode> lowerNodes = nodeLevelMap.get(rootNode.getLevel() + 1);
-        if (lowerNodes == null) {
-            return nodeTree;
-        }
-
-        List<TestCaseNodeDTO> children = Optional.ofNullable(nodeTree.getChildren()).orElse(new ArrayList<>());
-
-        lowerNodes.forEach(node -> {
-            if (node.getParentId() != null && node.getParentId().equals(rootNode.getId())) {
-                children.add(buildNodeTree(nodeLevelMap, node));
-                nodeTree.setChildren(children);
-            }
-        });
-
-        return nodeTree;
+        return TestCaseNodeTree.build(nodes).toNodeDTOs();
     }
 
     public int editNode(DragNodeRequest request) {
+        evictByNodeIds(Collections.singletonList(request.getId()));
         request.setUpdateTime(System.currentTimeMillis());
         checkTestCaseNodeExist(request);
-        List<TestCaseDTO> testCases = QueryTestCaseByNodeIds(request.getNodeIds());
-
-        testCases.forEach(testCase -> {
-            StringBuilder path = new StringBuilder(testCase.getNodePath());
-            List<String> pathLists = Arrays.asList(path.toString().split("/"));
-            pathLists.set(request.getLevel(), request.getName());
-            path.delete(0, path.length());
-            for (int i = 1; i < pathLists.size(); i++) {
-                path = path.append("/").append(pathLists.get(i));
-            }
-            testCase.setNodePath(path.toString());
-        });
-
-        batchUpdateTestCase(testCases);
+        if (request.getNodeIds() != null && !request.getNodeIds().isEmpty()) {
+            // 模块下用例路径的第 level 级改为新名称
+            extTestCaseMapper.renameNodePath(request.getNodeIds(), request.getLevel(), request.getName());
+        }
 
         return testCaseNodeMapper.updateByPrimaryKeySelective(request);
     }
 
     public int deleteNode(List<String> nodeIds) {
+        evictByNodeIds(nodeIds);
         TestCaseExample testCaseExample = new TestCaseExample();
         testCaseExample.createCriteria().andNodeIdIn(nodeIds);
         testCaseMapper.deleteByExample(testCaseExample);
@@ -173,6 +129,18 @@ public class TestCaseNodeService {
         return testCaseNodeMapper.deleteByExample(testCaseNodeExample);
     }
 
+    private void evictByNodeIds(List<String> nodeIds) {
+        if (nodeIds == null || nodeIds.isEmpty()) {
+            return;
+        }
+        TestCaseNodeExample example = new TestCaseNodeExample();
+        example.createCriteria().andIdIn(nodeIds);
+        testCaseNodeMapper.selectByExample(example).stream()
+                .map(TestCaseNode::getProjectId)
+                .distinct()
+                .forEach(testCaseNodeTreeCache::evict);
+    }
+
     /**
      * 获取当前计划下
      * 有关联数据的节点
@@ -192,21 +160,17 @@ public class TestCaseNodeService {
             return null;
         }
 
-        TestCaseNodeExample testCaseNodeExample = new TestCaseNodeExample();
-        testCaseNodeExample.createCriteria().andProjectIdEqualTo(testPlan.getProjectId());
-        List<TestCaseNode> nodes = testCaseNodeMapper.selectByExample(testCaseNodeExample);
-
         List<String> caseIds = testPlanTestCases.stream()
                 .map(TestPlanTestCase::getCaseId)
                 .collect(Collectors.toList());
 
         TestCaseExample testCaseExample = new TestCaseExample();
         testCaseExample.createCriteria().andIdIn(caseIds);
-        List<String> dataNodeIds = testCaseMapper.selectByExample(testCaseExample).stream()
+        Set<String> dataNodeIds = testCaseMapper.selectByExample(testCaseExample).stream()
                 .map(TestCase::getNodeId)
-                .collect(Collectors.toList());
+                .collect(Collectors.toSet());
 
-        List<TestCaseNodeDTO> nodeTrees = getNodeTrees(nodes);
+        List<TestCaseNodeDTO> nodeTrees = getNodeTreeByProjectId(testPlan.getProjectId());
 
         Iterator<TestCaseNodeDTO> iterator = nodeTrees.iterator();
         while (iterator.hasNext()) {
@@ -226,7 +190,7 @@ public class TestCaseNodeService {
      * @param nodeIds
      * @return 是否剪枝
      */
-    public boolean pruningTree(TestCaseNodeDTO rootNode, List<String> nodeIds) {
+    public boolean pruningTree(TestCaseNodeDTO rootNode, Collection<String> nodeIds) {
 
         List<TestCaseNodeDTO> children = rootNode.getChildren();
 
@@ -262,132 +226,54 @@ public class TestCaseNodeService {
         return getNodeTreeByProjectId(testPlan.getProjectId());
     }
 
-    public Map<String, String> createNodeByTestCases(List<TestCaseWithBLOBs> testCases, String projectId) {
-
-        List<TestCaseNodeDTO> nodeTrees = getNodeTreeByProjectId(projectId);
-
+    /**
+     * 项目已有模块的路径索引，路径 -> 模块 ID，路径形如 /模块1/模块2
+     * 不使用缓存，导入时根据已有模块决定是否新建
+     */
+    public Map<String, String> getNodePathMap(String projectId) {
         Map<String, String> pathMap = new HashMap<>();
-
-        List<String> nodePaths = testCases.stream()
-                .map(TestCase::getNodePath)
-                .collect(Collectors.toList());
-
-        nodePaths.forEach(path -> {
-
-            if (path == null) {
-                throw new ExcelException(Translator.get("test_case_module_not_null"));
-            }
-            List<String> nodeNameList = new ArrayList<>(Arrays.asList(path.split("/")));
-            Iterator<String> pathIterator = nodeNameList.iterator();
-
-            Boolean hasNode = false;
-            String rootNodeName = null;
-
-            if (nodeNameList.size() <= 1) {
-                throw new ExcelException(Translator.get("test_case_create_module_fail") + ":" + path);
-            } else {
-                pathIterator.next();
-                pathIterator.remove();
-
-                rootNodeName = pathIterator.next().trim();
-                //原来没有，新建的树nodeTrees也不包含
-                for (TestCaseNodeDTO nodeTree : nodeTrees) {
-                    if (StringUtils.equals(rootNodeName, nodeTree.getName())) {
-                        hasNode = true;
-                        createNodeByPathIterator(pathIterator, "/" + rootNodeName, nodeTree,
-                                pathMap, projectId, 2);
-                    }
-                    ;
-                }
-            }
-
-
-            if (!hasNode) {
-                createNodeByPath(pathIterator, rootNodeName, null, projectId, 1, "", pathMap);
-            }
-        });
-
+        TestCaseNodeTree nodeTree = loadNodeTree(projectId);
+        putNodePath(nodeTree, nodeTree.getRootNodes(), "", pathMap);
         return pathMap;
+    }
 
+    private void putNodePath(TestCaseNodeTree nodeTree, List<TestCaseNode> nodes, String parentPath, Map<String, String> pathMap) {
+        nodes.forEach(node -> {
+            String path = parentPath + "/" + node.getName().trim();
+            // 同名模块取最早创建的
+            pathMap.putIfAbsent(path, node.getId());
+            putNodePath(nodeTree, nodeTree.getChildren(node.getId()), path, pathMap);
+        });
     }
 
     /**
-     * 根据目标节点路径，创建相关节点
+     * 根据用例的模块路径返回模块 ID，路径中不存在的模块依次新建并记录到 pathMap
      *
-     * @param pathIterator 遍历子路径
-     * @param path         当前路径
-     * @param treeNode     当前节点
-     * @param pathMap      记录节点路径对应的nodeId
+     * @param nodePath 用例的模块路径
+     * @param pathMap  getNodePathMap 返回的路径索引
      */
-    private void createNodeByPathIterator(Iterator<String> pathIterator, String path, TestCaseNodeDTO treeNode,
-                                          Map<String, String> pathMap, String projectId, Integer level) {
-
-        List<TestCaseNodeDTO> children = treeNode.getChildren();
-
-        if (children == null || children.isEmpty() || !pathIterator.hasNext()) {
-            pathMap.put(path, treeNode.getId());
-            if (pathIterator.hasNext()) {
-                createNodeByPath(pathIterator, pathIterator.next().trim(), treeNode, projectId, level, path, pathMap);
-            }
-            return;
+    public String createNodeByPath(String nodePath, String projectId, Map<String, String> pathMap) {
+        if (nodePath == null) {
+            throw new ExcelException(Translator.get("test_case_module_not_null"));
         }
-
-        String nodeName = pathIterator.next().trim();
-
-        Boolean hasNode = false;
-
-        for (TestCaseNodeDTO child : children) {
-            if (StringUtils.equals(nodeName, child.getName())) {
-                hasNode = true;
-                createNodeByPathIterator(pathIterator, path + "/" + child.getName(),
-                        child, pathMap, projectId, level + 1);
-            }
-            ;
+        String[] nodeNames = nodePath.split("/");
+        if (nodeNames.length <= 1) {
+            throw new ExcelException(Translator.get("test_case_create_module_fail") + ":" + nodePath);
         }
 
-        //若子节点中不包含该目标节点，则在该节点下创建
-        if (!hasNode) {
-            createNodeByPath(pathIterator, nodeName, treeNode, projectId, level, path, pathMap);
-        }
-
-    }
-
-    /**
-     * @param pathIterator 迭代器，遍历子节点
-     * @param nodeName     当前节点
-     * @param pNode        父节点
-     */
-    private void createNodeByPath(Iterator<String> pathIterator, String nodeName,
-                                  TestCaseNodeDTO pNode, String projectId, Integer level,
-                                  String rootPath, Map<String, String> pathMap) {
-
-        StringBuilder path = new StringBuilder(rootPath);
-
-        path.append("/" + nodeName);
-
+        StringBuilder path = new StringBuilder();
         String pid = null;
-        //创建过不创建
-        if (pathMap.get(path.toString()) != null) {
-            pid = pathMap.get(path.toString());
-            level++;
-        } else {
-            pid = insertTestCaseNode(nodeName, pNode == null ? null : pNode.getId(), projectId, level);
-            pathMap.put(path.toString(), pid);
-            level++;
-        }
-
-        while (pathIterator.hasNext()) {
-            String nextNodeName = pathIterator.next();
-            path.append("/" + nextNodeName);
-            if (pathMap.get(path.toString()) != null) {
-                pid = pathMap.get(path.toString());
-                level++;
-            } else {
-                pid = insertTestCaseNode(nextNodeName, pid, projectId, level);
-                pathMap.put(path.toString(), pid);
-                level++;
+        for (int i = 1; i < nodeNames.length; i++) {
+            String nodeName = nodeNames[i].trim();
+            path.append("/").append(nodeName);
+            String nodeId = pathMap.get(path.toString());
+            if (nodeId == null) {
+                nodeId = insertTestCaseNode(nodeName, pid, projectId, i);
+                pathMap.put(path.toString(), nodeId);
             }
+            pid = nodeId;
         }
+        return pid;
     }
 
     private String insertTestCaseNode(String nodeName, String pId, String projectId, Integer level) {
@@ -400,6 +286,7 @@ public class TestCaseNodeService {
         testCaseNode.setLevel(level);
         testCaseNode.setId(UUID.randomUUID().toString());
         testCaseNodeMapper.insert(testCaseNode);
+        testCaseNodeTreeCache.evict(projectId);
         return testCaseNode.getId();
     }
 
@@ -408,22 +295,26 @@ public class TestCaseNodeService {
         checkTestCaseNodeExist(request);
 
         List<String> nodeIds = request.getNodeIds();
-
-        List<TestCaseDTO> testCases = QueryTestCaseByNodeIds(nodeIds);
+        evictByNodeIds(nodeIds);
 
         TestCaseNodeDTO nodeTree = request.getNodeTree();
 
         List<TestCaseNode> updateNodes = new ArrayList<>();
+        Map<String, String> nodePaths = new HashMap<>();
 
-        buildUpdateTestCase(nodeTree, testCases, updateNodes, "/", "0", 1);
+        buildUpdateTestCase(nodeTree, nodePaths, updateNodes, "/", "0", 1);
 
+        Set<String> updateNodeIds = new HashSet<>(nodeIds);
         updateNodes = updateNodes.stream()
-                .filter(item -> nodeIds.contains(item.getId()))
+                .filter(item -> updateNodeIds.contains(item.getId()))
                 .collect(Collectors.toList());
+        nodePaths.keySet().retainAll(updateNodeIds);
 
         batchUpdateTestCaseNode(updateNodes);
 
-        batchUpdateTestCase(testCases);
+        if (!nodePaths.isEmpty()) {
+            extTestCaseMapper.updateNodePath(nodePaths);
+        }
     }
 
     private void batchUpdateTestCaseNode(List<TestCaseNode> updateNodes) {
@@ -435,22 +326,10 @@ public class TestCaseNodeService {
         sqlSession.flushStatements();
     }
 
-    private void batchUpdateTestCase(List<TestCaseDTO> testCases) {
-        SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
-        TestCaseMapper testCaseMapper = sqlSession.getMapper(TestCaseMapper.class);
-        testCases.forEach((value) -> {
-            testCaseMapper.updateByPrimaryKey(value);
-        });
-        sqlSession.flushStatements();
-    }
-
-    private List<TestCaseDTO> QueryTestCaseByNodeIds(List<String> nodeIds) {
-        QueryTestCaseRequest testCaseRequest = new QueryTestCaseRequest();
-        testCaseRequest.setNodeIds(nodeIds);
-        return extTestCaseMapper.list(testCaseRequest);
-    }
-
-    private void buildUpdateTestCase(TestCaseNodeDTO rootNode, List<TestCaseDTO> testCases,
+    /**
+     * @param nodePaths 记录模块 ID 对应的新路径
+     */
+    private void buildUpdateTestCase(TestCaseNodeDTO rootNode, Map<String, String> nodePaths,
                                      List<TestCaseNode> updateNodes, String rootPath, String pId, int level) {
 
         rootPath = rootPath + rootNode.getName();
@@ -465,16 +344,12 @@ public class TestCaseNodeService {
         testCaseNode.setParentId(pId);
         updateNodes.add(testCaseNode);
 
-        for (TestCaseDTO item : testCases) {
-            if (StringUtils.equals(item.getNodeId(), rootNode.getId())) {
-                item.setNodePath(rootPath);
-            }
-        }
+        nodePaths.put(rootNode.getId(), rootPath);
 
         List<TestCaseNodeDTO> children = rootNode.getChildren();
         if (children != null && children.size() > 0) {
             for (int i = 0; i < children.size(); i++) {
-                buildUpdateTestCase(children.get(i), testCases, updateNodes, rootPath + '/', rootNode.getId(), level + 1);
+                buildUpdateTestCase(children.get(i), nodePaths, updateNodes, rootPath + '/', rootNode.getId(), level + 1);
             }
         }
     }
@@ -0,0 +1,43 @@
+package io.metersphere.track.service;
+
+import io.metersphere.commons.cache.CacheEvictionChannel;
+import io.metersphere.commons.cache.VersionedCache;
+import io.metersphere.track.domain.TestCaseNodeTree;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.function.Function;
+
+/**
+ * 按项目缓存模块树快照，增删改、拖动模块后调用 {@link #evict(String)}，事务结束后通知所有节点
+ */
+@Component
+public class TestCaseNodeTreeCache {
+
+    // 没有收到清除通知时的兜底过期时间
+    @Value("${test-case-node.cache.ttl:300000}")
+    private long ttl;
+
+    @Value("${test-case-node.cache.max-size:1000}")
+    private int maxSize;
+
+    @Resource
+    private CacheEvictionChannel cacheEvictionChannel;
+
+    private VersionedCache<TestCaseNodeTree> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new VersionedCache<>("test-case-node-tree", ttl, maxSize, cacheEvictionChannel);
+    }
+
+    public TestCaseNodeTree get(String projectId, Function<String, TestCaseNodeTree> loader) {
+        return cache.get(projectId, loader);
+    }
+
+    public void evict(String projectId) {
+        cache.evict(projectId);
+    }
+}
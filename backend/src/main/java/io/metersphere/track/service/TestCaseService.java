@@ -1,45 +1,33 @@
 package io.metersphere.track.service;
 
 
-import com.alibaba.excel.EasyExcelFactory;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.github.pagehelper.PageHelper;
 import io.metersphere.base.domain.*;
 import io.metersphere.base.mapper.*;
 import io.metersphere.base.mapper.ext.ExtTestCaseMapper;
-import io.metersphere.commons.constants.RoleConstants;
 import io.metersphere.commons.constants.TestCaseConstants;
 import io.metersphere.commons.exception.MSException;
 import io.metersphere.commons.user.SessionUser;
 import io.metersphere.commons.utils.BeanUtils;
-import io.metersphere.commons.utils.LogUtil;
 import io.metersphere.commons.utils.ServiceUtils;
 import io.metersphere.commons.utils.SessionUtils;
 import io.metersphere.controller.request.OrderRequest;
-import io.metersphere.excel.domain.ExcelErrData;
-import io.metersphere.excel.domain.ExcelResponse;
 import io.metersphere.excel.domain.TestCaseExcelData;
-import io.metersphere.excel.listener.EasyExcelListener;
-import io.metersphere.excel.listener.TestCaseDataListener;
 import io.metersphere.excel.utils.EasyExcelExporter;
 import io.metersphere.i18n.Translator;
 import io.metersphere.track.dto.TestCaseDTO;
 import io.metersphere.track.request.testcase.QueryTestCaseRequest;
 import io.metersphere.track.request.testcase.TestCaseBatchRequest;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.ibatis.session.ExecutorType;
-import org.apache.ibatis.session.SqlSession;
-import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
-import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -61,18 +49,9 @@ public class TestCaseService {
     @Resource
     ProjectMapper projectMapper;
 
-    @Resource
-    SqlSessionFactory sqlSessionFactory;
-
-    @Resource
-    TestCaseNodeService testCaseNodeService;
-
     @Resource
     UserMapper userMapper;
 
-    @Resource
-    UserRoleMapper userRoleMapper;
-
     public void addTestCase(TestCaseWithBLOBs testCase) {
         testCase.setName(testCase.getName());
         checkTestCaseExist(testCase);
@@ -234,66 +213,6 @@ public class TestCaseService {
         return projectMapper.selectByPrimaryKey(testCaseWithBLOBs.getProjectId());
     }
 
-    public ExcelResponse testCaseImport(MultipartFile file, String projectId) {
-
-        ExcelResponse excelResponse = new ExcelResponse();
-
-        String currentWorkspaceId = SessionUtils.getCurrentWorkspaceId();
-        QueryTestCaseRequest queryTestCaseRequest = new QueryTestCaseRequest();
-        queryTestCaseRequest.setProjectId(projectId);
-        List<TestCase> testCases = extTestCaseMapper.getTestCaseNames(queryTestCaseRequest);
-        Set<String> testCaseNames = testCases.stream()
-                .map(TestCase::getName)
-                .collect(Collectors.toSet());
-
-        UserRoleExample userRoleExample = new UserRoleExample();
-        userRoleExample.createCriteria()
-                .andRoleIdIn(Arrays.asList(RoleConstants.TEST_MANAGER, RoleConstants.TEST_USER))
-                .andSourceIdEqualTo(currentWorkspaceId);
-
-        Set<String> userIds = userRoleMapper.selectByExample(userRoleExample).stream().map(UserRole::getUserId).collect(Collectors.toSet());
-
-        EasyExcelListener easyExcelListener = null;
-        List<ExcelErrData<TestCaseExcelData>> errList = null;
-        try {
-            easyExcelListener = new TestCaseDataListener(this, projectId, testCaseNames, userIds);
-            EasyExcelFactory.read(file.getInputStream(), TestCaseExcelData.class, easyExcelListener).sheet().doRead();
-            errList = easyExcelListener.getErrList();
-        } catch (Exception e) {
-            LogUtil.error(e.getMessage(), e);
-            MSException.throwException(e.getMessage());
-        } finally {
-            easyExcelListener.close();
-        }
-        //如果包含错误信息就导出错误信息
-        if (!errList.isEmpty()) {
-            excelResponse.setSuccess(false);
-            excelResponse.setErrList(errList);
-        } else {
-            excelResponse.setSuccess(true);
-        }
-        return excelResponse;
-    }
-
-    public void saveImportData(List<TestCaseWithBLOBs> testCases, String projectId) {
-
-        Map<String, String> nodePathMap = testCaseNodeService.createNodeByTestCases(testCases, projectId);
-        SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
-        TestCaseMapper mapper = sqlSession.getMapper(TestCaseMapper.class);
-        if (!testCases.isEmpty()) {
-            AtomicInteger sort = new AtomicInteger();
-            AtomicInteger num = new AtomicInteger();
-            num.set(getNextNum(projectId) + testCases.size());
-            testCases.forEach(testcase -> {
-                testcase.setNodeId(nodePathMap.get(testcase.getNodePath()));
-                testcase.setSort(sort.getAndIncrement());
-                testcase.setNum(num.decrementAndGet());
-                mapper.insert(testcase);
-            });
-        }
-        sqlSession.flushStatements();
-    }
-
     public void testCaseTemplateExport(HttpServletResponse response) {
         EasyExcelExporter easyExcelExporter = null;
         try {
@@ -475,7 +394,7 @@ public class TestCaseService {
      *
      * @return
      */
-    private int getNextNum(String projectId) {
+    public int getNextNum(String projectId) {
         TestCase testCase = extTestCaseMapper.getMaxNumByProjectId(projectId);
         if (testCase == null) {
             return 100001;
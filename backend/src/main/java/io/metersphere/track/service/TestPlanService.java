@@ -8,7 +8,6 @@ import io.metersphere.base.mapper.TestCaseMapper;
 import io.metersphere.base.mapper.TestCaseReportMapper;
 import io.metersphere.base.mapper.TestPlanMapper;
 import io.metersphere.base.mapper.TestPlanTestCaseMapper;
-import io.metersphere.base.mapper.ext.ExtProjectMapper;
 import io.metersphere.base.mapper.ext.ExtTestPlanMapper;
 import io.metersphere.base.mapper.ext.ExtTestPlanTestCaseMapper;
 import io.metersphere.commons.constants.TestPlanStatus;
@@ -23,6 +22,7 @@ import io.metersphere.i18n.Translator;
 import io.metersphere.track.Factory.ReportComponentFactory;
 import io.metersphere.track.domain.ReportComponent;
 import io.metersphere.track.dto.TestCaseReportMetricDTO;
+import io.metersphere.track.dto.TestPlanCaseCountDTO;
 import io.metersphere.track.dto.TestPlanCaseDTO;
 import io.metersphere.track.dto.TestPlanDTO;
 import io.metersphere.track.dto.TestPlanDTOWithMetric;
@@ -66,9 +66,6 @@ public class TestPlanService {
     @Resource
     TestPlanTestCaseService testPlanTestCaseService;
 
-    @Resource
-    ExtProjectMapper extProjectMapper;
-
     @Resource
     TestCaseReportMapper testCaseReportMapper;
 
@@ -199,39 +196,20 @@ public class TestPlanService {
         request.setWorkspaceId(SessionUtils.getCurrentWorkspaceId());
         request.setPlanIds(extTestPlanTestCaseMapper.findRelateTestPlanId(user.getId(), SessionUtils.getCurrentWorkspaceId()));
 
-        List<String> projectIds = extProjectMapper.getProjectIdByWorkspaceId(SessionUtils.getCurrentOrganizationId());
-
         List<TestPlanDTOWithMetric> testPlans = extTestPlanMapper.listRelate(request);
 
-        Map<String, List<TestPlanCaseDTO>> testCaseMap = new HashMap<>();
-        listTestCaseByProjectIds(projectIds).forEach(testCase -> {
-            List<TestPlanCaseDTO> list = testCaseMap.get(testCase.getPlanId());
-            if (list == null) {
-                list = new ArrayList<>();
-                list.add(testCase);
-                testCaseMap.put(testCase.getPlanId(), list);
-            } else {
-                list.add(testCase);
-            }
-        });
+        // 在数据库中按计划统计，不再读取所有用例
+        Map<String, TestPlanCaseCountDTO> countMap = new HashMap<>();
+        if (!testPlans.isEmpty()) {
+            extTestPlanTestCaseMapper.countByPlanIds(testPlans.stream().map(TestPlanDTOWithMetric::getId).collect(Collectors.toList()))
+                    .forEach(count -> countMap.put(count.getPlanId(), count));
+        }
 
         testPlans.forEach(testPlan -> {
-            List<TestPlanCaseDTO> testCases = testCaseMap.get(testPlan.getId());
-            testPlan.setTested(0);
-            testPlan.setPassed(0);
-            testPlan.setTotal(0);
-            if (testCases != null) {
-                testPlan.setTotal(testCases.size());
-                testCases.forEach(testCase -> {
-                    if (!StringUtils.equals(testCase.getStatus(), TestPlanTestCaseStatus.Prepare.name())
-                            && !StringUtils.equals(testCase.getStatus(), TestPlanTestCaseStatus.Underway.name())) {
-                        testPlan.setTested(testPlan.getTested() + 1);
-                        if (StringUtils.equals(testCase.getStatus(), TestPlanTestCaseStatus.Pass.name())) {
-                            testPlan.setPassed(testPlan.getPassed() + 1);
-                        }
-                    }
-                });
-            }
+            TestPlanCaseCountDTO count = countMap.get(testPlan.getId());
+            testPlan.setTotal(count == null ? 0 : count.getTotal());
+            testPlan.setTested(count == null ? 0 : count.getTested());
+            testPlan.setPassed(count == null ? 0 : count.getPassed());
             testPlan.setPassRate(MathUtils.getPercentWithDecimal(testPlan.getTested() == 0 ? 0 : testPlan.getPassed() * 1.0 / testPlan.getTested()));
             testPlan.setTestRate(MathUtils.getPercentWithDecimal(testPlan.getTotal() == 0 ? 0 : testPlan.getTested() * 1.0 / testPlan.getTotal()));
         });
@@ -245,12 +223,6 @@ public class TestPlanService {
         return testPlanTestCaseService.list(request);
     }
 
-    public List<TestPlanCaseDTO> listTestCaseByProjectIds(List<String> projectIds) {
-        QueryTestPlanCaseRequest request = new QueryTestPlanCaseRequest();
-        request.setProjectIds(projectIds);
-        return extTestPlanTestCaseMapper.list(request);
-    }
-
     public TestCaseReportMetricDTO getMetric(String planId) {
         IssuesService issuesService = (IssuesService) CommonBeanFactory.getBean("issuesService");
         QueryTestPlanRequest queryTestPlanRequest = new QueryTestPlanRequest();
@@ -264,9 +236,14 @@ public class TestPlanService {
         List<ReportComponent> components = ReportComponentFactory.createComponents(componentIds.toJavaList(String.class), testPlan);
 
         List<TestPlanCaseDTO> testPlanTestCases = listTestCaseByPlanId(planId);
+        // 整个计划的缺陷一次查询
+        Map<String, List<Issues>> caseIssues = issuesService.getIssues(testPlanTestCases.stream()
+                .map(TestPlanCaseDTO::getCaseId)
+                .collect(Collectors.toList()));
+        components.forEach(component -> component.setCaseIssues(caseIssues));
         List<Issues> issues = new ArrayList<>();
         for (TestPlanCaseDTO testCase : testPlanTestCases) {
-            List<Issues> issue = issuesService.getIssues(testCase.getCaseId());
+            List<Issues> issue = caseIssues.get(testCase.getCaseId());
             if (issue.size() > 0) {
                 for (Issues i : issue) {
                     i.setModel(testCase.getModel());
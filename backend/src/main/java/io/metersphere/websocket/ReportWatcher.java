@@ -0,0 +1,238 @@
+package io.metersphere.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import io.metersphere.commons.constants.PerformanceTestStatus;
+import io.metersphere.commons.constants.ReportKeys;
+import io.metersphere.commons.utils.LogUtil;
+import io.metersphere.dto.ReportStatusDTO;
+import io.metersphere.performance.base.ChartsData;
+import io.metersphere.performance.service.ReportService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 每个报告只有一个监听，状态或结果变化时推送给所有打开该报告的连接
+ * <p>
+ * 本服务内的状态变化通过 {@link #publish(String)} 在事务提交后推送，data-streaming 写入的结果由定时检查发现，
+ * 定时检查只比较状态和更新时间，有变化时才读取结果内容
+ */
+@Component
+public class ReportWatcher {
+    private static final List<ReportKeys> PUSH_KEYS = Arrays.asList(ReportKeys.Overview, ReportKeys.TimeInfo,
+            ReportKeys.LoadChart, ReportKeys.ResponseTimeChart);
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    @Resource
+    private ReportService reportService;
+
+    public void subscribe(String reportId, Session session) {
+        // 加入连接和移除订阅都在 compute 中完成，不会加入到刚被移除的订阅
+        Subscription subscription = subscriptions.compute(reportId, (k, v) -> {
+            Subscription s = v == null ? new Subscription(k) : v;
+            s.sessions.add(session);
+            return s;
+        });
+        synchronized (subscription) {
+            if (!subscription.loaded) {
+                refresh(subscription);
+            }
+            // 新打开的页面先收到完整数据，之后只收到变化
+            send(session, subscription.snapshot());
+            if (subscription.finished) {
+                close(session);
+            }
+        }
+    }
+
+    public void unsubscribe(String reportId, Session session) {
+        subscriptions.computeIfPresent(reportId, (k, v) -> {
+            v.sessions.remove(session);
+            return v.sessions.isEmpty() ? null : v;
+        });
+    }
+
+    /**
+     * 报告状态变化时调用，有页面打开该报告时推送，在事务中调用时等提交后再推送，避免读到未提交的状态
+     */
+    public void publish(String reportId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    push(reportId);
+                }
+            });
+        } else {
+            push(reportId);
+        }
+    }
+
+    private void push(String reportId) {
+        Subscription subscription = subscriptions.get(reportId);
+        if (subscription != null) {
+            push(subscription);
+        }
+    }
+
+    @Scheduled(fixedDelay = 5 * 1000)
+    public void check() {
+        subscriptions.values().forEach(this::push);
+    }
+
+    private void push(Subscription subscription) {
+        try {
+            synchronized (subscription) {
+                JSONObject delta = refresh(subscription);
+                if (delta == null) {
+                    return;
+                }
+                subscription.sessions.forEach(session -> send(session, delta));
+                if (subscription.finished) {
+                    subscription.sessions.forEach(this::close);
+                    // 只移除当前订阅，新打开的页面加入的连接已在上面关闭
+                    subscriptions.computeIfPresent(subscription.reportId, (k, v) -> v == subscription ? null : v);
+                }
+            }
+        } catch (Exception e) {
+            LogUtil.error(e);
+        }
+    }
+
+    /**
+     * 读取最新的状态和结果，返回和上次相比变化的部分，没有变化时返回 null
+     */
+    private JSONObject refresh(Subscription subscription) {
+        subscription.loaded = true;
+        ReportStatusDTO report = reportService.getReportStatus(subscription.reportId, PUSH_KEYS);
+        String status = report == null ? PerformanceTestStatus.Error.name() : report.getStatus();
+        JSONObject delta = new JSONObject();
+        boolean statusChanged = !StringUtils.equals(status, subscription.status);
+        if (statusChanged) {
+            subscription.status = status;
+            delta.put("status", status);
+        }
+        subscription.finished = StringUtils.equalsAny(status, PerformanceTestStatus.Completed.name(), PerformanceTestStatus.Error.name());
+
+        // 状态、报告和结果的更新时间都没有变化时不读取结果内容
+        if (report != null && !StringUtils.equals(status, PerformanceTestStatus.Starting.name())
+                && (statusChanged || !Objects.equals(report.getUpdateTime(), subscription.updateTime)
+                || !Objects.equals(report.getResultUpdateTime(), subscription.resultUpdateTime))) {
+            subscription.updateTime = report.getUpdateTime();
+            subscription.resultUpdateTime = report.getResultUpdateTime();
+            Map<ReportKeys, String> contents = reportService.getReportContents(subscription.reportId, PUSH_KEYS);
+            String overview = contents.get(ReportKeys.Overview);
+            if (overview != null && !StringUtils.equals(overview, subscription.overview)) {
+                subscription.overview = overview;
+                delta.put("overview", JSON.parseObject(overview));
+            }
+            String timeInfo = contents.get(ReportKeys.TimeInfo);
+            if (timeInfo != null && !StringUtils.equals(timeInfo, subscription.timeInfo)) {
+                subscription.timeInfo = timeInfo;
+                delta.put("timeInfo", JSON.parseObject(timeInfo));
+            }
+            List<ChartsData> loadChart = merge(subscription.loadChart, contents.get(ReportKeys.LoadChart));
+            if (!loadChart.isEmpty()) {
+                delta.put("loadChart", loadChart);
+            }
+            List<ChartsData> responseTimeChart = merge(subscription.responseTimeChart, contents.get(ReportKeys.ResponseTimeChart));
+            if (!responseTimeChart.isEmpty()) {
+                delta.put("responseTimeChart", responseTimeChart);
+            }
+        }
+        if (delta.isEmpty()) {
+            return null;
+        }
+        delta.put("reportId", subscription.reportId);
+        delta.put("status", status);
+        delta.put("refresh", subscription.refresh++);
+        return delta;
+    }
+
+    /**
+     * 合并图表数据，返回新增或数值变化的点
+     */
+    private List<ChartsData> merge(Map<String, ChartsData> points, String content) {
+        List<ChartsData> changed = new ArrayList<>();
+        if (StringUtils.isBlank(content)) {
+            return changed;
+        }
+        for (ChartsData point : JSON.parseArray(content, ChartsData.class)) {
+            String key = point.getxAxis() + "|" + point.getGroupName();
+            ChartsData old = points.get(key);
+            if (old == null || old.getyAxis().compareTo(point.getyAxis()) != 0 || old.getyAxis2().compareTo(point.getyAxis2()) != 0) {
+                points.put(key, point);
+                changed.add(point);
+            }
+        }
+        return changed;
+    }
+
+    private void send(Session session, JSONObject message) {
+        // BasicRemote 不是线程安全的
+        synchronized (session) {
+            try {
+                if (session.isOpen()) {
+                    session.getBasicRemote().sendText(message.toJSONString());
+                }
+            } catch (IOException e) {
+                LogUtil.error(e);
+            }
+        }
+    }
+
+    private void close(Session session) {
+        try {
+            session.close();
+        } catch (IOException e) {
+            LogUtil.error(e);
+        }
+    }
+
+    private static class Subscription {
+        private final String reportId;
+        private final Set<Session> sessions = new CopyOnWriteArraySet<>();
+        private final Map<String, ChartsData> loadChart = new LinkedHashMap<>();
+        private final Map<String, ChartsData> responseTimeChart = new LinkedHashMap<>();
+        private boolean loaded;
+        private boolean finished;
+        private String status;
+        private String overview;
+        private String timeInfo;
+        private Long updateTime;
+        private Long resultUpdateTime;
+        private int refresh;
+
+        Subscription(String reportId) {
+            this.reportId = reportId;
+        }
+
+        JSONObject snapshot() {
+            JSONObject message = new JSONObject();
+            message.put("reportId", reportId);
+            message.put("status", status);
+            message.put("refresh", refresh);
+            message.put("full", true);
+            if (overview != null) {
+                message.put("overview", JSON.parseObject(overview));
+            }
+            if (timeInfo != null) {
+                message.put("timeInfo", JSON.parseObject(timeInfo));
+            }
+            message.put("loadChart", new ArrayList<>(loadChart.values()));
+            message.put("responseTimeChart", new ArrayList<>(responseTimeChart.values()));
+            return message;
+        }
+    }
+}
@@ -1,10 +1,6 @@
 package io.metersphere.websocket;
 
-import io.metersphere.base.domain.LoadTestReport;
-import io.metersphere.commons.constants.PerformanceTestStatus;
 import io.metersphere.commons.utils.LogUtil;
-import io.metersphere.performance.service.ReportService;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
@@ -17,11 +13,11 @@ import java.io.IOException;
 @Component
 public class ReportWebSocket {
 
-    private static ReportService reportService;
+    private static ReportWatcher reportWatcher;
 
     @Resource
-    public void setReportService(ReportService reportService) {
-        ReportWebSocket.reportService = reportService;
+    public void setReportWatcher(ReportWatcher reportWatcher) {
+        ReportWebSocket.reportWatcher = reportWatcher;
     }
 
     /**
@@ -29,18 +25,16 @@ public class ReportWebSocket {
      */
     @OnOpen
     public void onOpen(@PathParam("reportId") String reportId, Session session) throws IOException {
-        //开启一个线程对数据库中的数据进行轮询
-        ReportThread reportThread = new ReportThread(session, reportId);
-        Thread thread = new Thread(reportThread);
-        thread.start();
+        // 同一个报告的所有连接共用一个监听
+        reportWatcher.subscribe(reportId, session);
     }
 
     /**
      * 连接关闭的操作
      */
     @OnClose
-    public void onClose(Session session) {
-
+    public void onClose(@PathParam("reportId") String reportId, Session session) {
+        reportWatcher.unsubscribe(reportId, session);
     }
 
     /**
@@ -55,46 +49,6 @@ public class ReportWebSocket {
      */
     @OnError
     public void onError(Throwable error) {
-        System.out.println(error);
-        error.printStackTrace();
-    }
-
-    public static class ReportThread implements Runnable {
-        private boolean stopMe = true;
-        private final String reportId;
-        private final Session session;
-        private int refresh;
-
-        public ReportThread(Session session, String reportId) {
-            this.session = session;
-            this.reportId = reportId;
-            this.refresh = 0;
-        }
-
-        public void stopMe() {
-            stopMe = false;
-        }
-
-        public void run() {
-            while (stopMe) {
-                try {
-                    LoadTestReport report = reportService.getReport(reportId);
-                    if (report == null || StringUtils.equalsAny(report.getStatus(), PerformanceTestStatus.Completed.name(), PerformanceTestStatus.Error.name())) {
-                        this.stopMe();
-                        session.close();
-                        break;
-                    }
-                    if (!session.isOpen()) {
-                        return;
-                    }
-                    if (StringUtils.equalsAny(report.getStatus(), PerformanceTestStatus.Running.name(), PerformanceTestStatus.Reporting.name())) {
-                        session.getBasicRemote().sendText("refresh-" + this.refresh++);
-                    }
-                    Thread.sleep(20 * 1000L);
-                } catch (Exception e) {
-                    LogUtil.error(e);
-                }
-            }
-        }
+        LogUtil.error(error);
     }
-}
\ No newline at end of file
+}
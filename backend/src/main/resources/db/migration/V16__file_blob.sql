@@ -0,0 +1,22 @@
+ALTER TABLE file_metadata
+    ADD content_hash varchar(64) NULL COMMENT 'SHA-256 of file content, NULL means content is in file_content';
+
+CREATE TABLE IF NOT EXISTS `file_blob`
+(
+    `hash`        varchar(64) NOT NULL COMMENT 'SHA-256 of content',
+    `size`        bigint(13)  NOT NULL COMMENT 'Content size',
+    `ref_count`   int(10)     NOT NULL COMMENT 'Number of files referencing this content',
+    `storage`     varchar(20) NOT NULL COMMENT 'Storage backend: DB or LOCAL',
+    `create_time` bigint(13)  NOT NULL COMMENT 'Create timestamp',
+    PRIMARY KEY (`hash`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS `file_blob_content`
+(
+    `hash`    varchar(64) NOT NULL COMMENT 'SHA-256 of content',
+    `part`    int(10)     NOT NULL COMMENT 'Chunk index',
+    `content` mediumblob COMMENT 'Chunk content',
+    PRIMARY KEY (`hash`, `part`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS `resource_reservation`
+(
+    `report_id`               varchar(50)  NOT NULL COMMENT 'Load test report ID',
+    `node`                    varchar(100) NOT NULL COMMENT 'Node address ip:port',
+    `test_resource_pool_id`   varchar(50)  NOT NULL COMMENT 'Test resource pool ID',
+    `thread_num`              int(10)      NOT NULL COMMENT 'Reserved concurrency on this node',
+    `create_time`             bigint(13)   NOT NULL COMMENT 'Create timestamp',
+    PRIMARY KEY (`report_id`, `node`),
+    KEY `idx_pool_id` (`test_resource_pool_id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,2 @@
+-- 按计划统计用例数量时只需要读取索引
+ALTER TABLE `test_plan_test_case` ADD INDEX `idx_plan_id_case_id_status` (`plan_id`, `case_id`, `status`);
@@ -0,0 +1,2 @@
+-- 按模块批量更新用例路径时按 node_id 定位用例
+ALTER TABLE `test_case` ADD INDEX `idx_node_id` (`node_id`);
@@ -0,0 +1,5 @@
+-- 写入日志时由数据库计算每块的字节数，下载时按索引求和，不再读取日志内容
+ALTER TABLE `load_test_report_log`
+    ADD COLUMN `content_length` bigint(20) AS (IFNULL(LENGTH(`content`), 0)) STORED,
+    DROP INDEX `load_test_report_log_report_id_resource_name_index`,
+    ADD INDEX `load_test_report_log_report_id_resource_name_index` (`report_id`, `resource_id`, `part`, `content_length`);
@@ -0,0 +1,5 @@
+-- 结果写入时由数据库记录更新时间，推送报告时先比较时间，变化后再读取结果内容
+ALTER TABLE `load_test_report_result`
+    ADD COLUMN `update_time` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    DROP INDEX `load_test_report_result_report_id_report_key_index`,
+    ADD INDEX `load_test_report_result_report_id_report_key_index` (`report_id`, `report_key`, `update_time`);
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS `test_case_import_task`
+(
+    `id`           varchar(50) NOT NULL COMMENT 'Import task ID',
+    `project_id`   varchar(50) NOT NULL COMMENT 'Project ID',
+    `user_id`      varchar(50) NOT NULL COMMENT 'User who started the import',
+    `status`       varchar(20) NOT NULL COMMENT 'Running, Completed or Error',
+    `read_count`   int(10)     NOT NULL DEFAULT 0 COMMENT 'Parsed rows',
+    `import_count` int(10)     NOT NULL DEFAULT 0 COMMENT 'Written test cases',
+    `error_count`  int(10)     NOT NULL DEFAULT 0 COMMENT 'Rows with errors',
+    `start_time`   bigint(13)  NOT NULL COMMENT 'Start timestamp',
+    `end_time`     bigint(13)           DEFAULT NULL COMMENT 'End timestamp',
+    `message`      varchar(1000)        DEFAULT NULL COMMENT 'Error message',
+    `response`     longtext COMMENT 'Import result JSON',
+    PRIMARY KEY (`id`),
+    KEY `idx_end_time` (`end_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,18 @@
+CREATE TABLE IF NOT EXISTS `schedule_run`
+(
+    `id`             varchar(50)  NOT NULL COMMENT 'Schedule run ID',
+    `job_name`       varchar(100) NOT NULL COMMENT 'Quartz job name',
+    `job_group`      varchar(50)  NOT NULL COMMENT 'Quartz job group',
+    `job_class`      varchar(255) NOT NULL COMMENT 'Job class that executes the run',
+    `resource_id`    varchar(50)  NOT NULL COMMENT 'Scheduled resource ID',
+    `user_id`        varchar(50)           DEFAULT NULL COMMENT 'User who created the schedule',
+    `expression`     varchar(255)          DEFAULT NULL COMMENT 'Cron expression',
+    `status`         varchar(20)  NOT NULL COMMENT 'Pending or Running',
+    `fire_time`      bigint(13)   NOT NULL COMMENT 'Quartz fire timestamp',
+    `available_time` bigint(13)   NOT NULL COMMENT 'Earliest start timestamp, fire time plus jitter',
+    `start_time`     bigint(13)            DEFAULT NULL COMMENT 'Start timestamp',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_job` (`job_group`, `job_name`),
+    KEY `idx_group_status` (`job_group`, `status`, `available_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
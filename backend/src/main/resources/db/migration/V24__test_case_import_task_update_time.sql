@@ -0,0 +1,6 @@
+ALTER TABLE `test_case_import_task`
+    ADD COLUMN `update_time` bigint(13) DEFAULT NULL COMMENT 'Last progress save timestamp' AFTER `end_time`,
+    ADD KEY `idx_status_update_time` (`status`, `update_time`);
+
+UPDATE `test_case_import_task`
+SET `update_time` = IFNULL(`end_time`, `start_time`);
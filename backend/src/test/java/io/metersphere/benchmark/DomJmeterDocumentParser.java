@@ -1,4 +1,4 @@
-package io.metersphere.performance.parse.xml.reader.jmx;
+package io.metersphere.benchmark;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
@@ -8,7 +8,6 @@ import io.metersphere.commons.utils.ScriptEngineUtils;
 import io.metersphere.config.KafkaProperties;
 import io.metersphere.i18n.Translator;
 import io.metersphere.performance.engine.EngineContext;
-import io.metersphere.performance.parse.xml.reader.DocumentParser;
 import org.apache.commons.lang3.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -24,7 +23,10 @@ import java.io.StringWriter;
 import java.util.HashSet;
 import java.util.List;
 
-public class JmeterDocumentParser implements DocumentParser {
+/**
+ * 改为 StAX 之前基于 DOM 的 jmx 处理，只作为 {@link JmxParserBenchmark} 的对照
+ */
+public class DomJmeterDocumentParser {
     private final static String HASH_TREE_ELEMENT = "hashTree";
     private final static String TEST_PLAN = "TestPlan";
     private final static String STRING_PROP = "stringProp";
@@ -39,7 +41,6 @@ public class JmeterDocumentParser implements DocumentParser {
     private final static String RESPONSE_ASSERTION = "ResponseAssertion";
     private EngineContext context;
 
-    @Override
     public String parse(EngineContext context, Document document) throws Exception {
         this.context = context;
 
@@ -820,7 +821,7 @@ public class JmeterDocumentParser implements DocumentParser {
 
     private void processConcurrencyThreadGroup(Element concurrencyThreadGroup) {
         String testname = concurrencyThreadGroup.getAttribute("testname");
-        concurrencyThreadGroup.setAttribute("testname", testname + "-" + context.getResourceIndex());
+        concurrencyThreadGroup.setAttribute("testname", testname + "-" + context.getResourceIndexValue());
         if (concurrencyThreadGroup.getChildNodes().getLength() > 0) {
             final NodeList childNodes = concurrencyThreadGroup.getChildNodes();
             for (int i = 0; i < childNodes.getLength(); i++) {
@@ -837,7 +838,7 @@ public class JmeterDocumentParser implements DocumentParser {
 
                     // 设置具体的线程数
                     if (nodeNameEquals(ele, STRING_PROP) && "TargetLevel".equals(ele.getAttribute("name"))) {
-                        ele.getFirstChild().setNodeValue(context.getThreadNum().toString());
+                        ele.getFirstChild().setNodeValue(context.getThreadNumValue());
                     }
                 }
             }
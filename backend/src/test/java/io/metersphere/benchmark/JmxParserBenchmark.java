@@ -0,0 +1,132 @@
+package io.metersphere.benchmark;
+
+import io.metersphere.commons.utils.CommonBeanFactory;
+import io.metersphere.config.KafkaProperties;
+import io.metersphere.performance.engine.EngineContext;
+import io.metersphere.performance.parse.xml.reader.jmx.JmeterStreamDocumentParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.StaticApplicationContext;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测脚本处理：StAX 流式处理和原来的 DOM 处理对比
+ * <p>
+ * 运行 main 方法，或打包测试类后用 JMH 的命令行执行；gc.alloc.rate.norm 为每次处理分配的内存
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JmxParserBenchmark {
+
+    // 脚本中的请求数
+    @Param({"100", "2000"})
+    private int samplers;
+
+    private byte[] jmx;
+
+    @Setup
+    public void setup() {
+        // 处理时通过 CommonBeanFactory 读取 kafka 配置
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers("localhost:9092");
+        kafkaProperties.setTopic("JMETER_METRICS");
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.getBeanFactory().registerSingleton("kafkaProperties", kafkaProperties);
+        applicationContext.refresh();
+        new CommonBeanFactory().setApplicationContext(applicationContext);
+
+        jmx = buildJmx(samplers).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String stream() throws Exception {
+        StringWriter out = new StringWriter();
+        new JmeterStreamDocumentParser().parse(createContext(), new ByteArrayInputStream(jmx), out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String dom() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new ByteArrayInputStream(jmx)));
+        return new DomJmeterDocumentParser().parse(createContext(), document);
+    }
+
+    private EngineContext createContext() {
+        EngineContext context = new EngineContext();
+        context.setTestId("benchmark");
+        context.setTestName("benchmark");
+        context.setReportId("benchmark");
+        context.setStartTime(System.currentTimeMillis());
+        context.setThreadNum(10L);
+        context.setResourceIndex(0);
+        context.addProperty("duration", 10);
+        context.addProperty("RampUp", 1);
+        context.addProperty("timeout", 3000);
+        return context;
+    }
+
+    private static String buildJmx(int samplers) {
+        StringBuilder jmx = new StringBuilder();
+        jmx.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<jmeterTestPlan version=\"1.2\" properties=\"5.0\" jmeter=\"5.2.1\">\n")
+                .append("<hashTree>\n")
+                .append("<TestPlan guiclass=\"TestPlanGui\" testclass=\"TestPlan\" testname=\"Test Plan\" enabled=\"true\">\n")
+                .append("<boolProp name=\"TestPlan.functional_mode\">false</boolProp>\n")
+                .append("</TestPlan>\n")
+                .append("<hashTree>\n")
+                .append("<ThreadGroup guiclass=\"ThreadGroupGui\" testclass=\"ThreadGroup\" testname=\"Thread Group\" enabled=\"true\">\n")
+                .append("<stringProp name=\"ThreadGroup.on_sample_error\">continue</stringProp>\n")
+                .append("<stringProp name=\"ThreadGroup.num_threads\">1</stringProp>\n")
+                .append("<stringProp name=\"ThreadGroup.ramp_time\">1</stringProp>\n")
+                .append("</ThreadGroup>\n")
+                .append("<hashTree>\n");
+        for (int i = 0; i < samplers; i++) {
+            jmx.append("<HTTPSamplerProxy guiclass=\"HttpTestSampleGui\" testclass=\"HTTPSamplerProxy\" testname=\"request-").append(i).append("\" enabled=\"true\">\n")
+                    .append("<elementProp name=\"HTTPsampler.Arguments\" elementType=\"Arguments\">\n")
+                    .append("<collectionProp name=\"Arguments.arguments\"/>\n")
+                    .append("</elementProp>\n")
+                    .append("<stringProp name=\"HTTPSampler.domain\">example.com</stringProp>\n")
+                    .append("<stringProp name=\"HTTPSampler.path\">/api/resource/").append(i).append("</stringProp>\n")
+                    .append("<stringProp name=\"HTTPSampler.method\">GET</stringProp>\n")
+                    .append("</HTTPSamplerProxy>\n")
+                    .append("<hashTree>\n")
+                    .append("<ResponseAssertion guiclass=\"AssertionGui\" testclass=\"ResponseAssertion\" testname=\"Response Assertion\" enabled=\"true\">\n")
+                    .append("<collectionProp name=\"Asserion.test_strings\">\n")
+                    .append("<stringProp name=\"49586\">200</stringProp>\n")
+                    .append("</collectionProp>\n")
+                    .append("<stringProp name=\"Assertion.test_field\">Assertion.response_code</stringProp>\n")
+                    .append("<intProp name=\"Assertion.test_type\">8</intProp>\n")
+                    .append("</ResponseAssertion>\n")
+                    .append("<hashTree/>\n")
+                    .append("</hashTree>\n");
+        }
+        jmx.append("</hashTree>\n")
+                .append("</hashTree>\n")
+                .append("</hashTree>\n")
+                .append("</jmeterTestPlan>\n");
+        return jmx.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JmxParserBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,104 @@
+package io.metersphere.benchmark;
+
+import io.metersphere.base.domain.TestResource;
+import io.metersphere.commons.utils.MybatisInterceptorConfig;
+import io.metersphere.interceptor.MybatisInterceptor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MybatisInterceptor 处理查询结果的开销：处理计划和原来的逐行反射对比
+ * <p>
+ * 处理方法为原样返回，只计算拦截器本身的开销；运行 main 方法，或打包测试类后用 JMH 的命令行执行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MybatisInterceptorBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private MybatisInterceptor interceptor;
+
+    private ReflectiveMybatisInterceptor reflectiveInterceptor;
+
+    private Invocation resultSetInvocation;
+
+    private Invocation queryInvocation;
+
+    @Setup
+    public void setup() throws Exception {
+        List<MybatisInterceptorConfig> configList = Collections.singletonList(
+                new MybatisInterceptorConfig(TestResource.class, "configuration", MybatisInterceptorBenchmark.class, "identity", "identity"));
+        interceptor = new MybatisInterceptor();
+        interceptor.setInterceptorConfigList(configList);
+        reflectiveInterceptor = new ReflectiveMybatisInterceptor();
+        reflectiveInterceptor.setInterceptorConfigList(configList);
+
+        List<Object> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            TestResource testResource = new TestResource();
+            testResource.setId("resource-" + i);
+            testResource.setTestResourcePoolId("pool");
+            testResource.setStatus("VALID");
+            testResource.setCreateTime(System.currentTimeMillis());
+            testResource.setUpdateTime(System.currentTimeMillis());
+            testResource.setConfiguration("{\"ip\":\"10.0.0." + (i % 255) + "\",\"port\":8082,\"maxConcurrency\":100}");
+            result.add(testResource);
+        }
+
+        // 新的拦截器处理 ResultSetHandler 的结果，原来的拦截器处理 Executor.query 的结果
+        ResultSetHandler resultSetHandler = (ResultSetHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ResultSetHandler.class}, (proxy, method, args) -> result);
+        Method handleResultSets = ResultSetHandler.class.getMethod("handleResultSets", Statement.class);
+        resultSetInvocation = new Invocation(resultSetHandler, handleResultSets, new Object[]{null});
+
+        Executor executor = (Executor) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Executor.class}, (proxy, method, args) -> result);
+        Method query = Executor.class.getMethod("query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class);
+        queryInvocation = new Invocation(executor, query, new Object[]{null, null, RowBounds.DEFAULT, null});
+    }
+
+    public static Object identity(Object value) {
+        return value;
+    }
+
+    @Benchmark
+    public Object codecPlan() throws Throwable {
+        return interceptor.intercept(resultSetInvocation);
+    }
+
+    @Benchmark
+    public Object reflective() throws Throwable {
+        return reflectiveInterceptor.intercept(queryInvocation);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MybatisInterceptorBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,207 @@
+package io.metersphere.benchmark;
+
+import io.metersphere.commons.utils.BeanUtils;
+import io.metersphere.commons.utils.MybatisInterceptorConfig;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.*;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 改为处理计划之前逐行反射的 MybatisInterceptor，只作为 {@link MybatisInterceptorBenchmark} 的对照
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+})
+public class ReflectiveMybatisInterceptor implements Interceptor {
+
+    private List<MybatisInterceptorConfig> interceptorConfigList;
+
+    private ConcurrentHashMap<String, Class> classMap = new ConcurrentHashMap<>();
+    private ConcurrentHashMap<String, Map<String, Map<String, MybatisInterceptorConfig>>> interceptorConfigMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        String methodName = invocation.getMethod().getName();
+        Object parameter = invocation.getArgs()[1];
+        if (parameter != null && methodName.equals("update")) {
+            invocation.getArgs()[1] = process(parameter);
+        }
+        Object returnValue = invocation.proceed();
+        Object result = returnValue;
+        if (returnValue instanceof ArrayList<?>) {
+            List<Object> list = new ArrayList<>();
+            boolean isDecrypted = false;
+            for (Object val : (ArrayList<?>) returnValue) {
+                Object a = undo(val);
+                if (a != val) {
+                    isDecrypted = true;
+                    list.add(a);
+                } else {
+                    break;
+                }
+            }
+            if (isDecrypted) {
+                result = list;
+            }
+        } else {
+            result = undo(returnValue);
+        }
+        return result;
+    }
+
+    private Map<String, Map<String, MybatisInterceptorConfig>> getConfig(Object p) {
+        Map<String, Map<String, MybatisInterceptorConfig>> result = new HashMap<>();
+        if (p == null) {
+            return null;
+        }
+        String pClassName = p.getClass().getName();
+        if (interceptorConfigMap.get(pClassName) != null) {
+            return interceptorConfigMap.get(pClassName);
+        }
+        Map<String, List<MybatisInterceptorConfig>> m = new HashMap<>();
+        for (MybatisInterceptorConfig interceptorConfig : interceptorConfigList) {
+            String className = interceptorConfig.getModelName();
+            String attrName = interceptorConfig.getAttrName();
+            if (StringUtils.isNotBlank(className)) {
+                Class c = classMap.get(className);
+                if (c == null) {
+                    try {
+                        c = Class.forName(className);
+                        classMap.put(className, c);
+                    } catch (ClassNotFoundException e) {
+                        continue;
+                    }
+                }
+                if (c.isInstance(p)) {
+                    if (result.get(attrName) == null) {
+                        result.put(attrName, new HashMap<>());
+                    }
+                    if (StringUtils.isNotBlank(interceptorConfig.getInterceptorMethod())) {
+                        result.get(attrName).put(Methods.encrypt.name(), interceptorConfig);
+                    }
+                    if (StringUtils.isNotBlank(interceptorConfig.getInterceptorMethod())) {
+                        result.get(attrName).put(Methods.decrypt.name(), interceptorConfig);
+                    }
+                }
+            }
+        }
+        interceptorConfigMap.put(pClassName, result);
+        return result;
+    }
+
+    private Object process(Object obj) throws Throwable {
+        if (obj instanceof Map) {
+            Map paramMap = (Map) obj;
+            for (Object key : paramMap.keySet()) {
+                if (paramMap.get(key) != null) {
+                    paramMap.put(key, process(paramMap.get(key)));
+                }
+            }
+            return paramMap;
+        }
+        Map<String, Map<String, MybatisInterceptorConfig>> localInterceptorConfigMap = getConfig(obj);
+        if (MapUtils.isEmpty(localInterceptorConfigMap)) {
+            return obj;
+        }
+        Object newObject = obj.getClass().newInstance();
+        BeanUtils.copyBean(newObject, obj);
+        for (String attrName : localInterceptorConfigMap.keySet()) {
+            if (MapUtils.isEmpty(localInterceptorConfigMap.get(attrName))) {
+                continue;
+            }
+            MybatisInterceptorConfig interceptorConfig = localInterceptorConfigMap.get(attrName).get(Methods.encrypt.name());
+            if (interceptorConfig == null || StringUtils.isBlank(interceptorConfig.getInterceptorClass())
+                    || StringUtils.isBlank(interceptorConfig.getInterceptorMethod())) {
+                continue;
+            }
+            Object fieldValue = BeanUtils.getFieldValueByName(interceptorConfig.getAttrName(), newObject);
+            if (fieldValue != null) {
+                Class<?> processClazz = Class.forName(interceptorConfig.getInterceptorClass());
+                Method method = processClazz.getMethod(interceptorConfig.getInterceptorMethod(), Object.class);
+                Object processedValue = method.invoke(null, fieldValue);
+                if (processedValue instanceof byte[]) {
+                    BeanUtils.setFieldValueByName(newObject, interceptorConfig.getAttrName(), processedValue, byte[].class);
+                } else {
+                    BeanUtils.setFieldValueByName(newObject, interceptorConfig.getAttrName(), processedValue, fieldValue.getClass());
+                }
+            }
+        }
+
+        return newObject;
+    }
+
+    private Object undo(Object obj) throws Throwable {
+        Map<String, Map<String, MybatisInterceptorConfig>> localDecryptConfigMap = getConfig(obj);
+        Object result;
+        if (MapUtils.isEmpty(localDecryptConfigMap)) {
+            return obj;
+        }
+        result = obj.getClass().newInstance();
+        BeanUtils.copyBean(result, obj);
+        for (String attrName : localDecryptConfigMap.keySet()) {
+            if (MapUtils.isEmpty(localDecryptConfigMap.get(attrName))) {
+                continue;
+            }
+            MybatisInterceptorConfig interceptorConfig = localDecryptConfigMap.get(attrName).get(Methods.decrypt.name());
+            if (interceptorConfig == null || StringUtils.isBlank(interceptorConfig.getUndoClass())
+                    || StringUtils.isBlank(interceptorConfig.getUndoMethod())) {
+                continue;
+            }
+            Object fieldValue = BeanUtils.getFieldValueByName(interceptorConfig.getAttrName(), result);
+            if (fieldValue != null) {
+                Class<?> processClazz = Class.forName(interceptorConfig.getUndoClass());
+                Object undoValue;
+                if (fieldValue instanceof List) {
+                    Method method = processClazz.getMethod(interceptorConfig.getUndoMethod(), List.class, String.class);
+                    //fieldValue获取的是list的引用，所以list类型的属性不需要再调用setFieldValueByName了
+                    method.invoke(null, fieldValue, interceptorConfig.getAttrNameForList());
+                } else {
+                    Method method = processClazz.getMethod(interceptorConfig.getUndoMethod(), Object.class);
+                    undoValue = method.invoke(null, fieldValue);
+                    if (undoValue instanceof byte[]) {
+                        BeanUtils.setFieldValueByName(result, interceptorConfig.getAttrName(), undoValue, byte[].class);
+                    } else {
+                        BeanUtils.setFieldValueByName(result, interceptorConfig.getAttrName(), undoValue, fieldValue.getClass());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        // TODO Auto-generated method stub
+
+    }
+
+    public List<MybatisInterceptorConfig> getInterceptorConfigList() {
+        return interceptorConfigList;
+    }
+
+    public void setInterceptorConfigList(List<MybatisInterceptorConfig> interceptorConfigList) {
+        this.interceptorConfigList = interceptorConfigList;
+    }
+
+    private enum Methods {
+        encrypt, decrypt
+    }
+
+}
\ No newline at end of file